@@ -0,0 +1,49 @@
+package nastya.sudoku.ai;
+
+import lombok.Value;
+
+/**
+ * Итоги пакетного решения задач {@link BatchSolver}.
+ */
+@Value
+public class BatchReport {
+
+    /**
+     * Количество прочитанных задач.
+     */
+    long puzzles;
+
+    /**
+     * Количество решённых задач.
+     */
+    long solved;
+
+    /**
+     * Количество строк, которые не удалось разобрать.
+     */
+    long invalid;
+
+    long elapsedNanos;
+
+    /**
+     * Время решения одной задачи в наносекундах.
+     */
+    Histogram latency;
+
+    /**
+     * @return количество задач в секунду.
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : puzzles * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Задач: %d, решено: %d, с ошибками: %d, время: %d мс, задач в секунду: %.1f%n"
+                        + "Время решения (мкс): p50 = %d, p90 = %d, p99 = %d, p99.9 = %d, max = %d",
+                puzzles, solved, invalid, elapsedNanos / 1_000_000, getThroughput(),
+                latency.getPercentile(50) / 1000, latency.getPercentile(90) / 1000,
+                latency.getPercentile(99) / 1000, latency.getPercentile(99.9) / 1000,
+                latency.getMax() / 1000);
+    }
+}
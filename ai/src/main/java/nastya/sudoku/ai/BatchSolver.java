@@ -0,0 +1,237 @@
+package nastya.sudoku.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Пакетное решение задач из файла в формате {@link PuzzleFormat}, по одной задаче на строку.<br/>
+ * Файл читается окнами через {@link FileChannel} (большие файлы отображаются в память),
+ * задачи решаются пулом потоков, а результаты пишутся в том же порядке, что и во входном файле.
+ * Очереди между этапами ограничены, поэтому расход памяти не зависит от размера файла.<br/>
+ * Решённая задача записывается решением, нерешённая или некорректная — исходной строкой.
+ * Если какой-либо этап завершается с ошибкой, остальные прерываются, а ошибка передаётся вызывающему.
+ */
+public class BatchSolver {
+
+    private static final int WINDOW = 1 << 20;
+    private static final int MAPPED_WINDOW = 1 << 28;
+    private static final long MAP_THRESHOLD = 64L << 20;
+
+    private static final Item END = new Item(-1, null);
+
+    private final int threads;
+    private final int queueSize;
+
+    public BatchSolver(int threads, int queueSize) {
+        this.threads = threads;
+        this.queueSize = queueSize;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Использование: BatchSolver <входной файл> <выходной файл> [потоков] [размер очереди]");
+            return;
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int queueSize = args.length > 3 ? Integer.parseInt(args[3]) : 4096;
+        BatchReport report = new BatchSolver(threads, queueSize).solve(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println(report);
+    }
+
+    public BatchReport solve(Path input, Path output) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        InternalBatch batch = new InternalBatch();
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 2);
+        try {
+            // Этапы ждут друг друга на очередях, поэтому при ошибке одного из них остальные останавливаются прерыванием.
+            CompletionService<Void> stages = new ExecutorCompletionService<>(executor);
+            stages.submit(() -> {
+                batch.write(output);
+                return null;
+            });
+            for (int i = 0; i < threads; i++)
+                stages.submit(batch::work);
+            stages.submit(() -> {
+                batch.read(input);
+                batch.ordered.put(END);
+                for (int i = 0; i < threads; i++)
+                    batch.pending.put(END);
+                return null;
+            });
+
+            for (int i = 0; i < threads + 2; i++)
+                stages.take().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new BatchReport(batch.puzzles, batch.solved.sum(), batch.invalid.sum(),
+                System.nanoTime() - start, batch.latency);
+    }
+
+    /**
+     * Задача вместе с результатом её решения.
+     */
+    private static final class Item {
+
+        final long index;
+        final byte[] line;
+        byte[] result;
+        boolean done;
+
+        Item(long index, byte[] line) {
+            this.index = index;
+            this.line = line;
+        }
+
+        synchronized void complete(byte[] result) {
+            this.result = result;
+            done = true;
+            notifyAll();
+        }
+
+        synchronized byte[] await() throws InterruptedException {
+            while (!done)
+                wait();
+            return result;
+        }
+    }
+
+    private class InternalBatch {
+
+        /**
+         * Задачи в порядке чтения, их забирает писатель.
+         */
+        final BlockingQueue<Item> ordered = new ArrayBlockingQueue<>(queueSize);
+
+        /**
+         * Задачи, ещё не взятые в решение.
+         */
+        final BlockingQueue<Item> pending = new ArrayBlockingQueue<>(queueSize);
+
+        final LongAdder solved = new LongAdder();
+        final LongAdder invalid = new LongAdder();
+        final Histogram latency = new Histogram();
+        long puzzles;
+
+        void read(Path input) throws IOException, InterruptedException {
+            try (FileChannel channel = FileChannel.open(input, READ)) {
+                long size = channel.size();
+                boolean mapped = size >= MAP_THRESHOLD;
+                ByteBuffer buffer = mapped ? null : ByteBuffer.allocateDirect(WINDOW);
+                long position = 0;
+                while (position < size) {
+                    ByteBuffer window;
+                    if (mapped) {
+                        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_WINDOW, size - position));
+                    } else {
+                        buffer.clear();
+                        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0)
+                            ;
+                        buffer.flip();
+                        window = buffer;
+                    }
+
+                    int limit = window.limit();
+                    boolean last = position + limit >= size;
+                    int lineStart = 0;
+                    for (int i = 0; i < limit; i++) {
+                        if (window.get(i) == '\n') {
+                            emit(window, lineStart, i);
+                            lineStart = i + 1;
+                        }
+                    }
+                    if (last && lineStart < limit) {
+                        emit(window, lineStart, limit);
+                        lineStart = limit;
+                    }
+                    if (lineStart == 0)
+                        throw new IOException("Слишком длинная строка в позиции " + position);
+                    position += lineStart;
+                }
+            }
+        }
+
+        private void emit(ByteBuffer window, int from, int to) throws InterruptedException {
+            if (to > from && window.get(to - 1) == '\r')
+                to--;
+            if (to == from)
+                return;
+            byte[] line = new byte[to - from];
+            for (int i = 0; i < line.length; i++)
+                line[i] = window.get(from + i);
+
+            Item item = new Item(puzzles++, line);
+            ordered.put(item);
+            pending.put(item);
+        }
+
+        Void work() throws InterruptedException {
+            PrimitiveSolver solver = new PrimitiveSolver();
+            int[] cells = new int[0];
+            for (Item item = pending.take(); item != END; item = pending.take()) {
+                long start = System.nanoTime();
+                byte[] line = item.line;
+                int side = PuzzleFormat.side(line.length);
+                if (cells.length != line.length)
+                    cells = new int[line.length];
+                if (side < 0 || !PuzzleFormat.parse(line, side, cells)) {
+                    invalid.increment();
+                    item.complete(line);
+                    continue;
+                }
+
+                int blockRows = PuzzleFormat.blockRows(side);
+                int[] solution = solver.solve(side, blockRows, side / blockRows, cells);
+                if (solution != null)
+                    solved.increment();
+                item.complete(solution != null ? PuzzleFormat.format(solution) : line);
+                latency.record(System.nanoTime() - start);
+            }
+            return null;
+        }
+
+        void write(Path output) throws IOException, InterruptedException {
+            try (FileChannel channel = FileChannel.open(output, WRITE, CREATE, TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WINDOW);
+                for (Item item = ordered.take(); item != END; item = ordered.take()) {
+                    byte[] result = item.await();
+                    if (buffer.remaining() < result.length + 1) {
+                        flush(channel, buffer);
+                        if (buffer.capacity() < result.length + 1)
+                            buffer = ByteBuffer.allocateDirect(result.length + 1);
+                    }
+                    buffer.put(result).put((byte) '\n');
+                }
+                flush(channel, buffer);
+            }
+        }
+
+        private void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
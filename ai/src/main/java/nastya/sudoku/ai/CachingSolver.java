@@ -0,0 +1,62 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.GameField;
+
+/**
+ * Решатель-обёртка, который сначала ищет решение в {@link SolutionCache} по канонической форме поля,
+ * а решает исходным решателем только при промахе.<br/>
+ * Поэтому поле, полученное из уже решённого перестановками строк, столбцов, транспонированием
+ * или перенумерацией значений, решается без поиска: каноническое решение переводится обратно
+ * преобразованием, обратным к {@link CanonicalForm#getTransform()}.<br/>
+ * Поля с неклассическими правилами решаются исходным решателем без кэша.<br/>
+ * Потокобезопасен, если потокобезопасен исходный решатель.
+ */
+public class CachingSolver implements SudokuSolver {
+
+    private final SudokuSolver solver;
+    private final SolutionCache cache;
+
+    public CachingSolver(SudokuSolver solver, SolutionCache cache) {
+        this.solver = solver;
+        this.cache = cache;
+    }
+
+    public SolutionCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public boolean solve(GameField gameField) {
+        return solveWithMetrics(gameField).isSolved();
+    }
+
+    /**
+     * При попадании в кэш метрики поиска равны {@code 0}; время включает построение канонической формы.
+     */
+    @Override
+    public SolverMetrics solveWithMetrics(GameField gameField) {
+        if (!gameField.getConstraints().isClassic())
+            return solver.solveWithMetrics(gameField);
+        long start = System.nanoTime();
+        long allocated = SolverMetrics.allocatedBytes();
+        int[] cells = GameFields.toArray(gameField);
+        CanonicalForm form = CanonicalForm.of(gameField.getFieldSize(), gameField.getBlockSize(), cells);
+
+        int[] solution = cache.get(form);
+        if (solution != null) {
+            GameFields.write(gameField, cells, form.getTransform().invert(solution));
+            long elapsed = System.nanoTime() - start;
+            return new SolverMetrics(true, 0, 0, 0, 0, elapsed, elapsed, SolverMetrics.allocatedSince(allocated));
+        }
+
+        long searchStart = System.nanoTime();
+        SolverMetrics metrics = solver.solveWithMetrics(gameField);
+        if (metrics.isSolved())
+            cache.put(form, form.getTransform().apply(GameFields.toArray(gameField)));
+        long overhead = searchStart - start;
+        return new SolverMetrics(metrics.isSolved(), metrics.getNodes(), metrics.getBacktracks(), metrics.getMaxDepth(),
+                metrics.getEliminations(),
+                metrics.getFirstSolutionNanos() < 0 ? -1 : metrics.getFirstSolutionNanos() + overhead,
+                System.nanoTime() - start, SolverMetrics.allocatedSince(allocated));
+    }
+}
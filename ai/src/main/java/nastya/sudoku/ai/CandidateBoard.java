@@ -0,0 +1,280 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.ConstraintModel;
+import nastya.sudoku.commons.FieldGeometry;
+import nastya.sudoku.commons.FieldSize;
+
+import java.util.Arrays;
+
+/**
+ * Поле, в котором для каждой клетки хранится битовая маска оставшихся кандидатов.<br/>
+ * У известной клетки маска состоит из одного бита её значения.
+ * Поддерживаются поля со стороной не больше 64.<br/>
+ * Таблицы групп, соседей и сумм берутся из {@link ConstraintModel}
+ * и разделяются между всеми полями одних правил. Суммы проверяются при каждой постановке значения.<br/>
+ * Поле может дополнительно вести списки неизвестных клеток по числу кандидатов,
+ * чтобы клетку для ветвления можно было выбрать без просмотра всего поля.
+ */
+class CandidateBoard {
+
+    static final int MAX_SIZE = 64;
+
+    final int size;
+    final int cellCount;
+    final long all;
+    final FieldGeometry geometry;
+    final ConstraintModel constraints;
+
+    /**
+     * Клетки каждой группы: сначала строки, затем столбцы, затем блоки (области) и дополнительные группы.
+     */
+    final int[][] units;
+
+    /**
+     * Группы, в которые входит клетка: строка, столбец, блок и дополнительные группы.
+     */
+    final int[][] cellUnits;
+
+    /**
+     * Различные клетки, стоящие в одной группе с данной, без неё самой.
+     */
+    final int[][] peers;
+
+    final int[][] cages;
+    final int[] cageSums;
+    final int[] cellCages;
+
+    final int[] values;
+    final long[] candidates;
+    int unknownCount;
+
+    /**
+     * Сумма отображаемых значений и количество неизвестных клеток каждой суммы.
+     */
+    final int[] cageTotals;
+    final int[] cageMissing;
+
+    /**
+     * Двусвязные списки неизвестных клеток по числу кандидатов: {@code first[count]} — первая клетка списка,
+     * {@code next} и {@code previous} — соседние клетки, {@code -1} — конец списка.
+     * Равны {@code null}, если поле создано без списков.
+     */
+    final int[] first;
+    final int[] next;
+    final int[] previous;
+
+    CandidateBoard(int size, int blockRows, int blockColumns) {
+        this(FieldGeometry.of(new FieldSize(size, size), new FieldSize(blockRows, blockColumns)).getConstraints());
+    }
+
+    CandidateBoard(ConstraintModel constraints) {
+        this(constraints, false);
+    }
+
+    /**
+     * @param ordered вести ли списки клеток по числу кандидатов.
+     */
+    CandidateBoard(ConstraintModel constraints, boolean ordered) {
+        size = constraints.getSize();
+        if (size > MAX_SIZE)
+            throw new IllegalArgumentException("Поле со стороной " + size + " не поддерживается");
+        cellCount = size * size;
+        all = size == 64 ? -1L : (1L << size) - 1;
+
+        this.constraints = constraints;
+        geometry = constraints.getGeometry();
+        units = constraints.getUnits();
+        cellUnits = constraints.getCellUnits();
+        peers = constraints.getPeers();
+        cages = constraints.getCages();
+        cageSums = constraints.getCageSums();
+        cellCages = constraints.getCellCages();
+
+        values = new int[cellCount];
+        candidates = new long[cellCount];
+        cageTotals = new int[cages.length];
+        cageMissing = new int[cages.length];
+        first = ordered ? new int[size + 1] : null;
+        next = ordered ? new int[cellCount] : null;
+        previous = ordered ? new int[cellCount] : null;
+        clear();
+    }
+
+    /**
+     * Создаёт копию поля, разделяющую с {@code other} таблицы групп.
+     */
+    CandidateBoard(CandidateBoard other) {
+        size = other.size;
+        cellCount = other.cellCount;
+        all = other.all;
+        geometry = other.geometry;
+        constraints = other.constraints;
+        units = other.units;
+        cellUnits = other.cellUnits;
+        peers = other.peers;
+        cages = other.cages;
+        cageSums = other.cageSums;
+        cellCages = other.cellCages;
+        values = other.values.clone();
+        candidates = other.candidates.clone();
+        unknownCount = other.unknownCount;
+        cageTotals = other.cageTotals.clone();
+        cageMissing = other.cageMissing.clone();
+        first = other.first == null ? null : other.first.clone();
+        next = other.next == null ? null : other.next.clone();
+        previous = other.previous == null ? null : other.previous.clone();
+    }
+
+    void copyFrom(CandidateBoard other) {
+        System.arraycopy(other.values, 0, values, 0, cellCount);
+        System.arraycopy(other.candidates, 0, candidates, 0, cellCount);
+        unknownCount = other.unknownCount;
+        System.arraycopy(other.cageTotals, 0, cageTotals, 0, cageTotals.length);
+        System.arraycopy(other.cageMissing, 0, cageMissing, 0, cageMissing.length);
+        if (first != null) {
+            System.arraycopy(other.first, 0, first, 0, first.length);
+            System.arraycopy(other.next, 0, next, 0, cellCount);
+            System.arraycopy(other.previous, 0, previous, 0, cellCount);
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < cellCount; i++) {
+            values[i] = -1;
+            candidates[i] = all;
+        }
+        unknownCount = cellCount;
+        for (int cage = 0; cage < cages.length; cage++) {
+            cageTotals[cage] = 0;
+            cageMissing[cage] = cages[cage].length;
+        }
+        if (first != null) {
+            Arrays.fill(first, -1);
+            for (int i = 0; i < cellCount; i++)
+                link(i, size);
+        }
+    }
+
+    /**
+     * Заполняет поле значениями {@code cells} ({@code -1} для неизвестных клеток).
+     *
+     * @return {@code false}, если значения противоречат друг другу.
+     */
+    boolean load(int[] cells) {
+        clear();
+        for (int i = 0; i < cellCount; i++)
+            if (cells[i] >= 0 && !assign(i, cells[i]))
+                return false;
+        return true;
+    }
+
+    boolean isKnown(int cell) {
+        return values[cell] >= 0;
+    }
+
+    /**
+     * Ставит в клетку значение и убирает его из кандидатов соседей.
+     *
+     * @return {@code false}, если значение не было кандидатом, сумма клетки стала недостижимой
+     * или у кого-то из соседей не осталось кандидатов.
+     */
+    boolean assign(int cell, int value) {
+        long bit = 1L << value;
+        if (values[cell] >= 0 || (candidates[cell] & bit) == 0)
+            return false;
+        if (first != null)
+            unlink(cell, Long.bitCount(candidates[cell]));
+        values[cell] = value;
+        candidates[cell] = bit;
+        unknownCount--;
+        int cage = cellCages[cell];
+        if (cage >= 0) {
+            int total = cageTotals[cage] += value + 1;
+            int missing = --cageMissing[cage];
+            if (missing == 0 ? total != cageSums[cage] : total + missing > cageSums[cage])
+                return false;
+        }
+        for (int peer : peers[cell]) {
+            long mask = candidates[peer];
+            if ((mask & bit) != 0) {
+                if (mask == bit)
+                    return false;
+                candidates[peer] = mask & ~bit;
+                if (first != null)
+                    move(peer, Long.bitCount(mask));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Убирает из кандидатов клетки значения из маски {@code mask}.
+     *
+     * @return количество убранных кандидатов или {@code -1}, если у клетки не осталось кандидатов.
+     */
+    int eliminate(int cell, long mask) {
+        long before = candidates[cell];
+        long after = before & ~mask;
+        if (after == before)
+            return 0;
+        if (after == 0)
+            return -1;
+        candidates[cell] = after;
+        if (first != null && values[cell] < 0)
+            move(cell, Long.bitCount(before));
+        return Long.bitCount(before) - Long.bitCount(after);
+    }
+
+    /**
+     * Переносит неизвестную клетку из списка {@code count} в список, соответствующий её текущим кандидатам.
+     */
+    private void move(int cell, int count) {
+        unlink(cell, count);
+        link(cell, Long.bitCount(candidates[cell]));
+    }
+
+    private void link(int cell, int count) {
+        int head = first[count];
+        next[cell] = head;
+        previous[cell] = -1;
+        if (head >= 0)
+            previous[head] = cell;
+        first[count] = cell;
+    }
+
+    private void unlink(int cell, int count) {
+        int after = next[cell];
+        int before = previous[cell];
+        if (before >= 0)
+            next[before] = after;
+        else
+            first[count] = after;
+        if (after >= 0)
+            previous[after] = before;
+    }
+
+    boolean inUnit(int cell, int unit) {
+        for (int own : cellUnits[cell])
+            if (own == unit)
+                return true;
+        return false;
+    }
+
+    /**
+     * @return неизвестную клетку с наименьшим числом кандидатов или {@code -1}, если все клетки известны.
+     */
+    int bestCell() {
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int cell = 0; cell < cellCount && bestCount > 2; cell++) {
+            if (values[cell] >= 0)
+                continue;
+            int count = Long.bitCount(candidates[cell]);
+            if (count < bestCount) {
+                best = cell;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,72 @@
+package nastya.sudoku.ai;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Поиск с возвратом по {@link CandidateBoard}: после каждого выбора значения
+ * применяется {@link Propagator}, ветвление идёт по клетке с наименьшим числом кандидатов.<br/>
+ * При успехе решение остаётся в {@link #board}. Поиск можно запускать повторно,
+ * предварительно загрузив в поле новые значения.
+ */
+class CandidateSearch {
+
+    final CandidateBoard board;
+    final Propagator propagator;
+    private final BooleanSupplier cancelled;
+
+    /**
+     * Сохранённые состояния поля для каждого уровня поиска, создаются по мере углубления.
+     */
+    private final CandidateBoard[] saved;
+    long nodes;
+    long backtracks;
+    int maxDepth;
+
+    /**
+     * Момент по {@link System#nanoTime()}, когда было найдено последнее решение.
+     */
+    long solvedAt;
+
+    CandidateSearch(CandidateBoard board, Propagator propagator, BooleanSupplier cancelled) {
+        this.board = board;
+        this.propagator = propagator;
+        this.cancelled = cancelled;
+        saved = new CandidateBoard[board.cellCount + 1];
+    }
+
+    /**
+     * @return {@code true}, если решение найдено; {@code false}, если его нет или поиск отменён.
+     */
+    boolean solve() {
+        return solve(0);
+    }
+
+    private boolean solve(int depth) {
+        nodes++;
+        if (depth > maxDepth)
+            maxDepth = depth;
+        if (cancelled.getAsBoolean() || !propagator.propagate(board))
+            return false;
+        int cell = board.bestCell();
+        if (cell < 0) {
+            solvedAt = System.nanoTime();
+            return true;
+        }
+
+        if (saved[depth] == null)
+            saved[depth] = new CandidateBoard(board);
+        else
+            saved[depth].copyFrom(board);
+
+        long variants = board.candidates[cell];
+        while (variants != 0) {
+            int value = Long.numberOfTrailingZeros(variants);
+            variants &= variants - 1;
+            if (board.assign(cell, value) && solve(depth + 1))
+                return true;
+            backtracks++;
+            board.copyFrom(saved[depth]);
+        }
+        return false;
+    }
+}
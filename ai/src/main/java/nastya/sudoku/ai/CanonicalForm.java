@@ -0,0 +1,56 @@
+package nastya.sudoku.ai;
+
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.commons.GameField;
+
+/**
+ * Каноническая форма поля: наименьшее поле среди всех полей, получаемых из данного
+ * перестановками строк и столбцов в пределах полос и стеков блоков, перестановками самих полос и стеков,
+ * транспонированием (для квадратных блоков) и перенумерацией значений.<br/>
+ * Поля, переходящие друг в друга такими преобразованиями, имеют одинаковую каноническую форму,
+ * поэтому решение одного из них даёт решения всех остальных.<br/>
+ * Для полей, у которых порядков столбцов больше {@link Canonicalizer#MAX_COLUMN_ORDERS}
+ * (например, 16x16 и больше), учитывается только перенумерация значений.<br/>
+ * Формы сравниваются по размерам и клеткам, преобразование в сравнении не участвует.
+ */
+@Value
+@EqualsAndHashCode(exclude = "transform")
+public class CanonicalForm {
+
+    private static final ThreadLocal<Canonicalizer> CANONICALIZERS = new ThreadLocal<>();
+
+    FieldSize fieldSize;
+    FieldSize blockSize;
+
+    /**
+     * Значения клеток канонического поля построчно, {@code -1} для неизвестных.
+     */
+    int[] cells;
+
+    /**
+     * Преобразование, переводящее исходное поле в каноническое.
+     */
+    GridTransform transform;
+
+    public static CanonicalForm of(GameField gameField) {
+        return of(gameField.getFieldSize(), gameField.getBlockSize(), GameFields.toArray(gameField));
+    }
+
+    /**
+     * @param cells значения клеток построчно, {@code -1} для неизвестных.
+     */
+    public static CanonicalForm of(FieldSize fieldSize, FieldSize blockSize, int[] cells) {
+        int size = fieldSize.getRowCount();
+        int blockRows = blockSize.getRowCount();
+        int blockColumns = blockSize.getColumnCount();
+        Canonicalizer canonicalizer = CANONICALIZERS.get();
+        if (canonicalizer == null || !canonicalizer.fits(size, blockRows, blockColumns)) {
+            canonicalizer = new Canonicalizer(size, blockRows, blockColumns);
+            CANONICALIZERS.set(canonicalizer);
+        }
+        GridTransform transform = canonicalizer.canonicalize(cells);
+        return new CanonicalForm(fieldSize, blockSize, transform.apply(cells), transform);
+    }
+}
@@ -0,0 +1,383 @@
+package nastya.sudoku.ai;
+
+import java.util.Arrays;
+
+/**
+ * Поиск лексикографически наименьшего поля среди всех полей, получаемых из данного
+ * преобразованиями {@link GridTransform}.<br/>
+ * Неизвестная клетка считается меньше любого значения, значения перенумеровываются
+ * в порядке первого появления. Перебираются порядки столбцов, дающие наименьшую первую строку,
+ * а остальные строки расставляются поиском с отсечением по уже найденному лучшему полю.<br/>
+ * Если порядков столбцов больше {@link #MAX_COLUMN_ORDERS}, поле только перенумеровывается.<br/>
+ * Объект не потокобезопасен.
+ */
+class Canonicalizer {
+
+    static final int MAX_COLUMN_ORDERS = 1 << 14;
+
+    final int size;
+    final int blockRows;
+    final int blockColumns;
+    private final int orientations;
+    /**
+     * Порядки столбцов, сгруппированные по порядку стеков: у каждого порядка стеков
+     * {@link #ordersPerStackOrder} подряд идущих порядков столбцов.
+     */
+    private final int[][] columnOrders;
+    private final int ordersPerStackOrder;
+
+    /**
+     * Поле после транспонирования и текущий порядок его столбцов.
+     */
+    private final int[] grid;
+    private int[] columns;
+    private final int[] current;
+    private final int[] best;
+    private boolean found;
+    private long improvements;
+
+    private final int[] rowOrder;
+    private final boolean[] usedRows;
+    private final boolean[] usedBands;
+    private final int[] emptyCounts;
+    private final int[] labels;
+    private int nextLabel;
+    private final int[] labelled;
+    private int labelledCount;
+
+    private boolean bestTransposed;
+    private int bestColumnOrder;
+    private final int[] bestRowOrder;
+    private final int[] bestLabels;
+
+    Canonicalizer(int size, int blockRows, int blockColumns) {
+        this.size = size;
+        this.blockRows = blockRows;
+        this.blockColumns = blockColumns;
+        orientations = blockRows == blockColumns ? 2 : 1;
+        columnOrders = columnOrders(size, blockColumns);
+        ordersPerStackOrder = columnOrders == null ? 0 : columnOrders.length / (int) factorial(size / blockColumns);
+
+        grid = new int[size * size];
+        current = new int[size * size];
+        best = new int[size * size];
+        rowOrder = new int[size];
+        usedRows = new boolean[size];
+        usedBands = new boolean[size / blockRows];
+        emptyCounts = new int[size / blockColumns];
+        labels = new int[size];
+        labelled = new int[size];
+        bestRowOrder = new int[size];
+        bestLabels = new int[size];
+    }
+
+    boolean fits(int size, int blockRows, int blockColumns) {
+        return this.size == size && this.blockRows == blockRows && this.blockColumns == blockColumns;
+    }
+
+    /**
+     * @param cells значения клеток построчно, {@code -1} для неизвестных.
+     * @return преобразование, переводящее поле в каноническое.
+     */
+    GridTransform canonicalize(int[] cells) {
+        found = false;
+        if (columnOrders == null) {
+            int[] identity = identity(size);
+            resetLabels();
+            for (int value : cells)
+                if (value >= 0)
+                    label(value);
+            return transform(false, identity, identity);
+        }
+
+        long smallest = Long.MAX_VALUE;
+        for (int orientation = 0; orientation < orientations; orientation++) {
+            load(cells, orientation == 1);
+            for (int row = 0; row < size; row++)
+                smallest = Math.min(smallest, smallestMask(row));
+        }
+
+        for (int orientation = 0; orientation < orientations; orientation++) {
+            boolean transposed = orientation == 1;
+            load(cells, transposed);
+            for (int first = 0; first < size; first++) {
+                if (smallestMask(first) != smallest)
+                    continue;
+                int band = first / blockRows;
+                usedRows[first] = true;
+                usedBands[band] = true;
+                rowOrder[0] = first;
+                for (int from = 0; from < columnOrders.length; from += ordersPerStackOrder) {
+                    if (!isEmptyDescending(first, columnOrders[from]))
+                        continue;
+                    for (int order = from; order < from + ordersPerStackOrder; order++) {
+                        columns = columnOrders[order];
+                        if (mask(first) != smallest)
+                            continue;
+                        resetLabels();
+                        long before = improvements;
+                        placeRow(1, emitRow(0, first, !found) < 0);
+                        if (improvements != before) {
+                            bestTransposed = transposed;
+                            bestColumnOrder = order;
+                        }
+                    }
+                }
+                usedRows[first] = false;
+                usedBands[band] = false;
+            }
+        }
+        return transform(bestTransposed, bestRowOrder, columnOrders[bestColumnOrder]);
+    }
+
+    /**
+     * Ставит строку на место {@code position} канонического поля.
+     *
+     * @param less префикс уже меньше лучшего найденного поля.
+     */
+    private void placeRow(int position, boolean less) {
+        if (position == size) {
+            if (less) {
+                System.arraycopy(current, 0, best, 0, best.length);
+                System.arraycopy(rowOrder, 0, bestRowOrder, 0, size);
+                System.arraycopy(labels, 0, bestLabels, 0, size);
+                found = true;
+                improvements++;
+            }
+            return;
+        }
+
+        boolean bandStart = position % blockRows == 0;
+        int band = bandStart ? 0 : rowOrder[position - 1] / blockRows;
+        int lastBand = bandStart ? usedBands.length - 1 : band;
+        for (; band <= lastBand; band++) {
+            if (bandStart && usedBands[band])
+                continue;
+            for (int row = band * blockRows; row < (band + 1) * blockRows; row++) {
+                if (usedRows[row])
+                    continue;
+                int mark = labelledCount;
+                int comparison = emitRow(position, row, less);
+                if (comparison <= 0) {
+                    usedRows[row] = true;
+                    usedBands[band] = true;
+                    rowOrder[position] = row;
+                    long before = improvements;
+                    placeRow(position + 1, comparison < 0);
+                    usedRows[row] = false;
+                    if (bandStart)
+                        usedBands[band] = false;
+                    if (improvements != before)
+                        less = false;
+                }
+                unlabel(mark);
+            }
+        }
+    }
+
+    /**
+     * Первая строка канонического поля зависит только от того, какие её клетки известны:
+     * значения в ней всегда перенумерованы по порядку. Поэтому первая строка сравнивается по маске
+     * известных клеток, где первый столбец — старший бит.
+     *
+     * @return маска известных клеток строки {@code row} при текущем порядке столбцов.
+     */
+    private long mask(int row) {
+        long mask = 0;
+        int start = row * size;
+        for (int column = 0; column < size; column++)
+            if (grid[start + columns[column]] >= 0)
+                mask |= 1L << (size - 1 - column);
+        return mask;
+    }
+
+    /**
+     * @return наименьшая по всем порядкам столбцов маска {@link #mask(int)} строки {@code row}:
+     * стеки идут по убыванию количества неизвестных клеток, а в каждом стеке неизвестные клетки идут первыми.
+     */
+    private long smallestMask(int row) {
+        int stacks = size / blockColumns;
+        for (int stack = 0; stack < stacks; stack++) {
+            int empty = 0;
+            for (int column = stack * blockColumns; column < (stack + 1) * blockColumns; column++)
+                if (grid[row * size + column] < 0)
+                    empty++;
+            emptyCounts[stack] = empty;
+        }
+        Arrays.sort(emptyCounts);
+        long mask = 0;
+        int column = 0;
+        for (int stack = stacks - 1; stack >= 0; stack--) {
+            column += emptyCounts[stack];
+            for (int filled = emptyCounts[stack]; filled < blockColumns; filled++, column++)
+                mask |= 1L << (size - 1 - column);
+        }
+        return mask;
+    }
+
+    /**
+     * @return идут ли стеки в порядке {@code order} по невозрастанию количества неизвестных клеток строки {@code row};
+     * иначе маска строки не может быть наименьшей.
+     */
+    private boolean isEmptyDescending(int row, int[] order) {
+        int previous = blockColumns;
+        for (int position = 0; position < size; position += blockColumns) {
+            int stackStart = order[position] - order[position] % blockColumns;
+            int empty = 0;
+            for (int column = stackStart; column < stackStart + blockColumns; column++)
+                if (grid[row * size + column] < 0)
+                    empty++;
+            if (empty > previous)
+                return false;
+            previous = empty;
+        }
+        return true;
+    }
+
+    /**
+     * Записывает строку {@code row} на место {@code position} и сравнивает префикс с лучшим полем.
+     *
+     * @return отрицательное число, если префикс меньше, {@code 0}, если равен, и положительное, если больше;
+     * в последнем случае строка записана не до конца.
+     */
+    private int emitRow(int position, int row, boolean less) {
+        int offset = position * size;
+        int start = row * size;
+        for (int column = 0; column < size; column++) {
+            int value = grid[start + columns[column]];
+            int label = value < 0 ? 0 : label(value) + 1;
+            current[offset + column] = label;
+            if (!less) {
+                int difference = label - best[offset + column];
+                if (difference > 0)
+                    return 1;
+                if (difference < 0)
+                    less = true;
+            }
+        }
+        return less ? -1 : 0;
+    }
+
+    private int label(int value) {
+        if (labels[value] < 0) {
+            labels[value] = nextLabel++;
+            labelled[labelledCount++] = value;
+        }
+        return labels[value];
+    }
+
+    private void unlabel(int mark) {
+        while (labelledCount > mark) {
+            labels[labelled[--labelledCount]] = -1;
+            nextLabel--;
+        }
+    }
+
+    private void resetLabels() {
+        for (int value = 0; value < size; value++)
+            labels[value] = -1;
+        nextLabel = 0;
+        labelledCount = 0;
+    }
+
+    private void load(int[] cells, boolean transposed) {
+        for (int row = 0; row < size; row++)
+            for (int column = 0; column < size; column++)
+                grid[row * size + column] = transposed ? cells[column * size + row] : cells[row * size + column];
+    }
+
+    /**
+     * Дополняет лучшую перенумерацию значениями, которых нет на поле, и создаёт преобразование.
+     */
+    private GridTransform transform(boolean transposed, int[] rows, int[] columns) {
+        int[] source = columnOrders == null ? labels : bestLabels;
+        int[] complete = source.clone();
+        int next = 0;
+        for (int value = 0; value < size; value++)
+            if (complete[value] >= 0)
+                next++;
+        for (int value = 0; value < size; value++)
+            if (complete[value] < 0)
+                complete[value] = next++;
+        return new GridTransform(size, transposed, rows.clone(), columns.clone(), complete);
+    }
+
+    /**
+     * @return все порядки столбцов, переставляющие стеки блоков и столбцы внутри стеков,
+     * или {@code null}, если их больше {@link #MAX_COLUMN_ORDERS}.
+     */
+    private static int[][] columnOrders(int size, int blockColumns) {
+        int stacks = size / blockColumns;
+        long count = factorial(stacks);
+        for (int stack = 0; stack < stacks && count <= MAX_COLUMN_ORDERS; stack++)
+            count *= factorial(blockColumns);
+        if (count > MAX_COLUMN_ORDERS)
+            return null;
+
+        int[][] stackOrders = permutations(stacks);
+        int[][] inner = permutations(blockColumns);
+        int[][] orders = new int[(int) count][];
+        int[] choice = new int[stacks];
+        int filled = 0;
+        for (int[] stackOrder : stackOrders) {
+            Arrays.fill(choice, 0);
+            while (true) {
+                int[] order = new int[size];
+                for (int stack = 0; stack < stacks; stack++)
+                    for (int column = 0; column < blockColumns; column++)
+                        order[stack * blockColumns + column] = stackOrder[stack] * blockColumns + inner[choice[stack]][column];
+                orders[filled++] = order;
+
+                int digit = stacks - 1;
+                while (digit >= 0 && ++choice[digit] == inner.length)
+                    choice[digit--] = 0;
+                if (digit < 0)
+                    break;
+            }
+        }
+        return orders;
+    }
+
+    private static int[][] permutations(int n) {
+        int[][] result = new int[(int) factorial(n)][];
+        int[] current = identity(n);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = current.clone();
+            nextPermutation(current);
+        }
+        return result;
+    }
+
+    private static void nextPermutation(int[] a) {
+        int i = a.length - 2;
+        while (i >= 0 && a[i] >= a[i + 1])
+            i--;
+        if (i < 0)
+            return;
+        int j = a.length - 1;
+        while (a[j] <= a[i])
+            j--;
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+        for (int l = i + 1, r = a.length - 1; l < r; l++, r--) {
+            t = a[l];
+            a[l] = a[r];
+            a[r] = t;
+        }
+    }
+
+    private static long factorial(int n) {
+        long result = 1;
+        for (int i = 2; i <= n && result <= MAX_COLUMN_ORDERS; i++)
+            result *= i;
+        return result;
+    }
+
+    private static int[] identity(int n) {
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++)
+            result[i] = i;
+        return result;
+    }
+}
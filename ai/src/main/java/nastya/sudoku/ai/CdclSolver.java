@@ -0,0 +1,609 @@
+package nastya.sudoku.ai;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Решатель задачи выполнимости булевых формул в КНФ с обучением на конфликтах (CDCL).<br/>
+ * Литералы задаются как в DIMACS: переменные нумеруются с единицы, отрицание — знак минус.
+ * Внутри литерал {@code x} хранится как {@code 2 * (|x| - 1) + (x < 0 ? 1 : 0)}.<br/>
+ * Используются два наблюдаемых литерала в каждом дизъюнкте (с литералом-блокировщиком в списках наблюдения),
+ * выучивание дизъюнкта по первой точке доминирования с рекурсивным упрощением, выбор переменной по активности (VSIDS)
+ * с сохранением знака, перезапуски по последовательности Луби и удаление половины выученных дизъюнктов
+ * с наибольшим LBD. Все дизъюнкты лежат подряд в одном массиве, во время поиска объекты не создаются.<br/>
+ * Объект одноразовый: после {@link #solve} дизъюнкты добавлять нельзя.
+ */
+class CdclSolver {
+
+    private static final int TRUE = 1;
+    private static final int FALSE = -1;
+    private static final int NO_REASON = -1;
+
+    /**
+     * Заголовок дизъюнкта в {@link #arena}: длина и LBD (ноль у исходных дизъюнктов).
+     */
+    private static final int HEADER = 2;
+    private static final int RESTART_BASE = 100;
+    private static final double DECAY = 0.95;
+
+    private final int variableCount;
+
+    private int[] arena = new int[1 << 16];
+    private int arenaSize;
+    private int[] clauses = new int[1024];
+    private int clauseCount;
+    private int[] learnts = new int[1024];
+    private int learntCount;
+    private int maxLearnts;
+
+    /**
+     * Пары (дизъюнкт, блокировщик) дизъюнктов, наблюдающих литерал; просматриваются, когда литерал становится ложным.
+     */
+    private final int[][] watches;
+    private final int[] watchSizes;
+
+    /**
+     * Значение каждого литерала: {@link #TRUE}, {@link #FALSE} или {@code 0}.
+     */
+    private final byte[] values;
+    private final int[] levels;
+    private final int[] reasons;
+
+    /**
+     * Знак, с которым переменная выбирается в следующий раз: {@code 1} — отрицание. Запоминается последний знак,
+     * а вначале выбирается "истина": в кодировке поля "значение стоит в клетке" сразу убирает его у соседей,
+     * а "значения нет в клетке" почти ничего не даёт.
+     */
+    private final byte[] phases;
+    private final int[] trail;
+    private int trailSize;
+    private int propagated;
+    private int[] levelStarts = new int[64];
+    private int level;
+    private boolean contradiction;
+
+    private final double[] activity;
+    private double increment = 1;
+    private final int[] heap;
+    private final int[] heapIndex;
+    private int heapSize;
+
+    private final boolean[] seen;
+    private final int[] learnt;
+    private final int[] stack;
+    private final int[] cleared;
+    private int clearedCount;
+    private final int[] levelStamps;
+    private int stamp;
+
+    private long decisions;
+    private long conflicts;
+    private long propagations;
+    private long restarts;
+    private int maxLevel;
+
+    CdclSolver(int variableCount) {
+        this.variableCount = variableCount;
+        int literals = 2 * variableCount;
+        watches = new int[literals][];
+        watchSizes = new int[literals];
+        values = new byte[literals];
+        levels = new int[variableCount];
+        reasons = new int[variableCount];
+        phases = new byte[variableCount];
+        trail = new int[variableCount];
+        activity = new double[variableCount];
+        heap = new int[variableCount];
+        heapIndex = new int[variableCount];
+        seen = new boolean[variableCount];
+        learnt = new int[variableCount + 1];
+        stack = new int[variableCount];
+        cleared = new int[variableCount];
+        levelStamps = new int[variableCount + 1];
+        Arrays.fill(reasons, NO_REASON);
+        for (int v = 0; v < variableCount; v++) {
+            heap[v] = v;
+            heapIndex[v] = v;
+        }
+        heapSize = variableCount;
+    }
+
+    /**
+     * Добавляет дизъюнкт из литералов в формате DIMACS. Повторы литералов убираются, тавтологии пропускаются.
+     * Вызывается только до {@link #solve}.
+     */
+    void addClause(int[] literals, int from, int to) {
+        if (contradiction)
+            return;
+        int start = arenaSize + HEADER;
+        ensureArena(start + to - from);
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            int dimacs = literals[i];
+            if (dimacs == 0 || Math.abs(dimacs) > variableCount)
+                throw new IllegalArgumentException("Неверный литерал " + dimacs);
+            int lit = 2 * (Math.abs(dimacs) - 1) + (dimacs < 0 ? 1 : 0);
+            if (values[lit] == TRUE)
+                return;
+            if (values[lit] == FALSE)
+                continue;
+            boolean duplicate = false;
+            for (int k = 0; k < size; k++) {
+                int other = arena[start + k];
+                if (other == (lit ^ 1))
+                    return;
+                duplicate |= other == lit;
+            }
+            if (!duplicate)
+                arena[start + size++] = lit;
+        }
+        if (size == 0) {
+            contradiction = true;
+        } else if (size == 1) {
+            assign(arena[start], NO_REASON);
+            contradiction = propagate() != NO_REASON;
+        } else {
+            clauses = append(clauses, clauseCount++, attach(size, 0));
+        }
+    }
+
+    /**
+     * @param cancelled проверяется время от времени; если вернул {@code true}, поиск прекращается.
+     * @return {@code true}, если формула выполнима и найден набор значений, см. {@link #value};
+     * {@code false}, если формула невыполнима или поиск отменён.
+     */
+    boolean solve(BooleanSupplier cancelled) {
+        if (contradiction || propagate() != NO_REASON)
+            return false;
+        maxLearnts = Math.max(clauseCount / 3, 10_000);
+        int run = 1;
+        long limit = RESTART_BASE * HeuristicSearch.luby(run);
+        long runConflicts = 0;
+        while (true) {
+            int conflict = propagate();
+            if (conflict != NO_REASON) {
+                conflicts++;
+                runConflicts++;
+                if (level == 0)
+                    return false;
+                learn(conflict);
+                if ((conflicts & 255) == 0 && cancelled.getAsBoolean())
+                    return false;
+                continue;
+            }
+
+            if (runConflicts >= limit) {
+                restarts++;
+                backtrack(0);
+                limit = RESTART_BASE * HeuristicSearch.luby(++run);
+                runConflicts = 0;
+                if (learntCount >= maxLearnts) {
+                    reduce();
+                    maxLearnts += maxLearnts / 10;
+                }
+                continue;
+            }
+
+            int variable = nextVariable();
+            if (variable < 0)
+                return true;
+            decisions++;
+            if ((decisions & 1023) == 0 && cancelled.getAsBoolean())
+                return false;
+            levelStarts = append(levelStarts, level++, trailSize);
+            maxLevel = Math.max(maxLevel, level);
+            assign(2 * variable + phases[variable], NO_REASON);
+        }
+    }
+
+    /**
+     * @param variable номер переменной, начиная с единицы.
+     * @return значение переменной в найденном наборе.
+     */
+    boolean value(int variable) {
+        return values[2 * (variable - 1)] == TRUE;
+    }
+
+    long getDecisions() {
+        return decisions;
+    }
+
+    long getConflicts() {
+        return conflicts;
+    }
+
+    long getPropagations() {
+        return propagations;
+    }
+
+    long getRestarts() {
+        return restarts;
+    }
+
+    int getMaxLevel() {
+        return maxLevel;
+    }
+
+    private void assign(int lit, int reason) {
+        values[lit] = TRUE;
+        values[lit ^ 1] = FALSE;
+        int variable = lit >> 1;
+        levels[variable] = level;
+        reasons[variable] = reason;
+        trail[trailSize++] = lit;
+    }
+
+    /**
+     * @return дизъюнкт, все литералы которого ложны, или {@link #NO_REASON}.
+     */
+    private int propagate() {
+        while (propagated < trailSize) {
+            int falseLit = trail[propagated++] ^ 1;
+            propagations++;
+            int[] list = watches[falseLit];
+            int size = watchSizes[falseLit];
+            int i = 0;
+            int j = 0;
+            while (i < size) {
+                int clause = list[i];
+                int blocker = list[i + 1];
+                i += 2;
+                if (values[blocker] == TRUE) {
+                    list[j++] = clause;
+                    list[j++] = blocker;
+                    continue;
+                }
+                int start = clause + HEADER;
+                if (arena[start] == falseLit) {
+                    arena[start] = arena[start + 1];
+                    arena[start + 1] = falseLit;
+                }
+                int first = arena[start];
+                if (first != blocker && values[first] == TRUE) {
+                    list[j++] = clause;
+                    list[j++] = first;
+                    continue;
+                }
+
+                int length = arena[clause];
+                boolean moved = false;
+                for (int k = 2; k < length; k++) {
+                    int lit = arena[start + k];
+                    if (values[lit] != FALSE) {
+                        arena[start + 1] = lit;
+                        arena[start + k] = falseLit;
+                        watch(lit, clause, first);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved)
+                    continue;
+
+                list[j++] = clause;
+                list[j++] = first;
+                if (values[first] == FALSE) {
+                    while (i < size)
+                        list[j++] = list[i++];
+                    watchSizes[falseLit] = j;
+                    propagated = trailSize;
+                    return clause;
+                }
+                assign(first, clause);
+            }
+            watchSizes[falseLit] = j;
+        }
+        return NO_REASON;
+    }
+
+    /**
+     * Выводит из конфликта дизъюнкт по первой точке доминирования, возвращается к уровню,
+     * на котором он становится единичным, и ставит его первый литерал.
+     */
+    private void learn(int conflict) {
+        int count = 1;
+        int pending = 0;
+        int lit = -1;
+        int index = trailSize - 1;
+        int clause = conflict;
+        do {
+            int start = clause + HEADER;
+            int length = arena[clause];
+            for (int k = lit < 0 ? 0 : 1; k < length; k++) {
+                int other = arena[start + k];
+                int variable = other >> 1;
+                if (seen[variable] || levels[variable] == 0)
+                    continue;
+                seen[variable] = true;
+                bump(variable);
+                if (levels[variable] == level)
+                    pending++;
+                else
+                    learnt[count++] = other;
+            }
+            while (!seen[trail[index] >> 1])
+                index--;
+            lit = trail[index--];
+            clause = reasons[lit >> 1];
+            seen[lit >> 1] = false;
+            pending--;
+        } while (pending > 0);
+        learnt[0] = lit ^ 1;
+
+        clearedCount = 0;
+        int levelsMask = 0;
+        for (int i = 1; i < count; i++) {
+            int variable = learnt[i] >> 1;
+            cleared[clearedCount++] = variable;
+            levelsMask |= 1 << (levels[variable] & 31);
+        }
+        int kept = 1;
+        for (int i = 1; i < count; i++) {
+            int variable = learnt[i] >> 1;
+            if (reasons[variable] == NO_REASON || !redundant(variable, levelsMask))
+                learnt[kept++] = learnt[i];
+        }
+        for (int i = 0; i < clearedCount; i++)
+            seen[cleared[i]] = false;
+        count = kept;
+
+        int backtrackLevel = 0;
+        for (int i = 1; i < count; i++) {
+            int variableLevel = levels[learnt[i] >> 1];
+            if (variableLevel > backtrackLevel) {
+                backtrackLevel = variableLevel;
+                int t = learnt[1];
+                learnt[1] = learnt[i];
+                learnt[i] = t;
+            }
+        }
+        backtrack(backtrackLevel);
+        if (count == 1) {
+            assign(learnt[0], NO_REASON);
+        } else {
+            int start = arenaSize + HEADER;
+            ensureArena(start + count);
+            System.arraycopy(learnt, 0, arena, start, count);
+            int added = attach(count, lbd(count));
+            learnts = append(learnts, learntCount++, added);
+            assign(learnt[0], added);
+        }
+        increment /= DECAY;
+    }
+
+    /**
+     * Проверяет, что литерал переменной следует из остальных литералов выученного дизъюнкта: все пути
+     * по причинам назад приходят в отмеченные переменные или на нулевой уровень. Переменные, для которых
+     * это доказано, отмечаются, чтобы не проверять их снова.
+     *
+     * @param levelsMask по биту на каждый уровень литералов дизъюнкта (по модулю 32): переменная с другого
+     *                   уровня заведомо не следует из дизъюнкта, и проверку можно сразу прекратить.
+     */
+    private boolean redundant(int variable, int levelsMask) {
+        int top = clearedCount;
+        int size = 0;
+        stack[size++] = variable;
+        while (size > 0) {
+            int reason = reasons[stack[--size]];
+            int start = reason + HEADER;
+            for (int k = 1; k < arena[reason]; k++) {
+                int other = arena[start + k] >> 1;
+                if (seen[other] || levels[other] == 0)
+                    continue;
+                if (reasons[other] == NO_REASON || (levelsMask & 1 << (levels[other] & 31)) == 0) {
+                    for (int i = top; i < clearedCount; i++)
+                        seen[cleared[i]] = false;
+                    clearedCount = top;
+                    return false;
+                }
+                seen[other] = true;
+                stack[size++] = other;
+                cleared[clearedCount++] = other;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return количество разных уровней среди литералов выученного дизъюнкта.
+     */
+    private int lbd(int count) {
+        stamp++;
+        int result = 0;
+        for (int i = 0; i < count; i++) {
+            int variableLevel = levels[learnt[i] >> 1];
+            if (levelStamps[variableLevel] != stamp) {
+                levelStamps[variableLevel] = stamp;
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private void backtrack(int target) {
+        if (level <= target)
+            return;
+        int from = levelStarts[target];
+        for (int i = trailSize - 1; i >= from; i--) {
+            int lit = trail[i];
+            int variable = lit >> 1;
+            values[lit] = 0;
+            values[lit ^ 1] = 0;
+            reasons[variable] = NO_REASON;
+            phases[variable] = (byte) (lit & 1);
+            if (heapIndex[variable] < 0)
+                heapInsert(variable);
+        }
+        trailSize = from;
+        propagated = from;
+        level = target;
+    }
+
+    private int nextVariable() {
+        while (heapSize > 0) {
+            int variable = heapRemoveMax();
+            if (values[2 * variable] == 0)
+                return variable;
+        }
+        return -1;
+    }
+
+    /**
+     * Удаляет половину выученных дизъюнктов с наибольшим LBD (кроме дизъюнктов с LBD не больше двух)
+     * и уплотняет массив дизъюнктов. Вызывается на нулевом уровне, поэтому заодно убираются дизъюнкты,
+     * выполненные на нём, и ложные на нём литералы, а причины назначений больше не нужны.
+     */
+    private void reduce() {
+        long[] order = new long[learntCount];
+        for (int i = 0; i < learntCount; i++)
+            order[i] = (long) arena[learnts[i] + 1] << 32 | i;
+        Arrays.sort(order);
+        boolean[] removed = new boolean[learntCount];
+        for (int i = learntCount / 2; i < learntCount; i++) {
+            int index = (int) order[i];
+            if (arena[learnts[index] + 1] > 2)
+                removed[index] = true;
+        }
+
+        int[] old = arena;
+        arena = new int[old.length];
+        arenaSize = 0;
+        Arrays.fill(watchSizes, 0);
+        Arrays.fill(reasons, NO_REASON);
+        int kept = 0;
+        for (int i = 0; i < clauseCount; i++) {
+            int clause = copy(old, clauses[i]);
+            if (clause >= 0)
+                clauses[kept++] = clause;
+        }
+        clauseCount = kept;
+        kept = 0;
+        for (int i = 0; i < learntCount; i++) {
+            if (removed[i])
+                continue;
+            int clause = copy(old, learnts[i]);
+            if (clause >= 0)
+                learnts[kept++] = clause;
+        }
+        learntCount = kept;
+    }
+
+    /**
+     * Переносит дизъюнкт из старого массива без ложных на нулевом уровне литералов.
+     *
+     * @return новое место дизъюнкта или {@code -1}, если он выполнен.
+     */
+    private int copy(int[] old, int clause) {
+        int start = arenaSize + HEADER;
+        int size = 0;
+        for (int k = 0; k < old[clause]; k++) {
+            int lit = old[clause + HEADER + k];
+            if (values[lit] == TRUE)
+                return -1;
+            if (values[lit] == 0)
+                arena[start + size++] = lit;
+        }
+        return attach(size, old[clause + 1]);
+    }
+
+    /**
+     * Записывает заголовок дизъюнкта, литералы которого уже лежат после {@link #arenaSize},
+     * и начинает наблюдать первые два литерала.
+     */
+    private int attach(int size, int lbd) {
+        int clause = arenaSize;
+        arena[clause] = size;
+        arena[clause + 1] = lbd;
+        arenaSize += HEADER + size;
+        watch(arena[clause + HEADER], clause, arena[clause + HEADER + 1]);
+        watch(arena[clause + HEADER + 1], clause, arena[clause + HEADER]);
+        return clause;
+    }
+
+    private void watch(int lit, int clause, int blocker) {
+        int[] list = watches[lit];
+        int size = watchSizes[lit];
+        if (list == null) {
+            list = new int[8];
+            watches[lit] = list;
+        } else if (size + 2 > list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+            watches[lit] = list;
+        }
+        list[size] = clause;
+        list[size + 1] = blocker;
+        watchSizes[lit] = size + 2;
+    }
+
+    private void ensureArena(int capacity) {
+        if (capacity > arena.length)
+            arena = Arrays.copyOf(arena, Math.max(capacity, arena.length * 2));
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length)
+            array = Arrays.copyOf(array, array.length * 2);
+        array[index] = value;
+        return array;
+    }
+
+    private void bump(int variable) {
+        if ((activity[variable] += increment) > 1e100) {
+            for (int v = 0; v < variableCount; v++)
+                activity[v] *= 1e-100;
+            increment *= 1e-100;
+        }
+        if (heapIndex[variable] >= 0)
+            siftUp(heapIndex[variable]);
+    }
+
+    private void heapInsert(int variable) {
+        heap[heapSize] = variable;
+        heapIndex[variable] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int heapRemoveMax() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        int last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int variable = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (activity[heap[parent]] >= activity[variable])
+                break;
+            heap[i] = heap[parent];
+            heapIndex[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = variable;
+        heapIndex[variable] = i;
+    }
+
+    private void siftDown(int i) {
+        int variable = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize)
+                break;
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]])
+                child++;
+            if (activity[heap[child]] <= activity[variable])
+                break;
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = variable;
+        heapIndex[variable] = i;
+    }
+}
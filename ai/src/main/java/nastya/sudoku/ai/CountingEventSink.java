@@ -0,0 +1,39 @@
+package nastya.sudoku.ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Не хранит события, а только считает их по видам и запоминает текущую и наибольшую глубину.<br/>
+ * Рассчитан на одного пишущего; читать счётчики можно из любого потока.
+ */
+public class CountingEventSink implements SolverEventSink {
+
+    private static final int DEPTH_INDEX = SolverEvent.values().length;
+    private static final int MAX_DEPTH_INDEX = DEPTH_INDEX + 1;
+
+    private final AtomicLongArray counters = new AtomicLongArray(MAX_DEPTH_INDEX + 1);
+
+    @Override
+    public void accept(SolverEvent event, int cell, int value, int depth) {
+        int index = event.ordinal();
+        counters.lazySet(index, counters.get(index) + 1);
+        counters.lazySet(DEPTH_INDEX, depth);
+        if (depth > counters.get(MAX_DEPTH_INDEX))
+            counters.lazySet(MAX_DEPTH_INDEX, depth);
+    }
+
+    public long getCount(SolverEvent event) {
+        return counters.get(event.ordinal());
+    }
+
+    /**
+     * @return глубина последнего события.
+     */
+    public long getDepth() {
+        return counters.get(DEPTH_INDEX);
+    }
+
+    public long getMaxDepth() {
+        return counters.get(MAX_DEPTH_INDEX);
+    }
+}
@@ -0,0 +1,274 @@
+package nastya.sudoku.ai;
+
+/**
+ * Матрица точного покрытия для судоку, на которой работает Algorithm X Кнута ("танцующие ссылки").<br/>
+ * Все узлы хранятся в плоских массивах, поэтому во время поиска не создаётся ни одного объекта.<br/>
+ * Ограничения: в каждой клетке одно значение, каждое значение по одному разу в строке, столбце и блоке.
+ * Уже известные клетки в матрицу не попадают, как и ограничения, которые они закрывают.<br/>
+ * Объект одноразовый: после {@link #search(int)} матрица остаётся в промежуточном состоянии.
+ */
+class DancingLinks {
+
+    private static final int HEAD = 0;
+
+    private final int[] cells;
+
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    private final int[] column;
+    private final int[] row;
+    private final int[] columnSize;
+
+    private final int[] rowCell;
+    private final int[] rowValue;
+
+    private final int[] chosen;
+    private int[] solution;
+    private long nodes;
+    private long backtracks;
+    private int maxDepth;
+    private long solvedAt;
+
+    /**
+     * @param size         длина стороны поля (и количество значений).
+     * @param blockRows    высота блока.
+     * @param blockColumns ширина блока.
+     * @param cells        значения клеток построчно, {@code -1} для неизвестных.
+     */
+    DancingLinks(int size, int blockRows, int blockColumns, int[] cells) {
+        this.cells = cells;
+        int cellCount = size * size;
+        int blocksInRow = size / blockColumns;
+
+        boolean[] used = new boolean[4 * cellCount];
+        int unknown = 0;
+        for (int i = 0; i < cellCount; i++) {
+            int value = cells[i];
+            if (value < 0) {
+                unknown++;
+                continue;
+            }
+            int r = i / size, c = i % size;
+            int b = r / blockRows * blocksInRow + c / blockColumns;
+            used[i] = true;
+            used[cellCount + r * size + value] = true;
+            used[2 * cellCount + c * size + value] = true;
+            used[3 * cellCount + b * size + value] = true;
+        }
+
+        int[] header = new int[4 * cellCount];
+        int columnCount = 0;
+        for (int i = 0; i < header.length; i++)
+            header[i] = used[i] ? -1 : ++columnCount;
+
+        int rowCount = 0;
+        for (int i = 0; i < cellCount; i++) {
+            if (cells[i] >= 0)
+                continue;
+            int r = i / size, c = i % size;
+            int b = r / blockRows * blocksInRow + c / blockColumns;
+            for (int x = 0; x < size; x++)
+                if (header[cellCount + r * size + x] > 0
+                        && header[2 * cellCount + c * size + x] > 0
+                        && header[3 * cellCount + b * size + x] > 0)
+                    rowCount++;
+        }
+
+        int nodeCount = 1 + columnCount + 4 * rowCount;
+        left = new int[nodeCount];
+        right = new int[nodeCount];
+        up = new int[nodeCount];
+        down = new int[nodeCount];
+        column = new int[nodeCount];
+        row = new int[nodeCount];
+        columnSize = new int[columnCount + 1];
+        rowCell = new int[rowCount];
+        rowValue = new int[rowCount];
+        chosen = new int[unknown];
+
+        for (int h = 0; h <= columnCount; h++) {
+            left[h] = h == 0 ? columnCount : h - 1;
+            right[h] = h == columnCount ? 0 : h + 1;
+            up[h] = down[h] = column[h] = h;
+        }
+
+        int next = columnCount + 1;
+        int id = 0;
+        for (int i = 0; i < cellCount; i++) {
+            if (cells[i] >= 0)
+                continue;
+            int r = i / size, c = i % size;
+            int b = r / blockRows * blocksInRow + c / blockColumns;
+            for (int x = 0; x < size; x++) {
+                int h1 = header[cellCount + r * size + x];
+                int h2 = header[2 * cellCount + c * size + x];
+                int h3 = header[3 * cellCount + b * size + x];
+                if (h1 < 0 || h2 < 0 || h3 < 0)
+                    continue;
+                rowCell[id] = i;
+                rowValue[id] = x;
+                int first = next;
+                addNode(next++, header[i], id);
+                addNode(next++, h1, id);
+                addNode(next++, h2, id);
+                addNode(next++, h3, id);
+                for (int k = 0; k < 4; k++) {
+                    left[first + k] = first + (k + 3) % 4;
+                    right[first + k] = first + (k + 1) % 4;
+                }
+                id++;
+            }
+        }
+    }
+
+    private void addNode(int node, int header, int id) {
+        column[node] = header;
+        row[node] = id;
+        up[node] = up[header];
+        down[node] = header;
+        down[up[header]] = node;
+        up[header] = node;
+        columnSize[header]++;
+    }
+
+    /**
+     * Ищет решения, пока их не наберётся {@code limit}.
+     *
+     * @param limit максимальное количество решений, которое нужно найти.
+     * @return количество найденных решений, не больше {@code limit}.
+     */
+    int search(int limit) {
+        int found = 0;
+        int level = 0;
+        boolean forward = true;
+        while (true) {
+            if (forward) {
+                nodes++;
+                if (right[HEAD] == HEAD) {
+                    if (found++ == 0) {
+                        saveSolution(level);
+                        solvedAt = System.nanoTime();
+                    }
+                    if (found >= limit)
+                        return found;
+                    forward = false;
+                    continue;
+                }
+                int c = chooseColumn();
+                if (columnSize[c] == 0) {
+                    forward = false;
+                    continue;
+                }
+                cover(c);
+                int r = down[c];
+                chosen[level++] = r;
+                if (level > maxDepth)
+                    maxDepth = level;
+                coverRow(r);
+            } else {
+                if (level == 0)
+                    return found;
+                int r = chosen[--level];
+                uncoverRow(r);
+                backtracks++;
+                int c = column[r];
+                r = down[r];
+                if (r != c) {
+                    chosen[level++] = r;
+                    coverRow(r);
+                    forward = true;
+                } else {
+                    uncover(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return значения клеток первого найденного решения построчно или {@code null}, если решений нет.
+     */
+    int[] getSolution() {
+        return solution;
+    }
+
+    /**
+     * @return количество узлов дерева поиска, посещённых за всё время.
+     */
+    long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return количество отменённых выборов строк за всё время.
+     */
+    long getBacktracks() {
+        return backtracks;
+    }
+
+    int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return момент по {@link System#nanoTime()}, когда было найдено первое решение.
+     */
+    long getSolvedAt() {
+        return solvedAt;
+    }
+
+    private void saveSolution(int level) {
+        solution = cells.clone();
+        for (int i = 0; i < level; i++) {
+            int id = row[chosen[i]];
+            solution[rowCell[id]] = rowValue[id];
+        }
+    }
+
+    private int chooseColumn() {
+        int best = right[HEAD];
+        int bestSize = columnSize[best];
+        for (int c = right[best]; c != HEAD && bestSize > 1; c = right[c]) {
+            if (columnSize[c] < bestSize) {
+                best = c;
+                bestSize = columnSize[c];
+            }
+        }
+        return best;
+    }
+
+    private void coverRow(int r) {
+        for (int j = right[r]; j != r; j = right[j])
+            cover(column[j]);
+    }
+
+    private void uncoverRow(int r) {
+        for (int j = left[r]; j != r; j = left[j])
+            uncover(column[j]);
+    }
+
+    private void cover(int c) {
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                up[down[j]] = up[j];
+                down[up[j]] = down[j];
+                columnSize[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                columnSize[column[j]]++;
+                up[down[j]] = j;
+                down[up[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+    }
+}
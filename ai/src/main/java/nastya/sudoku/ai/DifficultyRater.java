@@ -0,0 +1,76 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.ConstraintModel;
+import nastya.sudoku.commons.GameField;
+
+/**
+ * Оценивает сложность задачи так, как её решал бы человек.<br/>
+ * На каждом шаге ко всему полю применяется самое простое из правил {@link PropagationRule},
+ * которое что-то меняет, после чего поиск правила снова начинается с одиночек.
+ * Запоминаются самое сложное правило и количество шагов каждого правила; если ни одно правило
+ * не помогает, задача дорешивается перебором, и это тоже отражается в оценке.<br/>
+ * Оценка рассчитана на задачи с единственным решением. Поддерживаются поля со стороной не больше 64.<br/>
+ * Поле и буферы переиспользуются между задачами одной геометрии, поэтому шаги не создают объектов.
+ * Объект не потокобезопасен: каждому потоку нужен свой экземпляр.
+ */
+public class DifficultyRater {
+
+    /**
+     * Вес перебора в оценке, больше веса любого правила.
+     */
+    public static final int SEARCH_WEIGHT = 10;
+
+    private static final PropagationRule[] RULES = PropagationRule.values();
+
+    private final Propagator propagator = new Propagator(RULES[RULES.length - 1]);
+    private CandidateSearch search;
+
+    public DifficultyRating rate(GameField gameField) {
+        return rate(gameField.getConstraints(), GameFields.toArray(gameField));
+    }
+
+    /**
+     * @param constraints правила поля, например вариант судоку.
+     * @param cells       значения клеток построчно, {@code -1} для неизвестных.
+     */
+    DifficultyRating rate(ConstraintModel constraints, int[] cells) {
+        if (search == null || search.board.constraints != constraints)
+            search = new CandidateSearch(new CandidateBoard(constraints), new Propagator(), () -> false);
+
+        CandidateBoard board = search.board;
+        int[] ruleSteps = new int[RULES.length];
+        if (!board.load(cells))
+            return new DifficultyRating(false, null, false, 0, ruleSteps, 0);
+
+        PropagationRule hardest = null;
+        int steps = 0;
+        int work = 0;
+        boolean guessed = false;
+        while (board.unknownCount > 0) {
+            PropagationRule applied = null;
+            for (PropagationRule rule : RULES) {
+                int changes = propagator.apply(rule, board);
+                if (changes == Propagator.CONTRADICTION)
+                    return new DifficultyRating(false, hardest, false, steps, ruleSteps, 0);
+                if (changes > 0) {
+                    applied = rule;
+                    break;
+                }
+            }
+            if (applied == null) {
+                guessed = true;
+                if (!search.solve())
+                    return new DifficultyRating(false, hardest, true, steps, ruleSteps, 0);
+                break;
+            }
+            steps++;
+            ruleSteps[applied.ordinal()]++;
+            work += applied.getWeight();
+            if (hardest == null || applied.compareTo(hardest) > 0)
+                hardest = applied;
+        }
+
+        int base = guessed ? SEARCH_WEIGHT : hardest == null ? 0 : hardest.getWeight();
+        return new DifficultyRating(true, hardest, guessed, steps, ruleSteps, base + work / (work + 100.0));
+    }
+}
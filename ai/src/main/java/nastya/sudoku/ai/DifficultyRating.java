@@ -0,0 +1,62 @@
+package nastya.sudoku.ai;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Value;
+
+/**
+ * Оценка сложности задачи, полученная {@link DifficultyRater}.
+ */
+@Value
+public class DifficultyRating {
+
+    /**
+     * Есть ли у задачи решение.
+     */
+    boolean solvable;
+
+    /**
+     * Самое сложное из понадобившихся правил или {@code null}, если задача уже решена.
+     */
+    PropagationRule hardest;
+
+    /**
+     * Пришлось ли перебирать варианты, потому что ни одно правило не помогло.
+     */
+    boolean search;
+
+    /**
+     * Общее количество шагов.
+     */
+    int steps;
+
+    @Getter(AccessLevel.NONE)
+    int[] ruleSteps;
+
+    /**
+     * Числовая оценка: целая часть — вес самого сложного правила
+     * ({@link DifficultyRater#SEARCH_WEIGHT}, если понадобился перебор),
+     * дробная растёт с общим объёмом работы.
+     */
+    double score;
+
+    /**
+     * @return количество шагов, на которых применялось правило {@code rule}.
+     */
+    public int getSteps(PropagationRule rule) {
+        return ruleSteps[rule.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        if (!solvable)
+            return "Решения нет";
+        StringBuilder result = new StringBuilder(String.format("Сложность %.2f, шагов: %d", score, steps));
+        for (PropagationRule rule : PropagationRule.values())
+            if (ruleSteps[rule.ordinal()] > 0)
+                result.append(String.format(", \"%s\": %d", rule.getDescription(), ruleSteps[rule.ordinal()]));
+        if (search)
+            result.append(", нужен перебор");
+        return result.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.commons.GameField;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Решатель, сводящий судоку к задаче точного покрытия и решающий её с помощью {@link DancingLinks}.
+ * Подходит для полей любого размера блока, но только для классических правил.
+ */
+public class DlxSolver implements SudokuSolver {
+
+    private final BiConsumer<String, Object[]> logger;
+
+    public DlxSolver(BiConsumer<String, Object[]> logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public boolean solve(GameField gameField) {
+        return solveWithMetrics(gameField).isSolved();
+    }
+
+    @Override
+    public SolverMetrics solveWithMetrics(GameField gameField) {
+        if (!gameField.getConstraints().isClassic())
+            throw new IllegalArgumentException("Решатель поддерживает только классические правила");
+        long start = System.nanoTime();
+        long allocated = SolverMetrics.allocatedBytes();
+        FieldSize fieldSize = gameField.getFieldSize();
+        FieldSize blockSize = gameField.getBlockSize();
+        int size = fieldSize.getRowCount();
+
+        int[] cells = GameFields.toArray(gameField);
+
+        DancingLinks dlx = new DancingLinks(size, blockSize.getRowCount(), blockSize.getColumnCount(), cells);
+        boolean solved = dlx.search(1) > 0;
+        if (solved)
+            GameFields.write(gameField, cells, dlx.getSolution());
+        SolverMetrics metrics = new SolverMetrics(solved, dlx.getNodes(), dlx.getBacktracks(), dlx.getMaxDepth(), 0,
+                solved ? dlx.getSolvedAt() - start : -1, System.nanoTime() - start, SolverMetrics.allocatedSince(allocated));
+
+        logger.accept("Решение " + (!solved ? "не " : "") + "найдено", null);
+        logger.accept("Просмотрено узлов: %d", new Object[]{dlx.getNodes()});
+        logger.accept("На поиск решения затрачено %d мс", new Object[]{metrics.getElapsedNanos() / 1_000_000});
+        return metrics;
+    }
+}
@@ -0,0 +1,36 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.FieldGeometry;
+import nastya.sudoku.commons.GameField;
+
+/**
+ * Перевод игрового поля в плоский массив значений и обратно.
+ */
+final class GameFields {
+
+    private GameFields() {
+    }
+
+    /**
+     * @return значения клеток поля построчно, {@code -1} для неизвестных.
+     */
+    static int[] toArray(GameField gameField) {
+        FieldGeometry geometry = gameField.getGeometry();
+        int[] cells = new int[geometry.getCellCount()];
+        for (int i = 0; i < cells.length; i++) {
+            Integer value = gameField.getValue(geometry.getPosition(i));
+            cells[i] = value == null ? -1 : value;
+        }
+        return cells;
+    }
+
+    /**
+     * Записывает в поле значения из {@code solution} для тех клеток, которые неизвестны в {@code cells}.
+     */
+    static void write(GameField gameField, int[] cells, int[] solution) {
+        FieldGeometry geometry = gameField.getGeometry();
+        for (int i = 0; i < cells.length; i++)
+            if (cells[i] < 0)
+                gameField.setValue(geometry.getPosition(i), solution[i]);
+    }
+}
@@ -0,0 +1,68 @@
+package nastya.sudoku.ai;
+
+/**
+ * Преобразование поля, сохраняющее правила судоку: транспонирование, перестановка строк
+ * и столбцов (в пределах полос и стеков блоков) и перенумерация значений.<br/>
+ * Клетка {@code (i, j)} результата берётся из клетки {@code (rowOrder[i], columnOrder[j])}
+ * исходного поля (после транспонирования), а значение {@code v} заменяется на {@code labels[v]}.
+ */
+public class GridTransform {
+
+    private final int size;
+    private final boolean transposed;
+    private final int[] rowOrder;
+    private final int[] columnOrder;
+    private final int[] labels;
+    private final int[] values;
+
+    GridTransform(int size, boolean transposed, int[] rowOrder, int[] columnOrder, int[] labels) {
+        this.size = size;
+        this.transposed = transposed;
+        this.rowOrder = rowOrder;
+        this.columnOrder = columnOrder;
+        this.labels = labels;
+        values = new int[size];
+        for (int value = 0; value < size; value++)
+            values[labels[value]] = value;
+    }
+
+    public boolean isTransposed() {
+        return transposed;
+    }
+
+    /**
+     * @param cells значения клеток исходного поля построчно, {@code -1} для неизвестных.
+     * @return значения клеток преобразованного поля.
+     */
+    public int[] apply(int[] cells) {
+        int[] result = new int[cells.length];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int value = cells[source(rowOrder[i], columnOrder[j])];
+                result[i * size + j] = value < 0 ? -1 : labels[value];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Обратное преобразование.
+     *
+     * @param cells значения клеток преобразованного поля построчно, {@code -1} для неизвестных.
+     * @return значения клеток исходного поля.
+     */
+    public int[] invert(int[] cells) {
+        int[] result = new int[cells.length];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int value = cells[i * size + j];
+                result[source(rowOrder[i], columnOrder[j])] = value < 0 ? -1 : values[value];
+            }
+        }
+        return result;
+    }
+
+    private int source(int row, int column) {
+        return transposed ? column * size + row : row * size + column;
+    }
+}
@@ -0,0 +1,304 @@
+package nastya.sudoku.ai;
+
+import java.util.SplittableRandom;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Поиск с возвратом по {@link CandidateBoard} с выбором клетки по {@link VariableOrder},
+ * порядком значений по {@link ValueOrder} и перезапусками.<br/>
+ * Клетка выбирается по спискам клеток с одинаковым числом кандидатов, которые поле ведёт само,
+ * поэтому просматриваются только клетки с наименьшим числом кандидатов, а не всё поле.<br/>
+ * Перезапуски идут по последовательности Луби: {@code i}-й проход прерывается после
+ * {@code restartBase * luby(i)} противоречий, и поиск начинается заново с тем же полем, но с накопленными
+ * весами групп и новым случайным выбором среди равных клеток. Так одно неудачное начало перебора
+ * не затягивает решение, а полнота сохраняется, потому что пределы растут неограниченно.
+ */
+class HeuristicSearch {
+
+    private static final int SOLVED = 0;
+    private static final int FAILED = 1;
+    private static final int RESTART = 2;
+
+    final CandidateBoard board;
+    final Propagator propagator;
+    private final VariableOrder variableOrder;
+    private final ValueOrder valueOrder;
+    private final int restartBase;
+    private final SplittableRandom random;
+    private final BooleanSupplier cancelled;
+
+    /**
+     * Выбирать ли случайно среди равных по эвристике клеток: без этого перезапуски повторяли бы тот же поиск.
+     */
+    private final boolean randomTies;
+
+    /**
+     * Сумма весов групп и суммы каждой клетки для {@link VariableOrder#DOM_WDEG}; вес каждой группы вначале равен единице.
+     */
+    private final int[] cellWeights;
+    private int maxCellWeight;
+
+    private final CandidateBoard[] saved;
+    private final int[][] orders;
+    private final int[] scores;
+    private long failLimit;
+    private long fails;
+
+    long nodes;
+    long backtracks;
+    long restarts;
+    int maxDepth;
+
+    /**
+     * Момент по {@link System#nanoTime()}, когда было найдено решение.
+     */
+    long solvedAt;
+
+    /**
+     * @param board       поле со списками клеток по числу кандидатов.
+     * @param restartBase число противоречий в первом проходе; {@code 0} — без перезапусков.
+     */
+    HeuristicSearch(CandidateBoard board, Propagator propagator, VariableOrder variableOrder, ValueOrder valueOrder,
+                    int restartBase, SplittableRandom random, BooleanSupplier cancelled) {
+        if (board.first == null)
+            throw new IllegalArgumentException("Поле должно вести списки клеток по числу кандидатов");
+        this.board = board;
+        this.propagator = propagator;
+        this.variableOrder = variableOrder;
+        this.valueOrder = valueOrder;
+        this.restartBase = restartBase;
+        this.random = random;
+        this.cancelled = cancelled;
+        randomTies = restartBase > 0;
+
+        cellWeights = new int[board.cellCount];
+        for (int cell = 0; cell < board.cellCount; cell++) {
+            cellWeights[cell] = board.cellUnits[cell].length + (board.cellCages[cell] >= 0 ? 1 : 0);
+            maxCellWeight = Math.max(maxCellWeight, cellWeights[cell]);
+        }
+        saved = new CandidateBoard[board.cellCount + 1];
+        orders = new int[board.cellCount + 1][];
+        scores = new int[board.size];
+    }
+
+    /**
+     * @return {@code true}, если решение найдено; {@code false}, если его нет или поиск отменён.
+     */
+    boolean solve() {
+        nodes++;
+        if (!propagator.propagate(board))
+            return false;
+        CandidateBoard root = new CandidateBoard(board);
+        for (int run = 1; ; run++) {
+            failLimit = restartBase > 0 ? (long) restartBase * luby(run) : Long.MAX_VALUE;
+            fails = 0;
+            int result = search(0);
+            if (result != RESTART)
+                return result == SOLVED;
+            restarts++;
+            board.copyFrom(root);
+        }
+    }
+
+    private int search(int depth) {
+        if (depth > maxDepth)
+            maxDepth = depth;
+        if (board.unknownCount == 0) {
+            solvedAt = System.nanoTime();
+            return SOLVED;
+        }
+        if (cancelled.getAsBoolean())
+            return FAILED;
+
+        int cell = chooseCell();
+        if (saved[depth] == null) {
+            saved[depth] = new CandidateBoard(board);
+            orders[depth] = new int[board.size];
+        } else {
+            saved[depth].copyFrom(board);
+        }
+        int[] order = orders[depth];
+        int count = orderValues(cell, order);
+        for (int i = 0; i < count; i++) {
+            nodes++;
+            if (board.assign(cell, order[i]) && propagator.propagate(board)) {
+                int result = search(depth + 1);
+                if (result != FAILED)
+                    return result;
+            } else {
+                fail(cell);
+            }
+            backtracks++;
+            board.copyFrom(saved[depth]);
+            if (fails >= failLimit)
+                return RESTART;
+        }
+        return FAILED;
+    }
+
+    /**
+     * Увеличивает веса групп клетки, значение которой сразу привело к противоречию.<br/>
+     * В dom/wdeg вес получает ограничение, на котором обнаружено противоречие; {@link Propagator}
+     * не сообщает, какое это ограничение, поэтому вес получают все группы клетки, на которой шёл выбор.
+     */
+    private void fail(int cell) {
+        fails++;
+        if (variableOrder != VariableOrder.DOM_WDEG)
+            return;
+        for (int unit : board.cellUnits[cell])
+            addWeight(board.units[unit]);
+        int cage = board.cellCages[cell];
+        if (cage >= 0)
+            addWeight(board.cages[cage]);
+    }
+
+    private void addWeight(int[] cells) {
+        for (int cell : cells)
+            if (++cellWeights[cell] > maxCellWeight)
+                maxCellWeight = cellWeights[cell];
+    }
+
+    /**
+     * @return неизвестная клетка для ветвления; вызывается, только если такие клетки есть.
+     */
+    private int chooseCell() {
+        switch (variableOrder) {
+            case MIN_DOMAIN:
+                return minDomain();
+            case MIN_DOMAIN_MAX_DEGREE:
+                return maxDegree();
+            case DOM_WDEG:
+                return domWdeg();
+            default:
+                throw new IllegalArgumentException("Неизвестная эвристика " + variableOrder);
+        }
+    }
+
+    private int smallestCount() {
+        int count = 1;
+        while (board.first[count] < 0)
+            count++;
+        return count;
+    }
+
+    private int minDomain() {
+        int cell = board.first[smallestCount()];
+        if (!randomTies)
+            return cell;
+        int best = cell;
+        int ties = 1;
+        for (cell = board.next[cell]; cell >= 0; cell = board.next[cell])
+            if (random.nextInt(++ties) == 0)
+                best = cell;
+        return best;
+    }
+
+    private int maxDegree() {
+        int best = -1;
+        int bestDegree = -1;
+        int ties = 0;
+        for (int cell = board.first[smallestCount()]; cell >= 0; cell = board.next[cell]) {
+            int degree = 0;
+            for (int peer : board.peers[cell])
+                if (!board.isKnown(peer))
+                    degree++;
+            if (degree > bestDegree) {
+                best = cell;
+                bestDegree = degree;
+                ties = 1;
+            } else if (degree == bestDegree && randomTies && random.nextInt(++ties) == 0) {
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Клетки просматриваются по возрастанию числа кандидатов, пока оно, делённое даже на наибольший вес,
+     * не окажется больше лучшего найденного отношения.
+     */
+    private int domWdeg() {
+        int best = -1;
+        long bestCount = 0;
+        long bestWeight = 1;
+        int ties = 0;
+        for (int count = smallestCount(); count <= board.size; count++) {
+            if (best >= 0 && count * bestWeight > bestCount * maxCellWeight)
+                break;
+            for (int cell = board.first[count]; cell >= 0; cell = board.next[cell]) {
+                long weight = cellWeights[cell];
+                long difference = count * bestWeight - bestCount * weight;
+                if (best < 0 || difference < 0) {
+                    best = cell;
+                    bestCount = count;
+                    bestWeight = weight;
+                    ties = 1;
+                } else if (difference == 0 && randomTies && random.nextInt(++ties) == 0) {
+                    best = cell;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Записывает кандидатов клетки в {@code order} в порядке перебора.
+     *
+     * @return количество кандидатов.
+     */
+    private int orderValues(int cell, int[] order) {
+        int count = 0;
+        for (long variants = board.candidates[cell]; variants != 0; variants &= variants - 1)
+            order[count++] = Long.numberOfTrailingZeros(variants);
+
+        switch (valueOrder) {
+            case ASCENDING:
+                break;
+            case LEAST_CONSTRAINING:
+                for (int i = 0; i < count; i++)
+                    scores[order[i]] = 0;
+                for (int peer : board.peers[cell]) {
+                    if (board.isKnown(peer))
+                        continue;
+                    long mask = board.candidates[peer];
+                    for (int i = 0; i < count; i++)
+                        scores[order[i]] += (int) (mask >>> order[i]) & 1;
+                }
+                for (int i = 1; i < count; i++) {
+                    int value = order[i];
+                    int j = i;
+                    for (; j > 0 && scores[order[j - 1]] > scores[value]; j--)
+                        order[j] = order[j - 1];
+                    order[j] = value;
+                }
+                break;
+            case RANDOM:
+                for (int i = count - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int value = order[i];
+                    order[i] = order[j];
+                    order[j] = value;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестный порядок значений " + valueOrder);
+        }
+        return count;
+    }
+
+    /**
+     * @return {@code i}-й член последовательности Луби (1, 1, 2, 1, 1, 2, 4, 1, ...), {@code i >= 1}.
+     */
+    static long luby(int i) {
+        int k = 1;
+        while ((1L << k) - 1 < i)
+            k++;
+        while (i != (1L << k) - 1) {
+            i -= (1 << (k - 1)) - 1;
+            k = 1;
+            while ((1L << k) - 1 < i)
+                k++;
+        }
+        return 1L << (k - 1);
+    }
+}
@@ -0,0 +1,87 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.GameField;
+
+import java.util.SplittableRandom;
+import java.util.function.BiConsumer;
+
+/**
+ * Решатель с распространением ограничений {@link Propagator}, в котором порядок выбора клеток
+ * ({@link VariableOrder}) и значений ({@link ValueOrder}) задаётся при создании,
+ * а поиск перезапускается по последовательности Луби, см. {@link HeuristicSearch}.<br/>
+ * Перезапуски и веса групп защищают от долгого перебора на больших и специально подобранных полях,
+ * где одно неудачное начало поиска может стоить минут.<br/>
+ * Поддерживает поля со стороной не больше 64.
+ * Решатель можно вызывать из нескольких потоков: каждый вызов получает свой генератор, отделённый от общего.
+ */
+public class HeuristicSolver implements SudokuSolver {
+
+    public static final int DEFAULT_RESTART_BASE = 128;
+
+    /**
+     * Начальное значение генератора по умолчанию: поиск на одних и тех же полях повторяется от запуска к запуску.
+     */
+    public static final long DEFAULT_SEED = 1;
+
+    private final BiConsumer<String, Object[]> logger;
+    private final VariableOrder variableOrder;
+    private final ValueOrder valueOrder;
+    private final int restartBase;
+    private final SplittableRandom random;
+
+    /**
+     * Создаёт решатель с выбором клетки {@link VariableOrder#DOM_WDEG}, значениями
+     * {@link ValueOrder#LEAST_CONSTRAINING}, перезапусками и начальным значением {@link #DEFAULT_SEED}.
+     */
+    public HeuristicSolver(BiConsumer<String, Object[]> logger) {
+        this(logger, VariableOrder.DOM_WDEG, ValueOrder.LEAST_CONSTRAINING, DEFAULT_RESTART_BASE, DEFAULT_SEED);
+    }
+
+    /**
+     * @param restartBase число противоречий до первого перезапуска; {@code 0} — без перезапусков.
+     * @param seed        начальное значение для случайного выбора среди равных клеток и {@link ValueOrder#RANDOM}.
+     */
+    public HeuristicSolver(BiConsumer<String, Object[]> logger, VariableOrder variableOrder, ValueOrder valueOrder,
+                           int restartBase, long seed) {
+        if (restartBase < 0)
+            throw new IllegalArgumentException("Число противоречий до перезапуска не может быть отрицательным");
+        this.logger = logger;
+        this.variableOrder = variableOrder;
+        this.valueOrder = valueOrder;
+        this.restartBase = restartBase;
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public boolean solve(GameField gameField) {
+        return solveWithMetrics(gameField).isSolved();
+    }
+
+    @Override
+    public SolverMetrics solveWithMetrics(GameField gameField) {
+        long start = System.nanoTime();
+        long allocated = SolverMetrics.allocatedBytes();
+        int[] cells = GameFields.toArray(gameField);
+        CandidateBoard board = new CandidateBoard(gameField.getConstraints(), true);
+        boolean loaded = board.load(cells);
+        HeuristicSearch search = new HeuristicSearch(board, new Propagator(), variableOrder, valueOrder,
+                restartBase, split(), () -> false);
+        boolean solved = loaded && search.solve();
+        if (solved)
+            GameFields.write(gameField, cells, board.values);
+        SolverMetrics metrics = new SolverMetrics(solved, search.nodes, search.backtracks, search.maxDepth,
+                search.propagator.getTotalCount(), solved ? search.solvedAt - start : -1,
+                System.nanoTime() - start, SolverMetrics.allocatedSince(allocated));
+
+        logger.accept("Решение " + (!solved ? "не " : "") + "найдено", null);
+        logger.accept("Выбор клетки: %s, порядок значений: %s",
+                new Object[]{variableOrder.getDescription(), valueOrder.getDescription()});
+        logger.accept("Просмотрено узлов: %d, перезапусков: %d", new Object[]{search.nodes, search.restarts});
+        logger.accept("На поиск решения затрачено %d мс", new Object[]{metrics.getElapsedNanos() / 1_000_000});
+        return metrics;
+    }
+
+    private synchronized SplittableRandom split() {
+        return random.split();
+    }
+}
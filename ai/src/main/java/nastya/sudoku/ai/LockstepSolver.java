@@ -0,0 +1,283 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.FieldGeometry;
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.commons.GameField;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Решение большого количества задач 9x9 "в ногу": маски кандидатов {@code capacity} полей лежат в одном массиве
+ * так, что одна и та же клетка всех полей идёт подряд, и каждый шаг распространения ограничений выполняется
+ * сразу для всех полей короткими циклами без ветвлений, которые JIT может векторизовать.<br/>
+ * Шаг для каждой группы убирает значения известных клеток из кандидатов остальных (naked single)
+ * и ставит значение, которое в группе может стоять только в одной клетке (hidden single).
+ * Шаги повторяются, пока хотя бы одно поле меняется. Поля, которые так решить не удалось,
+ * дорешиваются по одному {@link PrimitiveSolver} с уже найденными значениями.<br/>
+ * Объект не потокобезопасен: каждому потоку нужен свой экземпляр.
+ */
+public class LockstepSolver {
+
+    private static final int SIZE = 9;
+    private static final int CELLS = SIZE * SIZE;
+    private static final int ALL = (1 << SIZE) - 1;
+    private static final FieldSize FIELD_SIZE = new FieldSize(SIZE, SIZE);
+    private static final FieldSize BLOCK_SIZE = new FieldSize(3, 3);
+    private static final int[][] UNITS = FieldGeometry.of(FIELD_SIZE, BLOCK_SIZE).getUnits();
+
+    private final int capacity;
+
+    /**
+     * Маски кандидатов: {@code candidates[cell * capacity + board]}.
+     */
+    private final int[] candidates;
+    private final int[] knownOnce;
+    private final int[] knownTwice;
+    private final int[] once;
+    private final int[] twice;
+    private final int[] changed;
+
+    /**
+     * Номер поля в пакете, данные которого сейчас лежат в каждой позиции.
+     */
+    private final int[] slots;
+
+    /**
+     * Ненулевое значение означает, что поле противоречиво.
+     */
+    private final int[] dead;
+
+    private final int[] single = new int[CELLS];
+    private final PrimitiveSolver fallback = new PrimitiveSolver();
+    private final PropagatingSolver variantSolver = new PropagatingSolver((format, args) -> {
+    });
+
+    private long propagated;
+    private long searched;
+    private long passes;
+
+    /**
+     * @param capacity сколько полей обрабатывается одновременно.
+     */
+    public LockstepSolver(int capacity) {
+        this.capacity = capacity;
+        candidates = new int[CELLS * capacity];
+        knownOnce = new int[capacity];
+        knownTwice = new int[capacity];
+        once = new int[capacity];
+        twice = new int[capacity];
+        changed = new int[capacity];
+        dead = new int[capacity];
+        slots = new int[capacity];
+    }
+
+    /**
+     * Решает поля и записывает решения в них. Поля, кроме классических 9x9 с блоками 3x3,
+     * решаются по одному {@link PropagatingSolver}.
+     *
+     * @return для каждого поля, найдено ли решение.
+     */
+    public boolean[] solve(List<? extends GameField> gameFields) {
+        boolean[] result = new boolean[gameFields.size()];
+        List<Integer> lockstep = new ArrayList<>();
+        for (int i = 0; i < gameFields.size(); i++) {
+            GameField gameField = gameFields.get(i);
+            if (fits(gameField))
+                lockstep.add(i);
+            else
+                result[i] = variantSolver.solve(gameField);
+        }
+
+        int[] cells = new int[lockstep.size() * CELLS];
+        for (int k = 0; k < lockstep.size(); k++)
+            System.arraycopy(GameFields.toArray(gameFields.get(lockstep.get(k))), 0, cells, k * CELLS, CELLS);
+        int[] puzzles = cells.clone();
+        boolean[] solved = new boolean[lockstep.size()];
+        solve(cells, lockstep.size(), solved);
+        for (int k = 0; k < solved.length; k++) {
+            int i = lockstep.get(k);
+            result[i] = solved[k];
+            if (solved[k])
+                GameFields.write(gameFields.get(i), Arrays.copyOfRange(puzzles, k * CELLS, (k + 1) * CELLS),
+                        Arrays.copyOfRange(cells, k * CELLS, (k + 1) * CELLS));
+        }
+        return result;
+    }
+
+    /**
+     * Решает {@code count} задач, записанных подряд по 81 клетке ({@code -1} для неизвестных).
+     * Решения записываются на место задач; нерешённые задачи остаются в неопределённом состоянии.
+     *
+     * @param solved сюда записывается, найдено ли решение каждой задачи.
+     * @return количество решённых задач.
+     */
+    public int solve(int[] cells, int count, boolean[] solved) {
+        int total = 0;
+        for (int from = 0; from < count; from += capacity)
+            total += solveChunk(cells, from, Math.min(capacity, count - from), solved);
+        return total;
+    }
+
+    private int solveChunk(int[] cells, int from, int n, boolean[] solved) {
+        for (int cell = 0; cell < CELLS; cell++) {
+            int base = cell * capacity;
+            for (int b = 0; b < n; b++) {
+                int value = cells[(from + b) * CELLS + cell];
+                candidates[base + b] = value < 0 ? ALL : 1 << value;
+            }
+        }
+        Arrays.fill(dead, 0, n, 0);
+        propagate(n);
+
+        int total = 0;
+        for (int b = 0; b < n; b++) {
+            boolean ok = dead[b] == 0 && extract(b, cells, (from + b) * CELLS);
+            solved[from + b] = ok;
+            if (ok)
+                total++;
+        }
+        return total;
+    }
+
+    /**
+     * Повторяет шаги распространения, пока хотя бы одно поле меняется. Поля, которые перестали меняться
+     * или стали противоречивыми, переносятся в конец, чтобы следующие шаги обрабатывали только активные поля.
+     */
+    private void propagate(int n) {
+        for (int b = 0; b < n; b++)
+            slots[b] = b;
+        int active = n;
+        while (active > 0) {
+            passes++;
+            Arrays.fill(changed, 0, active, 0);
+            for (int[] unit : UNITS)
+                step(unit, active);
+            for (int b = active - 1; b >= 0; b--)
+                if (changed[b] == 0 || dead[b] != 0)
+                    swap(b, --active);
+        }
+        for (int b = 0; b < n; b++)
+            while (slots[b] != b)
+                swap(b, slots[b]);
+    }
+
+    /**
+     * Один шаг для группы {@code unit} у первых {@code n} полей. Значения известных клеток убираются
+     * из кандидатов остальных клеток группы (naked single), а значение, которое может стоять только в одной
+     * клетке группы, ставится в неё (hidden single). Обе проверки считаются по маскам на начало шага.<br/>
+     * Поле отмечается противоречивым, если значение известно в двух клетках группы,
+     * у клетки не осталось кандидатов или значению нет места в группе.
+     */
+    private void step(int[] unit, int n) {
+        Arrays.fill(knownOnce, 0, n, 0);
+        Arrays.fill(knownTwice, 0, n, 0);
+        Arrays.fill(once, 0, n, 0);
+        Arrays.fill(twice, 0, n, 0);
+        for (int cell : unit) {
+            int base = cell * capacity;
+            for (int b = 0; b < n; b++) {
+                int c = candidates[base + b];
+                // Маска из одного бита остаётся, остальные обнуляются: c & (c - 1) равно нулю только у них.
+                int s = c & (((c & (c - 1)) - 1) >> 31);
+                knownTwice[b] |= knownOnce[b] & s;
+                knownOnce[b] |= s;
+                twice[b] |= once[b] & c;
+                once[b] |= c;
+            }
+        }
+        for (int cell : unit) {
+            int base = cell * capacity;
+            for (int b = 0; b < n; b++) {
+                int c = candidates[base + b];
+                int s = c & (((c & (c - 1)) - 1) >> 31);
+                int reduced = c & ~((knownOnce[b] & ~s) | knownTwice[b]);
+                int hidden = reduced & once[b] & ~twice[b];
+                int keep = (hidden - 1) >> 31;
+                int updated = (hidden & ~keep) | (reduced & keep);
+                changed[b] |= c ^ updated;
+                candidates[base + b] = updated;
+                dead[b] |= (updated - 1) >> 31;
+            }
+        }
+        for (int b = 0; b < n; b++)
+            dead[b] |= once[b] ^ ALL;
+    }
+
+    /**
+     * Меняет местами поля в позициях {@code i} и {@code j} вместе со всеми их данными.
+     */
+    private void swap(int i, int j) {
+        if (i == j)
+            return;
+        for (int cell = 0; cell < CELLS; cell++) {
+            int base = cell * capacity;
+            int t = candidates[base + i];
+            candidates[base + i] = candidates[base + j];
+            candidates[base + j] = t;
+        }
+        swap(slots, i, j);
+        swap(changed, i, j);
+        swap(dead, i, j);
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    /**
+     * Записывает решение поля {@code b} в {@code cells}, при необходимости дорешивая его перебором.
+     *
+     * @return {@code false}, если решения нет.
+     */
+    private boolean extract(int b, int[] cells, int offset) {
+        boolean complete = true;
+        for (int cell = 0; cell < CELLS; cell++) {
+            int c = candidates[cell * capacity + b];
+            boolean known = (c & (c - 1)) == 0;
+            single[cell] = known ? Integer.numberOfTrailingZeros(c) : -1;
+            complete &= known;
+        }
+        if (complete) {
+            propagated++;
+            System.arraycopy(single, 0, cells, offset, CELLS);
+            return true;
+        }
+
+        searched++;
+        int[] solution = fallback.solve(SIZE, 3, 3, single);
+        if (solution == null)
+            return false;
+        System.arraycopy(solution, 0, cells, offset, CELLS);
+        return true;
+    }
+
+    private static boolean fits(GameField gameField) {
+        return gameField.getConstraints().isClassic()
+                && gameField.getFieldSize().equals(FIELD_SIZE) && gameField.getBlockSize().equals(BLOCK_SIZE);
+    }
+
+    /**
+     * @return сколько полей решено одним распространением, без перебора.
+     */
+    public long getPropagated() {
+        return propagated;
+    }
+
+    /**
+     * @return сколько полей пришлось дорешивать перебором.
+     */
+    public long getSearched() {
+        return searched;
+    }
+
+    /**
+     * @return сколько раз шаг распространения был выполнен для всех полей сразу.
+     */
+    public long getPasses() {
+        return passes;
+    }
+}
@@ -0,0 +1,151 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.GameField;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Решатель, распределяющий дерево поиска {@link CandidateSearch} по потокам {@link ForkJoinPool}.<br/>
+ * Первые {@code splitDepth} уровней ветвления превращаются в отдельные задачи,
+ * каждая из которых работает со своей копией {@link CandidateBoard}.
+ * Как только одна из задач находит решение, остальные прекращают поиск.<br/>
+ * Решатель не владеет пулом: по умолчанию используется {@link ForkJoinPool#commonPool()},
+ * а переданный в конструктор пул закрывает тот, кто его создал.<br/>
+ * Поддерживает поля со стороной не больше 64.
+ */
+public class ParallelSolver implements SudokuSolver {
+
+    private static final int DEFAULT_SPLIT_DEPTH = 3;
+
+    private final BiConsumer<String, Object[]> logger;
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+
+    public ParallelSolver(BiConsumer<String, Object[]> logger) {
+        this(logger, ForkJoinPool.commonPool(), DEFAULT_SPLIT_DEPTH);
+    }
+
+    /**
+     * @param pool       пул, в котором выполняются задачи поиска.
+     * @param splitDepth количество уровней ветвления, которые разбиваются на отдельные задачи.
+     */
+    public ParallelSolver(BiConsumer<String, Object[]> logger, ForkJoinPool pool, int splitDepth) {
+        this.logger = logger;
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+
+    @Override
+    public boolean solve(GameField gameField) {
+        return solveWithMetrics(gameField).isSolved();
+    }
+
+    @Override
+    public SolverMetrics solveWithMetrics(GameField gameField) {
+        long start = System.nanoTime();
+        long allocated = SolverMetrics.allocatedBytes();
+        int[] cells = GameFields.toArray(gameField);
+        CandidateBoard board = new CandidateBoard(gameField.getConstraints());
+
+        InternalSolver solver = new InternalSolver();
+        if (board.load(cells))
+            pool.invoke(solver.new SearchTask(board, 0));
+        int[] solution = solver.solution.get();
+        boolean solved = solution != null;
+        if (solved)
+            GameFields.write(gameField, cells, solution);
+        SolverMetrics metrics = new SolverMetrics(solved, solver.nodes.sum(), solver.backtracks.sum(),
+                (int) solver.maxDepth.get(), solver.eliminations.sum(), solved ? solver.solvedAt - start : -1,
+                System.nanoTime() - start, SolverMetrics.allocatedSince(allocated));
+
+        logger.accept("Решение " + (!solved ? "не " : "") + "найдено", null);
+        logger.accept("Просмотрено узлов: %d", new Object[]{solver.nodes.sum()});
+        logger.accept("Запущено задач: %d", new Object[]{solver.tasks.sum()});
+        logger.accept("На поиск решения затрачено %d мс", new Object[]{metrics.getElapsedNanos() / 1_000_000});
+        return metrics;
+    }
+
+    private class InternalSolver {
+
+        final AtomicReference<int[]> solution = new AtomicReference<>();
+        final LongAdder nodes = new LongAdder();
+        final LongAdder tasks = new LongAdder();
+        final LongAdder backtracks = new LongAdder();
+        final LongAdder eliminations = new LongAdder();
+        final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+        volatile long solvedAt;
+
+        boolean isFinished() {
+            return solution.get() != null;
+        }
+
+        void found(CandidateBoard board) {
+            long now = System.nanoTime();
+            if (solution.compareAndSet(null, board.values.clone()))
+                solvedAt = now;
+        }
+
+        class SearchTask extends RecursiveAction {
+
+            private static final long serialVersionUID = 1L;
+
+            final CandidateBoard board;
+            final int depth;
+
+            SearchTask(CandidateBoard board, int depth) {
+                this.board = board;
+                this.depth = depth;
+            }
+
+            @Override
+            protected void compute() {
+                tasks.increment();
+                if (isFinished())
+                    return;
+
+                Propagator propagator = new Propagator();
+                if (depth >= splitDepth) {
+                    CandidateSearch search = new CandidateSearch(board, propagator, InternalSolver.this::isFinished);
+                    boolean solved = search.solve();
+                    nodes.add(search.nodes);
+                    backtracks.add(search.backtracks);
+                    eliminations.add(propagator.getTotalCount());
+                    maxDepth.accumulate(depth + search.maxDepth);
+                    if (solved)
+                        found(board);
+                    return;
+                }
+
+                nodes.increment();
+                maxDepth.accumulate(depth);
+                boolean consistent = propagator.propagate(board);
+                eliminations.add(propagator.getTotalCount());
+                if (!consistent)
+                    return;
+                int cell = board.bestCell();
+                if (cell < 0) {
+                    found(board);
+                    return;
+                }
+
+                List<SearchTask> subtasks = new ArrayList<>();
+                long variants = board.candidates[cell];
+                while (variants != 0) {
+                    int value = Long.numberOfTrailingZeros(variants);
+                    variants &= variants - 1;
+                    CandidateBoard copy = new CandidateBoard(board);
+                    if (copy.assign(cell, value))
+                        subtasks.add(new SearchTask(copy, depth + 1));
+                }
+                invokeAll(subtasks);
+            }
+        }
+    }
+}
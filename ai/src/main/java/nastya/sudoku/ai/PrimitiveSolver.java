@@ -0,0 +1,83 @@
+package nastya.sudoku.ai;
+
+/**
+ * Решает поля, заданные плоским массивом значений, без участия {@code GameField}.<br/>
+ * Поля со стороной до 64 решаются {@link CandidateSearch}, остальные — {@link DancingLinks}.
+ * Структуры поиска переиспользуются между вызовами для полей одной геометрии.<br/>
+ * Объект не потокобезопасен: каждому потоку нужен свой экземпляр.
+ */
+public class PrimitiveSolver {
+
+    private CandidateSearch search;
+    private int blockRows;
+    private int blockColumns;
+    private long nodes;
+    private long deadline;
+    private boolean limited;
+    private boolean timedOut;
+
+    /**
+     * @param cells значения клеток построчно, {@code -1} для неизвестных.
+     * @return значения клеток решения или {@code null}, если решения нет.
+     */
+    public int[] solve(int size, int blockRows, int blockColumns, int[] cells) {
+        return solve(size, blockRows, blockColumns, cells, false, 0);
+    }
+
+    /**
+     * Ищет решение, пока не наступил момент {@code deadline} по {@link System#nanoTime()}.
+     * Поля со стороной больше 64 проверяют срок только перед началом поиска.
+     *
+     * @return значения клеток решения или {@code null}, если решения нет или время истекло, см. {@link #isTimedOut()}.
+     */
+    public int[] solve(int size, int blockRows, int blockColumns, int[] cells, long deadline) {
+        return solve(size, blockRows, blockColumns, cells, true, deadline);
+    }
+
+    private int[] solve(int size, int blockRows, int blockColumns, int[] cells, boolean limited, long deadline) {
+        this.limited = limited;
+        this.deadline = deadline;
+        timedOut = false;
+        if (isExpired())
+            return null;
+
+        if (size > CandidateBoard.MAX_SIZE) {
+            DancingLinks dlx = new DancingLinks(size, blockRows, blockColumns, cells);
+            boolean solved = dlx.search(1) > 0;
+            nodes += dlx.getNodes();
+            return solved ? dlx.getSolution() : null;
+        }
+
+        if (search == null || search.board.size != size
+                || this.blockRows != blockRows || this.blockColumns != blockColumns) {
+            search = new CandidateSearch(new CandidateBoard(size, blockRows, blockColumns), new Propagator(), this::isExpired);
+            this.blockRows = blockRows;
+            this.blockColumns = blockColumns;
+        }
+
+        long before = search.nodes;
+        boolean solved = search.board.load(cells) && search.solve();
+        nodes += search.nodes - before;
+        return solved ? search.board.values.clone() : null;
+    }
+
+    private boolean isExpired() {
+        if (limited && System.nanoTime() - deadline > 0)
+            timedOut = true;
+        return timedOut;
+    }
+
+    /**
+     * @return был ли последний поиск прерван из-за истёкшего срока.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return количество узлов дерева поиска, посещённых за всё время.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+}
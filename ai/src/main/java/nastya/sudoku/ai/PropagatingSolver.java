@@ -0,0 +1,48 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.GameField;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Решатель, который перед поиском и после каждого выбора значения
+ * применяет правила {@link Propagator}, а ветвится по клетке с наименьшим числом кандидатов.<br/>
+ * Поддерживает поля со стороной не больше 64.
+ */
+public class PropagatingSolver implements SudokuSolver {
+
+    private final BiConsumer<String, Object[]> logger;
+
+    public PropagatingSolver(BiConsumer<String, Object[]> logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public boolean solve(GameField gameField) {
+        return solveWithMetrics(gameField).isSolved();
+    }
+
+    @Override
+    public SolverMetrics solveWithMetrics(GameField gameField) {
+        long start = System.nanoTime();
+        long allocated = SolverMetrics.allocatedBytes();
+        int[] cells = GameFields.toArray(gameField);
+        CandidateBoard board = new CandidateBoard(gameField.getConstraints());
+        boolean loaded = board.load(cells);
+        CandidateSearch search = new CandidateSearch(board, new Propagator(), () -> false);
+        boolean solved = loaded && search.solve();
+        if (solved)
+            GameFields.write(gameField, cells, board.values);
+        SolverMetrics metrics = new SolverMetrics(solved, search.nodes, search.backtracks, search.maxDepth,
+                search.propagator.getTotalCount(), solved ? search.solvedAt - start : -1,
+                System.nanoTime() - start, SolverMetrics.allocatedSince(allocated));
+
+        logger.accept("Решение " + (!solved ? "не " : "") + "найдено", null);
+        logger.accept("Просмотрено узлов: %d", new Object[]{search.nodes});
+        for (PropagationRule rule : PropagationRule.values())
+            if (search.propagator.allows(rule))
+                logger.accept("Правило \"%s\": %d", new Object[]{rule.getDescription(), search.propagator.getCount(rule)});
+        logger.accept("На поиск решения затрачено %d мс", new Object[]{metrics.getElapsedNanos() / 1_000_000});
+        return metrics;
+    }
+}
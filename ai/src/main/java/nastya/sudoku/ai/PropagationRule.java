@@ -0,0 +1,68 @@
+package nastya.sudoku.ai;
+
+/**
+ * Правила распространения ограничений, которые применяет {@link Propagator}.
+ */
+public enum PropagationRule {
+
+    /**
+     * В клетке остался единственный кандидат.
+     */
+    NAKED_SINGLE("Единственный кандидат", 1),
+
+    /**
+     * Значение может стоять только в одной клетке строки, столбца или блока.
+     */
+    HIDDEN_SINGLE("Скрытый одиночка", 2),
+
+    /**
+     * Значение клетки-суммы не даёт набрать сумму при любых кандидатах остальных её клеток (киллер).
+     */
+    CAGE_SUM("Суммы в клетках", 2),
+
+    /**
+     * Все кандидаты значения внутри одной группы лежат в пересечении с другой группой
+     * (pointing и claiming).
+     */
+    LOCKED_CANDIDATES("Блокирующие кандидаты", 3),
+
+    /**
+     * Две или три клетки группы вместе содержат ровно столько же кандидатов.
+     */
+    NAKED_SUBSET("Открытые пары и тройки", 4),
+
+    /**
+     * Два или три значения группы могут стоять только в стольких же клетках.
+     */
+    HIDDEN_SUBSET("Скрытые пары и тройки", 5),
+
+    /**
+     * Значение в двух или трёх строках может стоять только в стольких же столбцах (X-wing, swordfish),
+     * или наоборот.
+     */
+    FISH("X-wing и swordfish", 6),
+
+    /**
+     * Раскраска цепочки сопряжённых пар одного значения (simple coloring).
+     */
+    SIMPLE_COLORING("Раскраска цепочек", 7);
+
+    private final String description;
+    private final int weight;
+
+    PropagationRule(String description, int weight) {
+        this.description = description;
+        this.weight = weight;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return вес правила в оценке сложности: чем сложнее правило для человека, тем больше вес.
+     */
+    public int getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,582 @@
+package nastya.sudoku.ai;
+
+/**
+ * Применяет к {@link CandidateBoard} правила из {@link PropagationRule}, пока поле не перестанет меняться.<br/>
+ * Правила применяются по возрастанию стоимости: более дорогое правило запускается,
+ * только если все более дешёвые ничего не изменили.<br/>
+ * Для каждого правила считается количество поставленных значений и убранных кандидатов.<br/>
+ * Набор правил можно ограничить сверху, например только одиночками, если дорогие правила
+ * не окупаются (как при подсчёте решений).
+ */
+class Propagator {
+
+    static final int CONTRADICTION = -1;
+
+    private static final PropagationRule[] RULES = PropagationRule.values();
+
+    private final long[] counters = new long[RULES.length];
+    private final int[] buffer = new int[CandidateBoard.MAX_SIZE];
+    private final long[] positions = new long[CandidateBoard.MAX_SIZE];
+    private int[] common = new int[3];
+    private int[] pairFirst = new int[3 * CandidateBoard.MAX_SIZE];
+    private int[] pairSecond = new int[3 * CandidateBoard.MAX_SIZE];
+    private final int[] colors = new int[CandidateBoard.MAX_SIZE * CandidateBoard.MAX_SIZE];
+    private final int[] queue = new int[CandidateBoard.MAX_SIZE * CandidateBoard.MAX_SIZE];
+    private final PropagationRule hardest;
+
+    /**
+     * Создаёт распространитель со всеми правилами вплоть до {@link PropagationRule#HIDDEN_SUBSET}:
+     * более сложные правила при поиске обычно не окупаются.
+     */
+    Propagator() {
+        this(PropagationRule.HIDDEN_SUBSET);
+    }
+
+    /**
+     * @param hardest самое сложное из применяемых правил.
+     */
+    Propagator(PropagationRule hardest) {
+        this.hardest = hardest;
+    }
+
+    /**
+     * @return {@code false}, если поле противоречиво.
+     */
+    boolean propagate(CandidateBoard board) {
+        while (board.unknownCount > 0) {
+            int changes = 0;
+            for (PropagationRule rule : RULES) {
+                if (!allows(rule))
+                    break;
+                changes = apply(rule, board);
+                if (changes != 0)
+                    break;
+            }
+            if (changes == CONTRADICTION)
+                return false;
+            if (changes == 0)
+                return true;
+        }
+        return true;
+    }
+
+    /**
+     * Один раз применяет правило ко всему полю.
+     *
+     * @return количество поставленных значений и убранных кандидатов или {@code -1}, если поле противоречиво.
+     */
+    int apply(PropagationRule rule, CandidateBoard board) {
+        switch (rule) {
+            case NAKED_SINGLE:
+                return nakedSingles(board);
+            case HIDDEN_SINGLE:
+                return hiddenSingles(board);
+            case CAGE_SUM:
+                return cageSums(board);
+            case LOCKED_CANDIDATES:
+                return lockedCandidates(board);
+            case NAKED_SUBSET:
+                return nakedSubsets(board);
+            case HIDDEN_SUBSET:
+                return hiddenSubsets(board);
+            case FISH:
+                return fish(board);
+            case SIMPLE_COLORING:
+                return simpleColoring(board);
+            default:
+                throw new IllegalArgumentException("Неизвестное правило " + rule);
+        }
+    }
+
+    boolean allows(PropagationRule rule) {
+        return rule.compareTo(hardest) <= 0;
+    }
+
+    long getCount(PropagationRule rule) {
+        return counters[rule.ordinal()];
+    }
+
+    /**
+     * @return количество поставленных значений и убранных кандидатов по всем правилам.
+     */
+    long getTotalCount() {
+        long total = 0;
+        for (long counter : counters)
+            total += counter;
+        return total;
+    }
+
+    private int nakedSingles(CandidateBoard board) {
+        int changes = 0;
+        for (int cell = 0; cell < board.cellCount; cell++) {
+            if (board.isKnown(cell))
+                continue;
+            long mask = board.candidates[cell];
+            if (Long.bitCount(mask) == 1) {
+                if (!board.assign(cell, Long.numberOfTrailingZeros(mask)))
+                    return CONTRADICTION;
+                changes++;
+            }
+        }
+        counters[PropagationRule.NAKED_SINGLE.ordinal()] += changes;
+        return changes;
+    }
+
+    private int hiddenSingles(CandidateBoard board) {
+        int changes = 0;
+        for (int[] unit : board.units) {
+            long once = 0;
+            long twice = 0;
+            long placed = 0;
+            for (int cell : unit) {
+                long mask = board.candidates[cell];
+                if (board.isKnown(cell))
+                    placed |= mask;
+                twice |= once & mask;
+                once |= mask;
+            }
+            if (once != board.all)
+                return CONTRADICTION;
+
+            long singles = once & ~twice & ~placed;
+            while (singles != 0) {
+                int value = Long.numberOfTrailingZeros(singles);
+                singles &= singles - 1;
+                for (int cell : unit) {
+                    if ((board.candidates[cell] & (1L << value)) != 0) {
+                        if (!board.assign(cell, value))
+                            return CONTRADICTION;
+                        changes++;
+                        break;
+                    }
+                }
+            }
+        }
+        counters[PropagationRule.HIDDEN_SINGLE.ordinal()] += changes;
+        return changes;
+    }
+
+    /**
+     * Оставляет в неизвестных клетках суммы только значения, при которых сумму ещё можно набрать:
+     * остальные неизвестные клетки дают не меньше суммы своих наименьших кандидатов
+     * и не больше суммы наибольших.
+     */
+    private int cageSums(CandidateBoard board) {
+        int changes = 0;
+        for (int cage = 0; cage < board.cages.length; cage++) {
+            if (board.cageMissing[cage] == 0)
+                continue;
+            int[] cells = board.cages[cage];
+            int remaining = board.cageSums[cage] - board.cageTotals[cage];
+            int low = 0;
+            int high = 0;
+            for (int cell : cells) {
+                if (board.isKnown(cell))
+                    continue;
+                long mask = board.candidates[cell];
+                low += Long.numberOfTrailingZeros(mask) + 1;
+                high += 64 - Long.numberOfLeadingZeros(mask);
+            }
+            if (remaining < low || remaining > high)
+                return CONTRADICTION;
+
+            for (int cell : cells) {
+                if (board.isKnown(cell))
+                    continue;
+                long mask = board.candidates[cell];
+                // Границы для отображаемого значения клетки, значения на единицу меньше.
+                int from = remaining - (high - (64 - Long.numberOfLeadingZeros(mask))) - 1;
+                int to = remaining - (low - (Long.numberOfTrailingZeros(mask) + 1)) - 1;
+                long allowed = from > to || to < 0 || from >= board.size ? 0
+                        : board.all & (-1L << Math.max(from, 0)) & (to >= 63 ? -1L : (1L << (to + 1)) - 1);
+                int removed = board.eliminate(cell, ~allowed);
+                if (removed < 0)
+                    return CONTRADICTION;
+                changes += removed;
+            }
+        }
+        counters[PropagationRule.CAGE_SUM.ordinal()] += changes;
+        return changes;
+    }
+
+    /**
+     * Если все клетки группы, где может стоять значение, входят ещё в одну общую группу,
+     * то в остальных клетках той группы этого значения быть не может.
+     */
+    private int lockedCandidates(CandidateBoard board) {
+        int changes = 0;
+        for (int unit = 0; unit < board.units.length; unit++) {
+            int[] cells = board.units[unit];
+            long unknown = 0;
+            for (int cell : cells)
+                if (!board.isKnown(cell))
+                    unknown |= board.candidates[cell];
+
+            while (unknown != 0) {
+                int value = Long.numberOfTrailingZeros(unknown);
+                unknown &= unknown - 1;
+                long bit = 1L << value;
+
+                int commonCount = -1;
+                for (int cell : cells) {
+                    if (board.isKnown(cell) || (board.candidates[cell] & bit) == 0)
+                        continue;
+                    int[] own = board.cellUnits[cell];
+                    if (commonCount < 0) {
+                        if (common.length < own.length)
+                            common = new int[own.length];
+                        commonCount = own.length;
+                        System.arraycopy(own, 0, common, 0, commonCount);
+                    } else {
+                        for (int k = 0; k < commonCount; k++)
+                            if (common[k] >= 0 && !board.inUnit(cell, common[k]))
+                                common[k] = -1;
+                    }
+                }
+
+                for (int k = 0; k < commonCount; k++) {
+                    int removed = eliminateOutside(board, unit, common[k], bit);
+                    if (removed < 0)
+                        return CONTRADICTION;
+                    changes += removed;
+                }
+            }
+        }
+        counters[PropagationRule.LOCKED_CANDIDATES.ordinal()] += changes;
+        return changes;
+    }
+
+    /**
+     * Убирает {@code bit} из клеток группы {@code target}, не входящих в группу {@code unit}.
+     */
+    private int eliminateOutside(CandidateBoard board, int unit, int target, long bit) {
+        if (target < 0 || target == unit)
+            return 0;
+        int changes = 0;
+        for (int cell : board.units[target]) {
+            if (board.isKnown(cell) || board.inUnit(cell, unit))
+                continue;
+            int removed = board.eliminate(cell, bit);
+            if (removed < 0)
+                return CONTRADICTION;
+            changes += removed;
+        }
+        return changes;
+    }
+
+    /**
+     * Если объединение кандидатов {@code k} клеток группы состоит из {@code k} значений,
+     * то в остальных клетках группы этих значений быть не может.
+     */
+    private int nakedSubsets(CandidateBoard board) {
+        int changes = 0;
+        for (int[] cells : board.units) {
+            int count = 0;
+            for (int cell : cells)
+                if (!board.isKnown(cell) && Long.bitCount(board.candidates[cell]) <= 3)
+                    buffer[count++] = cell;
+
+            for (int i = 0; i < count; i++) {
+                long a = board.candidates[buffer[i]];
+                for (int j = i + 1; j < count; j++) {
+                    long ab = a | board.candidates[buffer[j]];
+                    int size = Long.bitCount(ab);
+                    if (size == 2) {
+                        int removed = eliminateExcept(board, cells, ab, buffer[i], buffer[j], -1);
+                        if (removed < 0)
+                            return CONTRADICTION;
+                        changes += removed;
+                        continue;
+                    }
+                    if (size != 3)
+                        continue;
+                    for (int k = j + 1; k < count; k++) {
+                        if (Long.bitCount(ab | board.candidates[buffer[k]]) != 3)
+                            continue;
+                        int removed = eliminateExcept(board, cells, ab, buffer[i], buffer[j], buffer[k]);
+                        if (removed < 0)
+                            return CONTRADICTION;
+                        changes += removed;
+                    }
+                }
+            }
+        }
+        counters[PropagationRule.NAKED_SUBSET.ordinal()] += changes;
+        return changes;
+    }
+
+    private int eliminateExcept(CandidateBoard board, int[] cells, long mask, int c1, int c2, int c3) {
+        int changes = 0;
+        for (int cell : cells) {
+            if (cell == c1 || cell == c2 || cell == c3 || board.isKnown(cell))
+                continue;
+            int removed = board.eliminate(cell, mask);
+            if (removed < 0)
+                return CONTRADICTION;
+            changes += removed;
+        }
+        return changes;
+    }
+
+    /**
+     * Если {@code k} значений группы могут стоять только в {@code k} клетках,
+     * то в этих клетках не может быть других значений.
+     */
+    private int hiddenSubsets(CandidateBoard board) {
+        int changes = 0;
+        for (int[] cells : board.units) {
+            int count = 0;
+            for (int value = 0; value < board.size; value++) {
+                long bit = 1L << value;
+                long where = 0;
+                for (int i = 0; i < cells.length; i++)
+                    if (!board.isKnown(cells[i]) && (board.candidates[cells[i]] & bit) != 0)
+                        where |= 1L << i;
+                int places = Long.bitCount(where);
+                if (places >= 2 && places <= 3) {
+                    buffer[count] = value;
+                    positions[count++] = where;
+                }
+            }
+
+            for (int i = 0; i < count; i++) {
+                for (int j = i + 1; j < count; j++) {
+                    long ab = positions[i] | positions[j];
+                    int size = Long.bitCount(ab);
+                    if (size == 2) {
+                        int removed = restrict(board, cells, ab, (1L << buffer[i]) | (1L << buffer[j]));
+                        if (removed < 0)
+                            return CONTRADICTION;
+                        changes += removed;
+                        continue;
+                    }
+                    if (size != 3)
+                        continue;
+                    for (int k = j + 1; k < count; k++) {
+                        if (Long.bitCount(ab | positions[k]) != 3)
+                            continue;
+                        long values = (1L << buffer[i]) | (1L << buffer[j]) | (1L << buffer[k]);
+                        int removed = restrict(board, cells, ab | positions[k], values);
+                        if (removed < 0)
+                            return CONTRADICTION;
+                        changes += removed;
+                    }
+                }
+            }
+        }
+        counters[PropagationRule.HIDDEN_SUBSET.ordinal()] += changes;
+        return changes;
+    }
+
+    /**
+     * Оставляет в клетках группы, отмеченных в {@code where}, только кандидатов из {@code values}.
+     */
+    private int restrict(CandidateBoard board, int[] cells, long where, long values) {
+        int changes = 0;
+        while (where != 0) {
+            int i = Long.numberOfTrailingZeros(where);
+            where &= where - 1;
+            int removed = board.eliminate(cells[i], ~values);
+            if (removed < 0)
+                return CONTRADICTION;
+            changes += removed;
+        }
+        return changes;
+    }
+
+    /**
+     * Если значение в {@code k} строках может стоять только в {@code k} столбцах,
+     * то в остальных клетках этих столбцов его быть не может. То же для столбцов и строк.
+     */
+    private int fish(CandidateBoard board) {
+        int changes = 0;
+        for (int value = 0; value < board.size; value++) {
+            long bit = 1L << value;
+            for (int base = 0; base <= board.size; base += board.size) {
+                int cover = board.size - base;
+                int count = 0;
+                for (int line = 0; line < board.size; line++) {
+                    int[] cells = board.units[base + line];
+                    long where = 0;
+                    for (int i = 0; i < cells.length; i++)
+                        if (!board.isKnown(cells[i]) && (board.candidates[cells[i]] & bit) != 0)
+                            where |= 1L << i;
+                    int places = Long.bitCount(where);
+                    if (places >= 2 && places <= 3) {
+                        buffer[count] = line;
+                        positions[count++] = where;
+                    }
+                }
+
+                for (int i = 0; i < count; i++) {
+                    for (int j = i + 1; j < count; j++) {
+                        long ab = positions[i] | positions[j];
+                        int size = Long.bitCount(ab);
+                        if (size == 2) {
+                            int removed = eliminateCovered(board, cover, ab, (1L << buffer[i]) | (1L << buffer[j]), bit);
+                            if (removed < 0)
+                                return CONTRADICTION;
+                            changes += removed;
+                            continue;
+                        }
+                        if (size != 3)
+                            continue;
+                        for (int k = j + 1; k < count; k++) {
+                            if (Long.bitCount(ab | positions[k]) != 3)
+                                continue;
+                            long lines = (1L << buffer[i]) | (1L << buffer[j]) | (1L << buffer[k]);
+                            int removed = eliminateCovered(board, cover, ab | positions[k], lines, bit);
+                            if (removed < 0)
+                                return CONTRADICTION;
+                            changes += removed;
+                        }
+                    }
+                }
+            }
+        }
+        counters[PropagationRule.FISH.ordinal()] += changes;
+        return changes;
+    }
+
+    /**
+     * Убирает {@code bit} из клеток групп {@code cover + i} для {@code i} из {@code where},
+     * кроме клеток на пересечении с линиями {@code lines}.
+     */
+    private int eliminateCovered(CandidateBoard board, int cover, long where, long lines, long bit) {
+        int changes = 0;
+        while (where != 0) {
+            int[] cells = board.units[cover + Long.numberOfTrailingZeros(where)];
+            where &= where - 1;
+            for (int i = 0; i < cells.length; i++) {
+                if ((lines & (1L << i)) != 0 || board.isKnown(cells[i]))
+                    continue;
+                int removed = board.eliminate(cells[i], bit);
+                if (removed < 0)
+                    return CONTRADICTION;
+                changes += removed;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Клетки, связанные цепочками сопряжённых пар (в группе значение может стоять только в двух клетках),
+     * раскрашиваются в два цвета: значение стоит во всех клетках одного цвета.
+     * Если две клетки одного цвета видят друг друга, значения нет во всех клетках этого цвета.
+     * Если клетка видит клетки обоих цветов, значения нет в ней.
+     */
+    private int simpleColoring(CandidateBoard board) {
+        if (pairFirst.length < board.units.length) {
+            pairFirst = new int[board.units.length];
+            pairSecond = new int[board.units.length];
+        }
+        int changes = 0;
+        for (int value = 0; value < board.size; value++) {
+            long bit = 1L << value;
+            for (int unit = 0; unit < board.units.length; unit++) {
+                pairFirst[unit] = -1;
+                int count = 0;
+                for (int cell : board.units[unit]) {
+                    if (board.isKnown(cell) || (board.candidates[cell] & bit) == 0)
+                        continue;
+                    if (count++ == 0)
+                        pairFirst[unit] = cell;
+                    else
+                        pairSecond[unit] = cell;
+                }
+                if (count != 2)
+                    pairFirst[unit] = -1;
+            }
+            for (int cell = 0; cell < board.cellCount; cell++)
+                colors[cell] = 0;
+
+            // Цвет клетки: 2 * номер цепочки + 2 + сторона.
+            int color = 2;
+            for (int start = 0; start < board.cellCount; start++) {
+                if (colors[start] != 0 || board.isKnown(start) || (board.candidates[start] & bit) == 0)
+                    continue;
+                int length = colorChain(board, start, color);
+                if (length < 2)
+                    continue;
+                int removed = colorWrap(board, length, bit);
+                if (removed == 0)
+                    removed = colorTrap(board, color, bit);
+                if (removed < 0)
+                    return CONTRADICTION;
+                changes += removed;
+                color += 2;
+            }
+        }
+        counters[PropagationRule.SIMPLE_COLORING.ordinal()] += changes;
+        return changes;
+    }
+
+    /**
+     * Раскрашивает цепочку, начинающуюся в {@code start}, цветами {@code color} и {@code color + 1}
+     * и складывает её клетки в {@link #queue}.
+     *
+     * @return длина цепочки.
+     */
+    private int colorChain(CandidateBoard board, int start, int color) {
+        colors[start] = color;
+        queue[0] = start;
+        int length = 1;
+        for (int head = 0; head < length; head++) {
+            int cell = queue[head];
+            for (int unit : board.cellUnits[cell]) {
+                if (pairFirst[unit] < 0)
+                    continue;
+                int other = pairFirst[unit] == cell ? pairSecond[unit] : pairFirst[unit];
+                if (colors[other] == 0) {
+                    colors[other] = colors[cell] ^ 1;
+                    queue[length++] = other;
+                }
+            }
+        }
+        if (length < 2)
+            colors[start] = 0;
+        return length;
+    }
+
+    private int colorWrap(CandidateBoard board, int length, long bit) {
+        for (int i = 0; i < length; i++) {
+            int cell = queue[i];
+            for (int peer : board.peers[cell]) {
+                if (colors[peer] != colors[cell])
+                    continue;
+                int changes = 0;
+                for (int k = 0; k < length; k++) {
+                    if (colors[queue[k]] != colors[cell])
+                        continue;
+                    int removed = board.eliminate(queue[k], bit);
+                    if (removed < 0)
+                        return CONTRADICTION;
+                    changes += removed;
+                }
+                return changes;
+            }
+        }
+        return 0;
+    }
+
+    private int colorTrap(CandidateBoard board, int color, long bit) {
+        int changes = 0;
+        for (int cell = 0; cell < board.cellCount; cell++) {
+            if ((colors[cell] | 1) == (color | 1) || board.isKnown(cell) || (board.candidates[cell] & bit) == 0)
+                continue;
+            boolean first = false;
+            boolean second = false;
+            for (int peer : board.peers[cell]) {
+                first |= colors[peer] == color;
+                second |= colors[peer] == color + 1;
+            }
+            if (first && second) {
+                int removed = board.eliminate(cell, bit);
+                if (removed < 0)
+                    return CONTRADICTION;
+                changes += removed;
+            }
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,40 @@
+package nastya.sudoku.ai;
+
+import lombok.Value;
+import nastya.sudoku.commons.CellPosition;
+
+/**
+ * Нарушение правил в задаче, найденное {@link PuzzleScanner}: значение повторяется в группе.
+ */
+@Value
+public class PuzzleConflict {
+
+    /**
+     * Группа, в которой повторяется значение.
+     */
+    public enum Unit {
+        ROW, COLUMN, BLOCK
+    }
+
+    /**
+     * Номер записи в архиве или смещение начала строки в текстовом файле.
+     */
+    long record;
+
+    Unit unit;
+
+    /**
+     * Значение, которое повторяется.
+     */
+    int value;
+
+    /**
+     * Клетка, в которой значение встретилось раньше.
+     */
+    CellPosition first;
+
+    /**
+     * Клетка с повтором.
+     */
+    CellPosition second;
+}
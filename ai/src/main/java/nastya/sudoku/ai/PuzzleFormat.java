@@ -0,0 +1,87 @@
+package nastya.sudoku.ai;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Однострочный формат задач: клетки записываются построчно, по одному символу на клетку.<br/>
+ * Значения кодируются символами {@code 1-9}, затем {@code A-Z} и {@code a-z}
+ * (для 9x9 это цифры 1-9, для 16x16 — {@code 1-9A-G}, для 25x25 — {@code 1-9A-P}).
+ * Неизвестная клетка обозначается {@code .} или {@code 0}.<br/>
+ * Размер поля определяется по длине строки, которая должна быть квадратом стороны;
+ * высота блока — наибольший делитель стороны, не превосходящий её квадратного корня.
+ */
+public final class PuzzleFormat {
+
+    private static final byte[] SYMBOLS = "123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final int INVALID = -2;
+    private static final int[] VALUES = new int[128];
+
+    public static final int MAX_SIZE = SYMBOLS.length;
+
+    static {
+        Arrays.fill(VALUES, INVALID);
+        VALUES['.'] = -1;
+        VALUES['0'] = -1;
+        for (int i = 0; i < SYMBOLS.length; i++)
+            VALUES[SYMBOLS[i]] = i;
+    }
+
+    private PuzzleFormat() {
+    }
+
+    /**
+     * @return сторона поля для строки длины {@code length} или {@code -1}, если такой длины не бывает.
+     */
+    public static int side(int length) {
+        int side = (int) Math.round(Math.sqrt(length));
+        return side > 0 && side * side == length && side <= MAX_SIZE ? side : -1;
+    }
+
+    public static int blockRows(int side) {
+        for (int rows = (int) Math.sqrt(side); rows > 1; rows--)
+            if (side % rows == 0)
+                return rows;
+        return 1;
+    }
+
+    /**
+     * Разбирает строку в массив значений ({@code -1} для неизвестных клеток).
+     *
+     * @return {@code false}, если в строке встретился недопустимый символ.
+     */
+    public static boolean parse(byte[] line, int side, int[] cells) {
+        for (int i = 0; i < line.length; i++) {
+            int symbol = line[i];
+            int value = symbol >= 0 && symbol < VALUES.length ? VALUES[symbol] : INVALID;
+            if (value == INVALID || value >= side)
+                return false;
+            cells[i] = value;
+        }
+        return true;
+    }
+
+    /**
+     * Разбирает {@code length} байт буфера, начиная с позиции {@code offset}, как {@link #parse(byte[], int, int[])}.
+     * Состояние буфера не меняется.
+     */
+    public static boolean parse(ByteBuffer buffer, int offset, int length, int side, int[] cells) {
+        for (int i = 0; i < length; i++) {
+            int symbol = buffer.get(offset + i);
+            int value = symbol >= 0 && symbol < VALUES.length ? VALUES[symbol] : INVALID;
+            if (value == INVALID || value >= side)
+                return false;
+            cells[i] = value;
+        }
+        return true;
+    }
+
+    public static byte[] format(int[] cells) {
+        byte[] line = new byte[cells.length];
+        for (int i = 0; i < cells.length; i++)
+            line[i] = cells[i] < 0 ? (byte) '.' : SYMBOLS[cells[i]];
+        return line;
+    }
+}
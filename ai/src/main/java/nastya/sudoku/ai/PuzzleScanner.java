@@ -0,0 +1,415 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.CellPosition;
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.commons.GameFieldArchive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Проверка больших наборов задач без создания игровых полей: текстовых файлов в формате {@link PuzzleFormat}
+ * (по задаче на строку) и архивов {@link GameFieldArchive}.<br/>
+ * Файл делится на куски по границам записей, куски отображаются в память и обрабатываются параллельно.
+ * Задача разбирается прямо из буфера, а правила проверяются битовыми масками строк, столбцов и блоков,
+ * поэтому на задачу без нарушений не создаётся ни одного объекта.<br/>
+ * Каждое нарушение передаётся в {@code conflicts} (из разных потоков), а итоги собираются в {@link ScanReport}:
+ * количество подсказок, стороны полей и повторы задач, найденные по 64-битному хэшу клеток.
+ */
+public class PuzzleScanner {
+
+    private static final long MIN_CHUNK = 1 << 20;
+    private static final long MAX_CHUNK = 1 << 28;
+    private static final int SHARDS = 64;
+
+    private final int threads;
+    private final boolean findDuplicates;
+    private final Consumer<PuzzleConflict> conflicts;
+
+    /**
+     * @param findDuplicates искать ли повторы; для этого хранится по 8 байт на каждую задачу.
+     * @param conflicts      получает каждое найденное нарушение, может вызываться из нескольких потоков.
+     */
+    public PuzzleScanner(int threads, boolean findDuplicates, Consumer<PuzzleConflict> conflicts) {
+        this.threads = threads;
+        this.findDuplicates = findDuplicates;
+        this.conflicts = conflicts;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Использование: PuzzleScanner <файл задач или архив> [потоков] [сколько нарушений вывести]");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long limit = args.length > 2 ? Long.parseLong(args[2]) : 100;
+        AtomicLong printed = new AtomicLong();
+        PuzzleScanner scanner = new PuzzleScanner(threads, true, conflict -> {
+            if (printed.incrementAndGet() <= limit)
+                System.out.println(conflict);
+        });
+        System.out.println(scanner.scan(Paths.get(args[0])));
+    }
+
+    /**
+     * Проверяет архив {@link GameFieldArchive} или, если файл не архив, текстовый файл задач.
+     */
+    public ScanReport scan(Path path) throws IOException, InterruptedException {
+        if (GameFieldArchive.isArchive(path)) {
+            try (GameFieldArchive archive = GameFieldArchive.open(path)) {
+                return scan(archive);
+            }
+        }
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            long size = channel.size();
+            long chunk = Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, size / (4L * threads) + 1));
+            List<Long> bounds = new ArrayList<>();
+            bounds.add(0L);
+            for (long position = chunk; position < size; position += chunk) {
+                long bound = nextLine(channel, Math.max(position, bounds.get(bounds.size() - 1)));
+                if (bound >= size)
+                    break;
+                if (bound > bounds.get(bounds.size() - 1))
+                    bounds.add(bound);
+            }
+            bounds.add(size);
+
+            Shards seen = findDuplicates ? new Shards() : null;
+            List<Callable<Tally>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.size(); i++) {
+                long from = bounds.get(i);
+                long to = bounds.get(i + 1);
+                tasks.add(() -> scanText(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from), from, seen));
+            }
+            return report(run(tasks), seen, start);
+        }
+    }
+
+    /**
+     * Проверяет все записи архива, разбивая их на диапазоны для потоков.
+     *
+     * @throws IllegalArgumentException если сторона поля больше {@link PuzzleFormat#MAX_SIZE}.
+     */
+    public ScanReport scan(GameFieldArchive archive) throws IOException, InterruptedException {
+        int side = archive.getCodec().getFieldSize().getRowCount();
+        if (side > PuzzleFormat.MAX_SIZE)
+            throw new IllegalArgumentException("Поддерживаются поля со стороной не больше " + PuzzleFormat.MAX_SIZE);
+        long start = System.nanoTime();
+        long size = archive.size();
+        long chunk = Math.max(1, size / (4L * threads) + 1);
+        Shards seen = findDuplicates ? new Shards() : null;
+        List<Callable<Tally>> tasks = new ArrayList<>();
+        for (long from = 0; from < size; from += chunk) {
+            long first = from;
+            long last = Math.min(size, from + chunk);
+            tasks.add(() -> scanArchive(archive, first, last, seen));
+        }
+        return report(run(tasks), seen, start);
+    }
+
+    private List<Tally> run(List<Callable<Tally>> tasks) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Tally> tallies = new ArrayList<>();
+            for (Future<Tally> future : executor.invokeAll(tasks))
+                tallies.add(future.get());
+            return tallies;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ScanReport report(List<Tally> tallies, Shards seen, long start) {
+        Tally total = new Tally();
+        for (Tally tally : tallies)
+            total.add(tally);
+        Map<Integer, Long> sizes = new TreeMap<>();
+        Map<Integer, long[]> clueCounts = new TreeMap<>();
+        for (int side = 1; side < total.sizes.length; side++) {
+            if (total.sizes[side] != 0) {
+                sizes.put(side, total.sizes[side]);
+                clueCounts.put(side, total.clueCounts[side]);
+            }
+        }
+        long puzzles = total.records - total.malformed;
+        return new ScanReport(total.records, total.malformed, total.inconsistent, total.conflicts,
+                seen == null ? -1 : puzzles - seen.size(), sizes, clueCounts, System.nanoTime() - start);
+    }
+
+    /**
+     * @return позиция после ближайшего перевода строки, начиная с {@code position}, или размер файла.
+     */
+    private static long nextLine(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0)
+                return channel.size();
+            for (int i = 0; i < read; i++)
+                if (buffer.get(i) == '\n')
+                    return position + i + 1;
+            position += read;
+        }
+    }
+
+    private Tally scanText(MappedByteBuffer buffer, long offset, Shards seen) {
+        Tally tally = new Tally();
+        Checker checker = new Checker(tally, seen);
+        int limit = buffer.limit();
+        int lineStart = 0;
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && buffer.get(i) != '\n')
+                continue;
+            int end = i;
+            if (end > lineStart && buffer.get(end - 1) == '\r')
+                end--;
+            if (end > lineStart) {
+                tally.records++;
+                int side = PuzzleFormat.side(end - lineStart);
+                int[] cells = checker.cells(end - lineStart);
+                if (side < 0 || !PuzzleFormat.parse(buffer, lineStart, end - lineStart, side, cells)) {
+                    tally.malformed++;
+                } else {
+                    int blockRows = PuzzleFormat.blockRows(side);
+                    checker.check(offset + lineStart, side, blockRows, side / blockRows);
+                }
+            }
+            lineStart = i + 1;
+        }
+        return tally;
+    }
+
+    private Tally scanArchive(GameFieldArchive archive, long from, long to, Shards seen) {
+        Tally tally = new Tally();
+        Checker checker = new Checker(tally, seen);
+        FieldSize fieldSize = archive.getCodec().getFieldSize();
+        FieldSize blockSize = archive.getCodec().getBlockSize();
+        int side = fieldSize.getRowCount();
+        int[] cells = checker.cells(fieldSize.getCellCount());
+        boolean[] fixed = new boolean[cells.length];
+        for (long index = from; index < to; index++) {
+            tally.records++;
+            archive.read(index, cells, fixed);
+            checker.check(index, side, blockSize.getRowCount(), blockSize.getColumnCount());
+        }
+        return tally;
+    }
+
+    /**
+     * Счётчики одного куска файла.
+     */
+    private static final class Tally {
+
+        long records;
+        long malformed;
+        long inconsistent;
+        long conflicts;
+        final long[] sizes = new long[PuzzleFormat.MAX_SIZE + 1];
+        final long[][] clueCounts = new long[PuzzleFormat.MAX_SIZE + 1][];
+
+        void count(int side, int clues) {
+            sizes[side]++;
+            if (clueCounts[side] == null)
+                clueCounts[side] = new long[side * side + 1];
+            clueCounts[side][clues]++;
+        }
+
+        void add(Tally other) {
+            records += other.records;
+            malformed += other.malformed;
+            inconsistent += other.inconsistent;
+            conflicts += other.conflicts;
+            for (int side = 0; side < sizes.length; side++) {
+                sizes[side] += other.sizes[side];
+                if (other.clueCounts[side] == null)
+                    continue;
+                if (clueCounts[side] == null)
+                    clueCounts[side] = new long[side * side + 1];
+                for (int clues = 0; clues < clueCounts[side].length; clues++)
+                    clueCounts[side][clues] += other.clueCounts[side][clues];
+            }
+        }
+    }
+
+    /**
+     * Проверка одной задачи масками групп. Массивы переиспользуются между задачами одного куска.
+     */
+    private final class Checker {
+
+        final Tally tally;
+        final Shards seen;
+        int[] cells = new int[0];
+        final long[] rows = new long[PuzzleFormat.MAX_SIZE];
+        final long[] columns = new long[PuzzleFormat.MAX_SIZE];
+        final long[] blocks = new long[PuzzleFormat.MAX_SIZE];
+
+        Checker(Tally tally, Shards seen) {
+            this.tally = tally;
+            this.seen = seen;
+        }
+
+        int[] cells(int length) {
+            if (cells.length != length)
+                cells = new int[length];
+            return cells;
+        }
+
+        void check(long record, int side, int blockRows, int blockColumns) {
+            for (int i = 0; i < side; i++) {
+                rows[i] = 0;
+                columns[i] = 0;
+                blocks[i] = 0;
+            }
+            int stacks = side / blockColumns;
+            int clues = 0;
+            int found = 0;
+            long hash = 0xcbf29ce484222325L ^ side;
+            for (int row = 0, cell = 0; row < side; row++) {
+                int bandStart = row / blockRows * stacks;
+                for (int column = 0; column < side; column++, cell++) {
+                    int value = cells[cell];
+                    hash = (hash ^ (value + 1)) * 0x100000001b3L;
+                    if (value < 0)
+                        continue;
+                    clues++;
+                    long bit = 1L << value;
+                    int block = bandStart + column / blockColumns;
+                    if ((rows[row] & bit) != 0)
+                        found += report(record, PuzzleConflict.Unit.ROW, side, blockRows, blockColumns, cell);
+                    if ((columns[column] & bit) != 0)
+                        found += report(record, PuzzleConflict.Unit.COLUMN, side, blockRows, blockColumns, cell);
+                    if ((blocks[block] & bit) != 0)
+                        found += report(record, PuzzleConflict.Unit.BLOCK, side, blockRows, blockColumns, cell);
+                    rows[row] |= bit;
+                    columns[column] |= bit;
+                    blocks[block] |= bit;
+                }
+            }
+            tally.count(side, clues);
+            if (found > 0) {
+                tally.inconsistent++;
+                tally.conflicts += found;
+            }
+            if (seen != null)
+                seen.add(mix(hash));
+        }
+
+        /**
+         * Находит клетку группы, в которой значение клетки {@code cell} встретилось раньше, и сообщает о нарушении.
+         */
+        private int report(long record, PuzzleConflict.Unit unit, int side, int blockRows, int blockColumns, int cell) {
+            int row = cell / side;
+            int column = cell % side;
+            int value = cells[cell];
+            int first = -1;
+            for (int other = 0; other < cell && first < 0; other++) {
+                int otherRow = other / side;
+                int otherColumn = other % side;
+                boolean same = unit == PuzzleConflict.Unit.ROW ? otherRow == row
+                        : unit == PuzzleConflict.Unit.COLUMN ? otherColumn == column
+                        : otherRow / blockRows == row / blockRows && otherColumn / blockColumns == column / blockColumns;
+                if (same && cells[other] == value)
+                    first = other;
+            }
+            conflicts.accept(new PuzzleConflict(record, unit, value,
+                    new CellPosition(first / side, first % side), new CellPosition(row, column)));
+            return 1;
+        }
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Множество хэшей задач, разбитое на части с отдельными блокировками, чтобы потоки редко мешали друг другу.
+     * Каждая часть — открытая адресация в массиве {@code long}, ноль обозначает пустую ячейку.
+     */
+    private static final class Shards {
+
+        private final Object[] locks = new Object[SHARDS];
+        private final long[][] tables = new long[SHARDS][];
+        private final int[] sizes = new int[SHARDS];
+
+        Shards() {
+            for (int i = 0; i < SHARDS; i++) {
+                locks[i] = new Object();
+                tables[i] = new long[1024];
+            }
+        }
+
+        void add(long hash) {
+            if (hash == 0)
+                hash = 1;
+            int shard = (int) (hash >>> 58);
+            synchronized (locks[shard]) {
+                insert(shard, hash);
+            }
+        }
+
+        private void insert(int shard, long hash) {
+            long[] table = tables[shard];
+            int mask = table.length - 1;
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                if (table[i] == hash)
+                    return;
+                if (table[i] == 0) {
+                    table[i] = hash;
+                    if (++sizes[shard] * 2 > table.length)
+                        grow(shard);
+                    return;
+                }
+            }
+        }
+
+        private void grow(int shard) {
+            long[] old = tables[shard];
+            long[] table = new long[old.length * 2];
+            int mask = table.length - 1;
+            for (long hash : old) {
+                if (hash == 0)
+                    continue;
+                int i = (int) hash & mask;
+                while (table[i] != 0)
+                    i = (i + 1) & mask;
+                table[i] = hash;
+            }
+            tables[shard] = table;
+        }
+
+        long size() {
+            long total = 0;
+            for (int size : sizes)
+                total += size;
+            return total;
+        }
+    }
+}
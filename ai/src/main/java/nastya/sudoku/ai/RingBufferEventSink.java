@@ -0,0 +1,80 @@
+package nastya.sudoku.ai;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Хранит последние события в кольцевом буфере; старые события затираются новыми.<br/>
+ * Каждое событие упаковано в одно {@code long}, поэтому запись не создаёт объектов,
+ * а читатель из другого потока никогда не видит наполовину записанное событие.
+ * Пишущий должен быть один, читающих — сколько угодно.<br/>
+ * Поддерживаются поля до 2<sup>20</sup> клеток со стороной меньше 2048.
+ */
+public class RingBufferEventSink implements SolverEventSink {
+
+    private static final int DEPTH_BITS = 20;
+    private static final int CELL_BITS = 20;
+    private static final int VALUE_BITS = 11;
+    private static final int EVENT_BITS = 3;
+    private static final int LAP_SHIFT = DEPTH_BITS + CELL_BITS + VALUE_BITS + EVENT_BITS;
+    private static final SolverEvent[] EVENTS = SolverEvent.values();
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final int lapShift;
+    private final AtomicLong written = new AtomicLong();
+
+    /**
+     * @param capacity сколько последних событий хранить, округляется вверх до степени двойки.
+     */
+    public RingBufferEventSink(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        slots = new AtomicLongArray(size);
+        mask = size - 1;
+        lapShift = Integer.numberOfTrailingZeros(size);
+    }
+
+    @Override
+    public void accept(SolverEvent event, int cell, int value, int depth) {
+        long sequence = written.get();
+        long packed = lap(sequence) << LAP_SHIFT
+                | (long) event.ordinal() << (DEPTH_BITS + CELL_BITS + VALUE_BITS)
+                | (long) (value + 1) << (DEPTH_BITS + CELL_BITS)
+                | (long) cell << DEPTH_BITS
+                | depth;
+        slots.lazySet((int) sequence & mask, packed);
+        written.lazySet(sequence + 1);
+    }
+
+    /**
+     * @return количество событий, записанных за всё время.
+     */
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * Передаёт в {@code consumer} сохранившиеся события с номерами от {@code from}.
+     * События, затёртые до того, как их успели прочитать, пропускаются.
+     *
+     * @return номер, с которого нужно продолжить чтение в следующий раз.
+     */
+    public long drain(long from, SolverEventSink consumer) {
+        long end = written.get();
+        for (long sequence = Math.max(from, end - slots.length()); sequence < end; sequence++) {
+            long packed = slots.get((int) sequence & mask);
+            if (packed >>> LAP_SHIFT != lap(sequence))
+                continue;
+            int depth = (int) (packed & ((1 << DEPTH_BITS) - 1));
+            int cell = (int) (packed >>> DEPTH_BITS & ((1 << CELL_BITS) - 1));
+            int value = (int) (packed >>> (DEPTH_BITS + CELL_BITS) & ((1 << VALUE_BITS) - 1)) - 1;
+            int event = (int) (packed >>> (DEPTH_BITS + CELL_BITS + VALUE_BITS) & ((1 << EVENT_BITS) - 1));
+            consumer.accept(EVENTS[event], cell, value, depth);
+        }
+        return end;
+    }
+
+    private long lap(long sequence) {
+        return (sequence >>> lapShift) & ((1L << (64 - LAP_SHIFT)) - 1);
+    }
+}
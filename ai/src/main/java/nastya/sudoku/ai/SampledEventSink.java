@@ -0,0 +1,32 @@
+package nastya.sudoku.ai;
+
+/**
+ * Передаёт другому приёмнику только каждое {@code period}-е событие.<br/>
+ * Рассчитан на одного пишущего.
+ */
+public class SampledEventSink implements SolverEventSink {
+
+    private final SolverEventSink delegate;
+    private final int period;
+    private int skipped;
+
+    public SampledEventSink(SolverEventSink delegate, int period) {
+        if (period <= 0)
+            throw new IllegalArgumentException("Период должен быть положительным: " + period);
+        this.delegate = delegate;
+        this.period = period;
+    }
+
+    @Override
+    public void accept(SolverEvent event, int cell, int value, int depth) {
+        if (++skipped < period)
+            return;
+        skipped = 0;
+        delegate.accept(event, cell, value, depth);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return delegate.isEnabled();
+    }
+}
@@ -0,0 +1,61 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.GameField;
+
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Решатель, сводящий поле к задаче выполнимости ({@link SudokuCnf}) и решающий её {@link CdclSolver}.<br/>
+ * Обучение на конфликтах решает многие поля 36x36 и 49x49 (блоки 6x6 и 7x7), на которых перебор не заканчивается,
+ * но отдельные поля, особенно заполненные примерно наполовину, и ему даются часами,
+ * поэтому долгий поиск стоит ограничивать через {@code cancelled}.
+ * Подходит для полей любого размера и вариантов с дополнительными группами, но не для сумм в клетках.
+ */
+public class SatSolver implements SudokuSolver {
+
+    private final BiConsumer<String, Object[]> logger;
+    private final BooleanSupplier cancelled;
+
+    public SatSolver(BiConsumer<String, Object[]> logger) {
+        this(logger, () -> false);
+    }
+
+    /**
+     * @param logger    приёмник итоговых сообщений.
+     * @param cancelled проверяется время от времени; если вернул {@code true}, поиск прекращается без решения.
+     */
+    public SatSolver(BiConsumer<String, Object[]> logger, BooleanSupplier cancelled) {
+        this.logger = logger;
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public boolean solve(GameField gameField) {
+        return solveWithMetrics(gameField).isSolved();
+    }
+
+    @Override
+    public SolverMetrics solveWithMetrics(GameField gameField) {
+        long start = System.nanoTime();
+        long allocated = SolverMetrics.allocatedBytes();
+        int[] cells = GameFields.toArray(gameField);
+        SudokuCnf cnf = SudokuCnf.encode(gameField);
+        CdclSolver sat = new CdclSolver(cnf.getVariableCount());
+        cnf.addTo(sat);
+        boolean solved = sat.solve(cancelled);
+        long solvedAt = System.nanoTime();
+        if (solved)
+            GameFields.write(gameField, cells, cnf.decode(sat));
+        SolverMetrics metrics = new SolverMetrics(solved, sat.getDecisions(), sat.getConflicts(), sat.getMaxLevel(),
+                sat.getPropagations(), solved ? solvedAt - start : -1,
+                System.nanoTime() - start, SolverMetrics.allocatedSince(allocated));
+
+        logger.accept("Решение " + (!solved ? "не " : "") + "найдено", null);
+        logger.accept("Переменных: %d, дизъюнктов: %d", new Object[]{cnf.getVariableCount(), cnf.getClauseCount()});
+        logger.accept("Ветвлений: %d, конфликтов: %d, перезапусков: %d",
+                new Object[]{sat.getDecisions(), sat.getConflicts(), sat.getRestarts()});
+        logger.accept("На поиск решения затрачено %d мс", new Object[]{metrics.getElapsedNanos() / 1_000_000});
+        return metrics;
+    }
+}
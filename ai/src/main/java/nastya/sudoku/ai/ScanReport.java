@@ -0,0 +1,82 @@
+package nastya.sudoku.ai;
+
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Итоги проверки набора задач {@link PuzzleScanner}.
+ */
+@Value
+public class ScanReport {
+
+    /**
+     * Количество записей, включая неразобранные.
+     */
+    long records;
+
+    /**
+     * Количество строк, которые не удалось разобрать: неверная длина или недопустимый символ.
+     */
+    long malformed;
+
+    /**
+     * Количество задач, в которых есть хотя бы одно нарушение правил.
+     */
+    long inconsistent;
+
+    /**
+     * Общее количество нарушений правил, см. {@link PuzzleConflict}.
+     */
+    long conflicts;
+
+    /**
+     * Количество задач, которые уже встречались раньше (совпадают все клетки).
+     * {@code -1}, если повторы не искались.
+     */
+    long duplicates;
+
+    /**
+     * Количество задач каждой стороны поля.
+     */
+    Map<Integer, Long> sizes;
+
+    /**
+     * Для каждой стороны поля: сколько задач имеют данное количество подсказок (индекс массива).
+     */
+    Map<Integer, long[]> clueCounts;
+
+    long elapsedNanos;
+
+    /**
+     * @return количество записей в секунду.
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(String.format(
+                "Записей: %d, не разобрано: %d, с нарушениями: %d, нарушений: %d, повторов: %s, время: %d мс, записей в секунду: %.1f",
+                records, malformed, inconsistent, conflicts, duplicates < 0 ? "не искались" : String.valueOf(duplicates),
+                elapsedNanos / 1_000_000, getThroughput()));
+        for (Map.Entry<Integer, Long> size : sizes.entrySet()) {
+            long[] clues = clueCounts.get(size.getKey());
+            int min = -1;
+            int max = 0;
+            long total = 0;
+            for (int count = 0; count < clues.length; count++) {
+                if (clues[count] == 0)
+                    continue;
+                if (min < 0)
+                    min = count;
+                max = count;
+                total += clues[count] * count;
+            }
+            result.append(String.format("%n%dx%d: задач %d, подсказок от %d до %d, в среднем %.1f",
+                    size.getKey(), size.getKey(), size.getValue(), min, max, (double) total / size.getValue()));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,156 @@
+package nastya.sudoku.ai;
+
+import lombok.Value;
+import nastya.sudoku.commons.FieldSize;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Потокобезопасный кэш решений, ключом которого служит {@link CanonicalForm} поля.<br/>
+ * Хранит не больше {@code maxSize} решений и не дольше {@code maxAge}: при переполнении
+ * и по истечении срока первыми вытесняются самые старые записи.
+ * Решения хранятся в канонической нумерации, см. {@link CachingSolver}.
+ */
+public class SolutionCache implements SolutionCacheMBean {
+
+    private final int maxSize;
+    private final long maxAgeNanos;
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Записи в порядке добавления; может содержать уже удалённые записи.
+     */
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize наибольшее количество решений в кэше.
+     * @param maxAge  сколько хранить решение.
+     */
+    public SolutionCache(int maxSize, long maxAge, TimeUnit unit) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Размер кэша должен быть положительным: " + maxSize);
+        this.maxSize = maxSize;
+        this.maxAgeNanos = unit.toNanos(maxAge);
+    }
+
+    /**
+     * @return решение канонического поля {@code form} или {@code null}, если его нет в кэше.
+     */
+    public int[] get(CanonicalForm form) {
+        Entry entry = entries.get(new Key(form.getFieldSize(), form.getBlockSize(), form.getCells()));
+        if (entry != null && isExpired(entry, System.nanoTime())) {
+            if (entries.remove(entry.key, entry))
+                evictions.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.solution;
+    }
+
+    /**
+     * Запоминает решение канонического поля {@code form}; массив {@code solution} не должен изменяться после вызова.
+     */
+    public void put(CanonicalForm form, int[] solution) {
+        Key key = new Key(form.getFieldSize(), form.getBlockSize(), form.getCells());
+        Entry entry = new Entry(key, solution, System.nanoTime());
+        if (entries.putIfAbsent(key, entry) == null)
+            order.add(entry);
+        evict(entry.created);
+    }
+
+    private void evict(long now) {
+        while (true) {
+            Entry eldest = order.peek();
+            if (eldest == null || entries.size() <= maxSize && !isExpired(eldest, now))
+                return;
+            if (order.remove(eldest) && entries.remove(eldest.key, eldest))
+                evictions.increment();
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.created > maxAgeNanos;
+    }
+
+    /**
+     * Регистрирует кэш в платформенном MBean-сервере
+     * под именем {@code nastya.sudoku:type=SolutionCache,name=<name>}.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("nastya.sudoku:type=SolutionCache,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return количество записей, вытесненных по размеру или сроку хранения.
+     */
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+        order.clear();
+    }
+
+    @Value
+    private static class Key {
+        FieldSize fieldSize;
+        FieldSize blockSize;
+        int[] cells;
+    }
+
+    private static final class Entry {
+
+        final Key key;
+        final int[] solution;
+        final long created;
+
+        Entry(Key key, int[] solution, long created) {
+            this.key = key;
+            this.solution = solution;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package nastya.sudoku.ai;
+
+/**
+ * Интерфейс {@link SolutionCache} для JMX.
+ */
+public interface SolutionCacheMBean {
+
+    int getSize();
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    double getHitRatio();
+
+    void clear();
+}
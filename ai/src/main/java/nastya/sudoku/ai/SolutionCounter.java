@@ -0,0 +1,126 @@
+package nastya.sudoku.ai;
+
+/**
+ * Считает решения поля, заданного плоским массивом значений, но не больше заданного предела.<br/>
+ * Использует {@link CandidateBoard} и одиночки из {@link Propagator}: для подсчёта они окупаются лучше,
+ * чем более дорогие правила. Поддерживает поля со стороной не больше 64.<br/>
+ * Объект переиспользуется между вызовами и не потокобезопасен.
+ */
+class SolutionCounter {
+
+    static final int EXPIRED = -1;
+
+    private final CandidateBoard board;
+    private final Propagator propagator = new Propagator(PropagationRule.HIDDEN_SINGLE);
+    private final CandidateBoard[] saved;
+    private final int blockRows;
+    private final int blockColumns;
+
+    private boolean hasDeadline;
+    private long deadline;
+    private boolean expired;
+    private long nodes;
+
+    SolutionCounter(int size, int blockRows, int blockColumns) {
+        board = new CandidateBoard(size, blockRows, blockColumns);
+        saved = new CandidateBoard[board.cellCount + 1];
+        this.blockRows = blockRows;
+        this.blockColumns = blockColumns;
+    }
+
+    /**
+     * @return {@code true}, если счётчик построен для полей такой геометрии.
+     */
+    boolean fits(int size, int blockRows, int blockColumns) {
+        return board.size == size && this.blockRows == blockRows && this.blockColumns == blockColumns;
+    }
+
+    /**
+     * @param cells значения клеток построчно, {@code -1} для неизвестных.
+     * @param limit после скольких найденных решений прекратить поиск.
+     * @return количество решений, не больше {@code limit}.
+     */
+    int count(int[] cells, int limit) {
+        return run(cells, limit, false, 0);
+    }
+
+    /**
+     * @param deadline момент по {@link System#nanoTime()}, после которого поиск прекращается.
+     * @return количество решений, не больше {@code limit}, или {@link #EXPIRED}, если время вышло.
+     */
+    int count(int[] cells, int limit, long deadline) {
+        return run(cells, limit, true, deadline);
+    }
+
+    private int run(int[] cells, int limit, boolean hasDeadline, long deadline) {
+        this.hasDeadline = hasDeadline;
+        this.deadline = deadline;
+        expired = false;
+        if (!board.load(cells))
+            return 0;
+        int found = count(0, limit, 0);
+        return expired ? EXPIRED : found;
+    }
+
+    /**
+     * Проверяет, есть ли у поля решение, отличное от известного, в котором клетки {@code removedCells}
+     * имеют значения {@code removedValues}. Это быстрее, чем считать решения до двух,
+     * потому что одно решение уже известно и искать его заново не нужно.
+     *
+     * @return {@code 1}, если другого решения нет, {@code 2}, если есть,
+     * или {@link #EXPIRED}, если время вышло.
+     */
+    int countWithKnownSolution(int[] cells, int[] removedCells, int[] removedValues, int removedCount, long deadline) {
+        hasDeadline = true;
+        this.deadline = deadline;
+        expired = false;
+        for (int i = 0; i < removedCount; i++) {
+            // Ищем решение, в котором первые i клеток совпадают с известным, а i-я отличается.
+            if (!board.load(cells))
+                return 1;
+            boolean consistent = true;
+            for (int k = 0; k < i && consistent; k++)
+                consistent = board.assign(removedCells[k], removedValues[k]);
+            if (!consistent || board.eliminate(removedCells[i], 1L << removedValues[i]) < 0)
+                continue;
+            int found = count(0, 1, 0);
+            if (expired)
+                return EXPIRED;
+            if (found > 0)
+                return 2;
+        }
+        return 1;
+    }
+
+    /**
+     * @return количество узлов дерева поиска, посещённых за всё время.
+     */
+    long getNodes() {
+        return nodes;
+    }
+
+    private int count(int depth, int limit, int found) {
+        if ((++nodes & 0xFF) == 0 && hasDeadline && System.nanoTime() - deadline > 0)
+            expired = true;
+        if (expired || !propagator.propagate(board))
+            return found;
+        int cell = board.bestCell();
+        if (cell < 0)
+            return found + 1;
+
+        if (saved[depth] == null)
+            saved[depth] = new CandidateBoard(board);
+        else
+            saved[depth].copyFrom(board);
+
+        long variants = board.candidates[cell];
+        while (variants != 0 && found < limit && !expired) {
+            int value = Long.numberOfTrailingZeros(variants);
+            variants &= variants - 1;
+            if (board.assign(cell, value))
+                found = count(depth + 1, limit, found);
+            board.copyFrom(saved[depth]);
+        }
+        return found;
+    }
+}
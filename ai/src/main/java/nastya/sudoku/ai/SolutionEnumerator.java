@@ -0,0 +1,182 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.ConstraintModel;
+import nastya.sudoku.commons.FieldGeometry;
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.commons.GameField;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Ленивый перебор решений поля, но не больше заданного предела.<br/>
+ * Поиск идёт по {@link CandidateBoard} с явным стеком вместо рекурсии, поэтому останавливается
+ * после каждого найденного решения и продолжается, только когда вызывающий просит следующее.
+ * Решение выдаётся как массив значений клеток построчно, {@code GameField} для него не создаётся.<br/>
+ * Без создания объектов решения можно перебирать через {@link #advance()} и {@link #current()};
+ * {@link #next()} и {@link #stream()} возвращают копию каждого решения.<br/>
+ * Поддерживает поля со стороной не больше 64. Объект не потокобезопасен.
+ */
+public class SolutionEnumerator implements Iterator<int[]> {
+
+    private final CandidateBoard board;
+    private final Propagator propagator = new Propagator(PropagationRule.HIDDEN_SINGLE);
+    private final long limit;
+
+    /**
+     * Точки ветвления: состояние поля до выбора, клетка и ещё не опробованные значения.
+     */
+    private final CandidateBoard[] saved;
+    private final int[] branchCells;
+    private final long[] remaining;
+    private int depth;
+
+    private boolean started;
+    private boolean finished;
+    private boolean ready;
+    private long produced;
+    private long nodes;
+
+    /**
+     * @param limit после скольких решений прекратить перебор.
+     */
+    public SolutionEnumerator(GameField gameField, long limit) {
+        this(gameField.getConstraints(), GameFields.toArray(gameField), limit);
+    }
+
+    /**
+     * @param cells значения клеток построчно, {@code -1} для неизвестных.
+     * @param limit после скольких решений прекратить перебор.
+     */
+    public SolutionEnumerator(FieldSize fieldSize, FieldSize blockSize, int[] cells, long limit) {
+        this(FieldGeometry.of(fieldSize, blockSize).getConstraints(), cells, limit);
+    }
+
+    /**
+     * @param constraints правила поля, например вариант судоку.
+     * @param cells       значения клеток построчно, {@code -1} для неизвестных.
+     * @param limit       после скольких решений прекратить перебор.
+     */
+    public SolutionEnumerator(ConstraintModel constraints, int[] cells, long limit) {
+        board = new CandidateBoard(constraints);
+        saved = new CandidateBoard[board.cellCount];
+        branchCells = new int[board.cellCount];
+        remaining = new long[board.cellCount];
+        this.limit = limit;
+        finished = !board.load(cells);
+    }
+
+    /**
+     * @return количество решений поля, но не больше {@code limit}.
+     */
+    public static long count(GameField gameField, long limit) {
+        return new SolutionEnumerator(gameField, limit).count();
+    }
+
+    public static boolean isUnique(GameField gameField) {
+        return count(gameField, 2) == 1;
+    }
+
+    /**
+     * Переходит к следующему решению.
+     *
+     * @return {@code false}, если решений больше нет или достигнут предел.
+     */
+    public boolean advance() {
+        if (ready) {
+            ready = false;
+            return true;
+        }
+        if (finished || produced >= limit)
+            return false;
+
+        boolean expand = !started;
+        started = true;
+        while (true) {
+            if (expand) {
+                nodes++;
+                if (propagator.propagate(board)) {
+                    int cell = board.bestCell();
+                    if (cell < 0) {
+                        produced++;
+                        return true;
+                    }
+                    push(cell);
+                }
+            }
+
+            while (depth > 0 && remaining[depth - 1] == 0)
+                depth--;
+            if (depth == 0) {
+                finished = true;
+                return false;
+            }
+            int level = depth - 1;
+            int value = Long.numberOfTrailingZeros(remaining[level]);
+            remaining[level] &= remaining[level] - 1;
+            board.copyFrom(saved[level]);
+            expand = board.assign(branchCells[level], value);
+        }
+    }
+
+    /**
+     * @return значения клеток текущего решения построчно. Массив меняется при следующем вызове {@link #advance()}.
+     */
+    public int[] current() {
+        return board.values;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready)
+            ready = advance();
+        return ready;
+    }
+
+    @Override
+    public int[] next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        ready = false;
+        return current().clone();
+    }
+
+    /**
+     * @return поток оставшихся решений; следующее решение ищется, только когда поток его запрашивает.
+     */
+    public Stream<int[]> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * @return количество оставшихся решений, но так, чтобы всего решений было не больше {@code limit}.
+     */
+    public long count() {
+        long count = 0;
+        while (advance())
+            count++;
+        return count;
+    }
+
+    /**
+     * @return количество узлов дерева поиска, посещённых за всё время.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    private void push(int cell) {
+        if (saved[depth] == null)
+            saved[depth] = new CandidateBoard(board);
+        else
+            saved[depth].copyFrom(board);
+        branchCells[depth] = cell;
+        remaining[depth] = board.candidates[cell];
+        depth++;
+    }
+}
@@ -1,63 +1,115 @@
 package nastya.sudoku.ai;
 
 import nastya.sudoku.commons.CellPosition;
+import nastya.sudoku.commons.FieldGeometry;
 import nastya.sudoku.commons.GameField;
 
-import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static java.util.Comparator.comparingInt;
 
-public class Solver {
+public class Solver implements SudokuSolver {
 
     private final BiConsumer<String, Object[]> logger;
+    private final SolverEventSink events;
+    private final BooleanSupplier cancelled;
 
     public Solver(BiConsumer<String, Object[]> logger) {
+        this(logger, SolverEventSink.NONE);
+    }
+
+    public Solver(BiConsumer<String, Object[]> logger, SolverEventSink events) {
+        this(logger, events, () -> false);
+    }
+
+    /**
+     * @param logger    приёмник итоговых сообщений.
+     * @param events    приёмник событий каждого шага поиска.
+     * @param cancelled проверяется перед каждым шагом; если вернул {@code true}, поиск прекращается без решения.
+     */
+    public Solver(BiConsumer<String, Object[]> logger, SolverEventSink events, BooleanSupplier cancelled) {
         this.logger = logger;
+        this.events = events;
+        this.cancelled = cancelled;
     }
 
+    @Override
     public boolean solve(GameField gameField) {
-        LocalDateTime start = LocalDateTime.now();
-        boolean solved = new InternalSolver(gameField).solve();
+        return solveWithMetrics(gameField).isSolved();
+    }
+
+    @Override
+    public SolverMetrics solveWithMetrics(GameField gameField) {
+        long start = System.nanoTime();
+        long allocated = SolverMetrics.allocatedBytes();
+        InternalSolver solver = new InternalSolver(gameField);
+        boolean solved = solver.solve();
+        SolverMetrics metrics = new SolverMetrics(solved, solver.nodes, solver.backtracks, solver.maxDepth, 0,
+                solved ? solver.solvedAt - start : -1, System.nanoTime() - start, SolverMetrics.allocatedSince(allocated));
         logger.accept("Решение " + (!solved ? "не " : "") + "найдено", null);
-        logger.accept("На поиск решения затрачено %d мс", new Object[]{Duration.between(start, LocalDateTime.now()).toMillis()});
-        return solved;
+        logger.accept("На поиск решения затрачено %d мс", new Object[]{metrics.getElapsedNanos() / 1_000_000});
+        return metrics;
     }
 
     private class InternalSolver {
 
         final GameField gameField;
+        final FieldGeometry geometry;
         final Set<CellPosition> unknown;
 
+        /**
+         * Нужны ли события приёмнику; проверяется один раз, чтобы без приёмника шаги не тратили время на события.
+         */
+        final boolean eventsEnabled;
+        int depth;
+        int maxDepth;
+        long nodes;
+        long backtracks;
+        long solvedAt;
+
         InternalSolver(GameField gameField) {
             this.gameField = gameField;
+            geometry = gameField.getGeometry();
             unknown = gameField.allPositions()
                     .filter(pos -> !gameField.isKnown(pos))
                     .collect(Collectors.toSet());
+            eventsEnabled = events.isEnabled();
         }
 
         boolean solve() {
-            if (unknown.isEmpty())
+            nodes++;
+            if (unknown.isEmpty()) {
+                solvedAt = System.nanoTime();
                 return true;
+            }
+            if (cancelled.getAsBoolean())
+                return false;
 
             CellPosition bestPosition = unknown.stream()
                     .min(comparingInt(this::countAvailableVariants))
                     .get();
 
             unknown.remove(bestPosition);
+            int cell = eventsEnabled ? geometry.index(bestPosition) : -1;
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
             for (int x = 0; x < gameField.getFieldSize().getRowCount(); x++)
                 if (gameField.setValue(bestPosition, x)) {
-                    logger.accept("Ставлю на клетку %s значение %d", new Object[]{bestPosition, x});
+                    if (eventsEnabled)
+                        events.accept(SolverEvent.PLACE, cell, x, depth);
                     if (solve())
                         return true;
+                    backtracks++;
                 }
+            depth--;
             unknown.add(bestPosition);
 
-            logger.accept("Стираю значение с клетки %s", new Object[]{bestPosition});
+            if (eventsEnabled)
+                events.accept(SolverEvent.ERASE, cell, -1, depth);
             gameField.setValue(bestPosition, null);
             return false;
         }
@@ -0,0 +1,30 @@
+package nastya.sudoku.ai;
+
+/**
+ * Виды событий, о которых решатель сообщает {@link SolverEventSink}.
+ */
+public enum SolverEvent {
+
+    /**
+     * В клетку поставлено значение.
+     */
+    PLACE("Ставлю на клетку %s значение %d"),
+
+    /**
+     * Значение клетки стёрто при возврате.
+     */
+    ERASE("Стираю значение с клетки %s");
+
+    private final String format;
+
+    SolverEvent(String format) {
+        this.format = format;
+    }
+
+    /**
+     * @return шаблон сообщения для {@link String#format}: позиция клетки и значение.
+     */
+    public String getFormat() {
+        return format;
+    }
+}
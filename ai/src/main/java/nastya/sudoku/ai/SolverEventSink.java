@@ -0,0 +1,55 @@
+package nastya.sudoku.ai;
+
+/**
+ * Приёмник событий решателя. Аргументы передаются примитивами,
+ * поэтому сообщение о событии не создаёт объектов.
+ */
+@FunctionalInterface
+public interface SolverEventSink {
+
+    /**
+     * Приёмник, который ничего не делает.
+     */
+    SolverEventSink NONE = new SolverEventSink() {
+        @Override
+        public void accept(SolverEvent event, int cell, int value, int depth) {
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * @param cell  номер клетки, построчно.
+     * @param value значение клетки или {@code -1}, если значения нет.
+     * @param depth глубина поиска.
+     */
+    void accept(SolverEvent event, int cell, int value, int depth);
+
+    /**
+     * @return {@code false}, если приёмнику не нужны события и их можно не готовить.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @return приёмник, передающий каждое событие сначала этому приёмнику, затем {@code other}.
+     */
+    default SolverEventSink andThen(SolverEventSink other) {
+        return new SolverEventSink() {
+            @Override
+            public void accept(SolverEvent event, int cell, int value, int depth) {
+                SolverEventSink.this.accept(event, cell, value, depth);
+                other.accept(event, cell, value, depth);
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return SolverEventSink.this.isEnabled() || other.isEnabled();
+            }
+        };
+    }
+}
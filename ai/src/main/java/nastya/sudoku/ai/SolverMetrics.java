@@ -0,0 +1,76 @@
+package nastya.sudoku.ai;
+
+import lombok.Value;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Метрики одного решения поля, см. {@link SudokuSolver#solveWithMetrics}.
+ * Метрики, которые решатель не считает, равны {@code 0}, а недоступные — {@code -1}.
+ */
+@Value
+public class SolverMetrics {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    boolean solved;
+
+    /**
+     * Количество посещённых узлов дерева поиска.
+     */
+    long nodes;
+
+    /**
+     * Количество отменённых выборов значения.
+     */
+    long backtracks;
+
+    /**
+     * Наибольшая глубина поиска.
+     */
+    int maxDepth;
+
+    /**
+     * Количество значений, поставленных и убранных из кандидатов правилами распространения.
+     */
+    long eliminations;
+
+    /**
+     * Время от начала решения до нахождения первого решения или {@code -1}, если решение не найдено.
+     */
+    long firstSolutionNanos;
+
+    long elapsedNanos;
+
+    /**
+     * Количество байт, выделенных вызывающим потоком за время решения, или {@code -1},
+     * если JVM этого не поддерживает. Выделения в других потоках (например, у {@link ParallelSolver}) не учитываются.
+     */
+    long allocatedBytes;
+
+    /**
+     * @return количество байт, выделенных текущим потоком за всё время, или {@code -1}, если JVM этого не поддерживает.
+     */
+    static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled())
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * @param before результат {@link #allocatedBytes()} в начале измерения.
+     */
+    static long allocatedSince(long before) {
+        return before < 0 ? -1 : allocatedBytes() - before;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Решение %sнайдено: узлов %d, возвратов %d, глубина %d, исключений %d, %d мкс, выделено %d байт",
+                solved ? "" : "не ", nodes, backtracks, maxDepth, eliminations, elapsedNanos / 1000, allocatedBytes);
+    }
+}
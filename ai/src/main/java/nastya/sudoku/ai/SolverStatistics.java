@@ -0,0 +1,173 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.GameField;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Накопленные по многим решениям {@link SolverMetrics}: количество решений и гистограммы метрик.<br/>
+ * Запись не блокирует потоки, поэтому статистику можно собирать под нагрузкой из любого числа потоков
+ * и смотреть через JMX после {@link #register(String)}.
+ */
+public class SolverStatistics implements SolverStatisticsMBean {
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot());
+
+    /**
+     * Гистограммы одного периода сбора; {@link #reset()} заменяет их целиком.
+     */
+    private static final class Snapshot {
+        final LongAdder solves = new LongAdder();
+        final LongAdder solved = new LongAdder();
+        final Histogram nodes = new Histogram();
+        final Histogram backtracks = new Histogram();
+        final Histogram maxDepth = new Histogram();
+        final Histogram eliminations = new Histogram();
+        final Histogram elapsedNanos = new Histogram();
+        final Histogram firstSolutionNanos = new Histogram();
+        final Histogram allocatedBytes = new Histogram();
+    }
+
+    public void record(SolverMetrics metrics) {
+        Snapshot s = current.get();
+        s.solves.increment();
+        if (metrics.isSolved())
+            s.solved.increment();
+        s.nodes.record(metrics.getNodes());
+        s.backtracks.record(metrics.getBacktracks());
+        s.maxDepth.record(metrics.getMaxDepth());
+        s.eliminations.record(metrics.getEliminations());
+        s.elapsedNanos.record(metrics.getElapsedNanos());
+        if (metrics.getFirstSolutionNanos() >= 0)
+            s.firstSolutionNanos.record(metrics.getFirstSolutionNanos());
+        if (metrics.getAllocatedBytes() >= 0)
+            s.allocatedBytes.record(metrics.getAllocatedBytes());
+    }
+
+    /**
+     * @return решатель, который решает с помощью {@code solver} и записывает метрики каждого решения сюда.
+     */
+    public SudokuSolver wrap(SudokuSolver solver) {
+        return new SudokuSolver() {
+            @Override
+            public boolean solve(GameField gameField) {
+                return solveWithMetrics(gameField).isSolved();
+            }
+
+            @Override
+            public SolverMetrics solveWithMetrics(GameField gameField) {
+                SolverMetrics metrics = solver.solveWithMetrics(gameField);
+                record(metrics);
+                return metrics;
+            }
+        };
+    }
+
+    /**
+     * Регистрирует статистику в платформенном MBean-сервере
+     * под именем {@code nastya.sudoku:type=SolverStatistics,name=<name>}.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("nastya.sudoku:type=SolverStatistics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public Histogram getNodes() {
+        return current.get().nodes;
+    }
+
+    public Histogram getBacktracks() {
+        return current.get().backtracks;
+    }
+
+    public Histogram getElapsedNanos() {
+        return current.get().elapsedNanos;
+    }
+
+    public Histogram getAllocatedBytes() {
+        return current.get().allocatedBytes;
+    }
+
+    @Override
+    public long getSolves() {
+        return current.get().solves.sum();
+    }
+
+    @Override
+    public long getSolved() {
+        return current.get().solved.sum();
+    }
+
+    @Override
+    public double getMeanNodes() {
+        return current.get().nodes.getMean();
+    }
+
+    @Override
+    public long getNodesP99() {
+        return current.get().nodes.getPercentile(99);
+    }
+
+    @Override
+    public long getMaxNodes() {
+        return current.get().nodes.getMax();
+    }
+
+    @Override
+    public double getMeanBacktracks() {
+        return current.get().backtracks.getMean();
+    }
+
+    @Override
+    public long getMaxDepth() {
+        return current.get().maxDepth.getMax();
+    }
+
+    @Override
+    public double getMeanEliminations() {
+        return current.get().eliminations.getMean();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return current.get().elapsedNanos.getMean() / 1e6;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return current.get().elapsedNanos.getPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return current.get().elapsedNanos.getPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return current.get().elapsedNanos.getMax() / 1e6;
+    }
+
+    @Override
+    public double getMeanFirstSolutionMillis() {
+        return current.get().firstSolutionNanos.getMean() / 1e6;
+    }
+
+    @Override
+    public double getMeanAllocatedBytes() {
+        return current.get().allocatedBytes.getMean();
+    }
+
+    /**
+     * Начинает сбор статистики заново.
+     */
+    @Override
+    public void reset() {
+        current.set(new Snapshot());
+    }
+}
@@ -0,0 +1,37 @@
+package nastya.sudoku.ai;
+
+/**
+ * Интерфейс {@link SolverStatistics} для JMX.
+ */
+public interface SolverStatisticsMBean {
+
+    long getSolves();
+
+    long getSolved();
+
+    double getMeanNodes();
+
+    long getNodesP99();
+
+    long getMaxNodes();
+
+    double getMeanBacktracks();
+
+    long getMaxDepth();
+
+    double getMeanEliminations();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    double getMeanFirstSolutionMillis();
+
+    double getMeanAllocatedBytes();
+
+    void reset();
+}
@@ -0,0 +1,51 @@
+package nastya.sudoku.ai;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Перечисление доступных решателей.
+ */
+public enum SolverType {
+
+    /**
+     * Перебор с возвратом, {@link Solver}.
+     */
+    BACKTRACKING(Solver::new),
+
+    /**
+     * Точное покрытие на "танцующих ссылках", {@link DlxSolver}.
+     */
+    DANCING_LINKS(DlxSolver::new),
+
+    /**
+     * Поиск с распространением ограничений, {@link PropagatingSolver}.
+     */
+    PROPAGATION(PropagatingSolver::new),
+
+    /**
+     * Поиск с распространением ограничений, эвристиками выбора клетки и значения и перезапусками,
+     * {@link HeuristicSolver}.
+     */
+    HEURISTIC(HeuristicSolver::new),
+
+    /**
+     * Сведение к задаче выполнимости и решение CDCL, {@link SatSolver}.
+     */
+    SAT(SatSolver::new),
+
+    /**
+     * Поиск с распространением ограничений на нескольких потоках, {@link ParallelSolver}.
+     */
+    PARALLEL(ParallelSolver::new);
+
+    private final Function<BiConsumer<String, Object[]>, SudokuSolver> constructor;
+
+    SolverType(Function<BiConsumer<String, Object[]>, SudokuSolver> constructor) {
+        this.constructor = constructor;
+    }
+
+    public SudokuSolver create(BiConsumer<String, Object[]> logger) {
+        return constructor.apply(logger);
+    }
+}
@@ -0,0 +1,216 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.ConstraintModel;
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.commons.GameField;
+import nastya.sudoku.game.BitmaskGameFieldImpl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Кодирование поля в КНФ для {@link CdclSolver}: переменная "в клетке стоит значение" заводится только для
+ * неизвестных клеток и значений, которые не исключены известными соседями.
+ * В каждой клетке ровно одно значение, в каждой группе из {@link ConstraintModel} каждое значение ровно один раз.<br/>
+ * "Хотя бы одно" записывается одним дизъюнктом, "не больше одного" — попарно для коротких списков
+ * и последовательным счётчиком (Sinz) для длинных, чтобы поля 36x36 и 49x49 не давали миллионов дизъюнктов.
+ * Известные клетки в формулу не попадают, поэтому решения формулы и поля совпадают.<br/>
+ * Суммы в клетках не поддерживаются.
+ */
+public class SudokuCnf {
+
+    /**
+     * Наибольшая длина списка, для которого "не больше одного" записывается попарно.
+     */
+    private static final int PAIRWISE_LIMIT = 16;
+
+    private final int size;
+    private final int[] cells;
+
+    /**
+     * Номер переменной для {@code cell * size + value} или {@code 0}, если значение в клетке невозможно.
+     */
+    private final int[] variables;
+    private int variableCount;
+
+    /**
+     * Дизъюнкты подряд, каждый завершается нулём, как в DIMACS.
+     */
+    private int[] literals = new int[1 << 12];
+    private int literalCount;
+    private int clauseCount;
+    private final int[] buffer;
+
+    private SudokuCnf(ConstraintModel constraints, int[] cells) {
+        size = constraints.getSize();
+        this.cells = cells;
+        variables = new int[cells.length * size];
+        buffer = new int[size];
+
+        boolean[] excluded = new boolean[cells.length * size];
+        int[][] peers = constraints.getPeers();
+        for (int cell = 0; cell < cells.length; cell++) {
+            int value = cells[cell];
+            if (value < 0)
+                continue;
+            for (int peer : peers[cell]) {
+                if (cells[peer] == value)
+                    addClause(0);
+                excluded[peer * size + value] = true;
+            }
+        }
+        for (int cell = 0; cell < cells.length; cell++)
+            if (cells[cell] < 0)
+                for (int value = 0; value < size; value++)
+                    if (!excluded[cell * size + value])
+                        variables[cell * size + value] = ++variableCount;
+
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] >= 0)
+                continue;
+            int count = 0;
+            for (int value = 0; value < size; value++)
+                if (variables[cell * size + value] != 0)
+                    buffer[count++] = variables[cell * size + value];
+            exactlyOne(count);
+        }
+        for (int[] unit : constraints.getUnits()) {
+            for (int value = 0; value < size; value++) {
+                int count = 0;
+                boolean placed = false;
+                for (int cell : unit) {
+                    placed |= cells[cell] == value;
+                    if (variables[cell * size + value] != 0)
+                        buffer[count++] = variables[cell * size + value];
+                }
+                if (!placed)
+                    exactlyOne(count);
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException если в правилах поля есть суммы.
+     */
+    public static SudokuCnf encode(GameField gameField) {
+        ConstraintModel constraints = gameField.getConstraints();
+        if (constraints.getCages().length > 0)
+            throw new IllegalArgumentException("Суммы в клетках не поддерживаются");
+        return new SudokuCnf(constraints, GameFields.toArray(gameField));
+    }
+
+    /**
+     * Записывает первую задачу из файла в формате {@link PuzzleFormat} или задачу с номером {@code [номер]}
+     * в формате DIMACS в стандартный вывод.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Использование: SudokuCnf <файл задач> [номер строки, с нуля]");
+            return;
+        }
+        List<String> lines = Files.readAllLines(Paths.get(args[0]), StandardCharsets.US_ASCII);
+        String line = lines.get(args.length > 1 ? Integer.parseInt(args[1]) : 0).trim();
+        int side = PuzzleFormat.side(line.length());
+        int[] cells = new int[line.length()];
+        if (side < 0 || !PuzzleFormat.parse(line.getBytes(StandardCharsets.US_ASCII), side, cells))
+            throw new IllegalArgumentException("Не удалось разобрать задачу: " + line);
+        int blockRows = PuzzleFormat.blockRows(side);
+        GameField gameField = new BitmaskGameFieldImpl(new FieldSize(side, side),
+                new FieldSize(blockRows, side / blockRows), cells);
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII));
+        encode(gameField).writeDimacs(out);
+        out.flush();
+    }
+
+    public int getVariableCount() {
+        return variableCount;
+    }
+
+    public int getClauseCount() {
+        return clauseCount;
+    }
+
+    /**
+     * Записывает формулу в формате DIMACS. Строки комментариев {@code c v <переменная> <строка> <столбец> <значение>}
+     * связывают переменные с клетками (с нуля), чтобы можно было прочитать решение внешнего решателя;
+     * вспомогательные переменные счётчиков в них не упоминаются.
+     */
+    public void writeDimacs(Writer out) throws IOException {
+        out.write("c sudoku " + size + "x" + size + ", known cells are not encoded\n");
+        for (int i = 0; i < variables.length; i++)
+            if (variables[i] != 0)
+                out.write("c v " + variables[i] + " " + i / size / size + " " + i / size % size + " " + i % size + "\n");
+        out.write("p cnf " + variableCount + " " + clauseCount + "\n");
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < literalCount; i++) {
+            line.append(literals[i]);
+            if (literals[i] == 0) {
+                out.write(line.append('\n').toString());
+                line.setLength(0);
+            } else {
+                line.append(' ');
+            }
+        }
+    }
+
+    void addTo(CdclSolver solver) {
+        int start = 0;
+        for (int i = 0; i < literalCount; i++) {
+            if (literals[i] == 0) {
+                solver.addClause(literals, start, i);
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * @return значения всех клеток по набору значений переменных, найденному {@code solver}.
+     */
+    int[] decode(CdclSolver solver) {
+        int[] solution = cells.clone();
+        for (int i = 0; i < variables.length; i++)
+            if (variables[i] != 0 && solver.value(variables[i]))
+                solution[i / size] = i % size;
+        return solution;
+    }
+
+    /**
+     * Требует, чтобы из первых {@code count} переменных {@link #buffer} истинной была ровно одна.
+     */
+    private void exactlyOne(int count) {
+        addClause(count, buffer);
+        if (count <= PAIRWISE_LIMIT) {
+            for (int i = 0; i < count; i++)
+                for (int j = i + 1; j < count; j++)
+                    addClause(2, -buffer[i], -buffer[j]);
+            return;
+        }
+        // s_i означает, что среди первых i + 1 переменных есть истинная.
+        int previous = ++variableCount;
+        addClause(2, -buffer[0], previous);
+        for (int i = 1; i < count - 1; i++) {
+            int next = ++variableCount;
+            addClause(2, -buffer[i], next);
+            addClause(2, -previous, next);
+            addClause(2, -buffer[i], -previous);
+            previous = next;
+        }
+        addClause(2, -buffer[count - 1], -previous);
+    }
+
+    private void addClause(int count, int... clause) {
+        if (literalCount + count + 1 > literals.length)
+            literals = Arrays.copyOf(literals, Math.max(literals.length * 2, literalCount + count + 1));
+        System.arraycopy(clause, 0, literals, literalCount, count);
+        literalCount += count;
+        literals[literalCount++] = 0;
+        clauseCount++;
+    }
+}
@@ -0,0 +1,32 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.GameField;
+
+/**
+ * Интерфейс, описывающий решатель судоку.
+ */
+public interface SudokuSolver {
+
+    /**
+     * Ищет решение и записывает его в {@code gameField}.
+     *
+     * @param gameField поле для решения.
+     * @return {@code true}, если решение найдено, иначе {@code false}.
+     */
+    boolean solve(GameField gameField);
+
+    /**
+     * Ищет решение, как {@link #solve}, и возвращает метрики поиска.
+     * Реализация по умолчанию измеряет только время и выделенную память.
+     *
+     * @param gameField поле для решения.
+     * @return метрики поиска.
+     */
+    default SolverMetrics solveWithMetrics(GameField gameField) {
+        long start = System.nanoTime();
+        long allocated = SolverMetrics.allocatedBytes();
+        boolean solved = solve(gameField);
+        long elapsed = System.nanoTime() - start;
+        return new SolverMetrics(solved, 0, 0, 0, 0, solved ? elapsed : -1, elapsed, SolverMetrics.allocatedSince(allocated));
+    }
+}
@@ -0,0 +1,46 @@
+package nastya.sudoku.ai;
+
+/**
+ * Симметрия, с которой {@link UniqueGameFieldFactoryImpl} убирает подсказки:
+ * вместе с клеткой убираются все её образы.
+ */
+public enum Symmetry {
+
+    /**
+     * Клетки убираются по одной.
+     */
+    NONE,
+
+    /**
+     * Центральная симметрия (поворот на 180 градусов).
+     */
+    CENTRAL,
+
+    /**
+     * Отражение относительно вертикальной оси.
+     */
+    MIRROR,
+
+    /**
+     * Отражение относительно главной диагонали.
+     */
+    DIAGONAL;
+
+    /**
+     * @return индекс клетки, симметричной клетке {@code cell} на квадратном поле со стороной {@code size}.
+     */
+    int image(int cell, int size) {
+        int row = cell / size;
+        int column = cell % size;
+        switch (this) {
+            case CENTRAL:
+                return (size - 1 - row) * size + (size - 1 - column);
+            case MIRROR:
+                return row * size + (size - 1 - column);
+            case DIAGONAL:
+                return column * size + row;
+            default:
+                return cell;
+        }
+    }
+}
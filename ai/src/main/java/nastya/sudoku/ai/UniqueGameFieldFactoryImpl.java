@@ -0,0 +1,111 @@
+package nastya.sudoku.ai;
+
+import nastya.sudoku.commons.ExtendedRandom;
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.commons.GameField;
+import nastya.sudoku.game.BitmaskGameFieldImpl;
+import nastya.sudoku.game.GameFieldFactory;
+import nastya.sudoku.game.RandomGameFieldFactoryImpl;
+
+import java.time.Duration;
+
+/**
+ * Фабрика, создающая поля с единственным решением.<br/>
+ * Берёт полностью заполненное поле и убирает подсказки в случайном порядке (с учётом {@link Symmetry}),
+ * оставляя удаление, только если {@link SolutionCounter} находит ровно одно решение
+ * (исходное заполненное поле заранее известно, поэтому ищется только второе).
+ * Если за отведённое время или из-за единственности убрать подсказки до {@code knownCellCount}
+ * не удалось, поле возвращается с большим количеством подсказок.<br/>
+ * Поддерживает поля со стороной не больше 64.
+ */
+public class UniqueGameFieldFactoryImpl implements GameFieldFactory {
+
+    private final ThreadLocal<SolutionCounter> counters = new ThreadLocal<>();
+
+    private final GameFieldFactory solvedFieldFactory;
+    private final Symmetry symmetry;
+    private final Duration timeBudget;
+
+    public UniqueGameFieldFactoryImpl() {
+        this(new RandomGameFieldFactoryImpl(), Symmetry.NONE, Duration.ofSeconds(1));
+    }
+
+    /**
+     * @param solvedFieldFactory фабрика, из которой берутся полностью заполненные поля.
+     * @param symmetry           симметрия убираемых подсказок.
+     * @param timeBudget         время на создание одного поля.
+     */
+    public UniqueGameFieldFactoryImpl(GameFieldFactory solvedFieldFactory, Symmetry symmetry, Duration timeBudget) {
+        this.solvedFieldFactory = solvedFieldFactory;
+        this.symmetry = symmetry;
+        this.timeBudget = timeBudget;
+    }
+
+    @Override
+    public GameField createGameField(FieldSize fieldSize, FieldSize blockSize, int knownCellCount) {
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+        int size = fieldSize.getRowCount();
+        int[] cells = GameFields.toArray(solvedFieldFactory.createGameField(fieldSize, blockSize, fieldSize.getCellCount()));
+        SolutionCounter counter = counter(size, blockSize.getRowCount(), blockSize.getColumnCount());
+
+        ExtendedRandom rnd = ExtendedRandom.getInstance();
+        int[] order = new int[cells.length];
+        for (int i = 0; i < order.length; i++) {
+            int j = rnd.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+
+        int known = cells.length;
+        int[] orbit = new int[4];
+        int[] removedCells = new int[4];
+        int[] removedValues = new int[4];
+        for (int i = 0; i < order.length && known > knownCellCount && System.nanoTime() - deadline < 0; i++) {
+            int orbitSize = orbit(order[i], size, orbit);
+            int removedCount = 0;
+            for (int k = 0; k < orbitSize; k++) {
+                int cell = orbit[k];
+                if (cells[cell] >= 0) {
+                    removedCells[removedCount] = cell;
+                    removedValues[removedCount++] = cells[cell];
+                    cells[cell] = -1;
+                }
+            }
+            if (removedCount == 0)
+                continue;
+
+            if (counter.countWithKnownSolution(cells, removedCells, removedValues, removedCount, deadline) == 1) {
+                known -= removedCount;
+            } else {
+                for (int k = 0; k < removedCount; k++)
+                    cells[removedCells[k]] = removedValues[k];
+            }
+        }
+
+        return new BitmaskGameFieldImpl(fieldSize, blockSize, cells);
+    }
+
+    /**
+     * Собирает в {@code orbit} различные образы клетки при симметрии.
+     *
+     * @return количество образов.
+     */
+    private int orbit(int cell, int size, int[] orbit) {
+        int count = 0;
+        int image = cell;
+        do {
+            orbit[count++] = image;
+            image = symmetry.image(image, size);
+        } while (image != cell && count < orbit.length);
+        return count;
+    }
+
+    private SolutionCounter counter(int size, int blockRows, int blockColumns) {
+        SolutionCounter counter = counters.get();
+        if (counter == null || !counter.fits(size, blockRows, blockColumns)) {
+            counter = new SolutionCounter(size, blockRows, blockColumns);
+            counters.set(counter);
+        }
+        return counter;
+    }
+}
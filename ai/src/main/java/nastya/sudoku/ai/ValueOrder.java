@@ -0,0 +1,33 @@
+package nastya.sudoku.ai;
+
+/**
+ * Порядок перебора значений выбранной клетки в {@link HeuristicSolver}.
+ */
+public enum ValueOrder {
+
+    /**
+     * По возрастанию значения.
+     */
+    ASCENDING("По возрастанию"),
+
+    /**
+     * Сначала значения, которые реже всего встречаются среди кандидатов неизвестных соседей клетки
+     * и поэтому меньше всего ограничивают остальное поле (least constraining value).
+     */
+    LEAST_CONSTRAINING("Наименее ограничивающее значение"),
+
+    /**
+     * В случайном порядке.
+     */
+    RANDOM("Случайный порядок");
+
+    private final String description;
+
+    ValueOrder(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
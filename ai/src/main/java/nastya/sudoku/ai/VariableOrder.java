@@ -0,0 +1,34 @@
+package nastya.sudoku.ai;
+
+/**
+ * Способы выбрать клетку для ветвления в {@link HeuristicSolver}.
+ */
+public enum VariableOrder {
+
+    /**
+     * Клетка с наименьшим числом кандидатов (MRV).
+     */
+    MIN_DOMAIN("Наименьшее число кандидатов"),
+
+    /**
+     * Клетка с наименьшим числом кандидатов, а среди них — с наибольшим числом неизвестных соседей.
+     */
+    MIN_DOMAIN_MAX_DEGREE("Наименьшее число кандидатов и наибольшая степень"),
+
+    /**
+     * Клетка с наименьшим отношением числа кандидатов к весу её групп (dom/wdeg). Вес группы растёт
+     * каждый раз, когда значение клетки этой группы сразу приводит к противоречию, поэтому поиск
+     * переключается на трудные части поля. Веса сохраняются между перезапусками.
+     */
+    DOM_WDEG("Отношение числа кандидатов к весу групп");
+
+    private final String description;
+
+    VariableOrder(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
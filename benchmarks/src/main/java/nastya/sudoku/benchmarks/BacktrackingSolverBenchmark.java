@@ -0,0 +1,47 @@
+package nastya.sudoku.benchmarks;
+
+import nastya.sudoku.ai.Solver;
+import nastya.sudoku.commons.GameField;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полное решение задач из фиксированного набора {@link Corpus} исходным {@link Solver}.<br/>
+ * По умолчанию замеряется только 9x9: на наборах 16x16 и 25x25 перебор может не завершиться
+ * за разумное время. Их можно включить параметром {@code -p size=16x16}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BacktrackingSolverBenchmark {
+
+    @Param({"9x9"})
+    String size;
+
+    @Param({"easy", "hard", "minimal"})
+    String difficulty;
+
+    private Solver solver;
+    private GameField[] puzzles;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        solver = new Solver((format, args) -> {
+        });
+        List<GameField> fields = Corpus.fields(size, difficulty);
+        puzzles = fields.toArray(new GameField[0]);
+    }
+
+    @Benchmark
+    public boolean solve() {
+        GameField puzzle = puzzles[next];
+        next = (next + 1) % puzzles.length;
+        return solver.solve(puzzle.clone());
+    }
+}
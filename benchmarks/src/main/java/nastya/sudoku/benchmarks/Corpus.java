@@ -0,0 +1,79 @@
+package nastya.sudoku.benchmarks;
+
+import nastya.sudoku.commons.Cell;
+import nastya.sudoku.commons.CellPosition;
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.commons.GameField;
+import nastya.sudoku.game.BitmaskGameFieldImpl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Фиксированные наборы задач для бенчмарков, по одной задаче на строку
+ * (символы {@code 1-9A-Z}, {@code .} для неизвестной клетки).<br/>
+ * По умолчанию наборы берутся из ресурсов {@code corpus/<размер>-<сложность>.txt},
+ * поэтому замеры на разных коммитах сравнимы между собой.
+ * Системное свойство {@code sudoku.corpus} позволяет указать каталог с другими наборами.<br/>
+ * Все задачи имеют единственное решение. easy — 55% подсказок, hard — 40%,
+ * minimal — подсказки убираются, пока решение остаётся единственным.
+ * Для 25x25 единственность при генерации проверялась с ограничением на перебор,
+ * поэтому подсказок в hard и minimal там заметно больше.
+ */
+final class Corpus {
+
+    private static final String SYMBOLS = "123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private Corpus() {
+    }
+
+    /**
+     * @param size       размер поля, например {@code 9x9}.
+     * @param difficulty сложность: {@code easy}, {@code hard} или {@code minimal}.
+     */
+    static List<String> lines(String size, String difficulty) {
+        String name = size + "-" + difficulty + ".txt";
+        String directory = System.getProperty("sudoku.corpus");
+        try (InputStream in = directory != null
+                ? Files.newInputStream(Paths.get(directory, name))
+                : Corpus.class.getClassLoader().getResourceAsStream("corpus/" + name)) {
+            if (in == null)
+                throw new IllegalArgumentException("Набор задач " + name + " не найден");
+            List<String> lines = new ArrayList<>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+            for (String line = reader.readLine(); line != null; line = reader.readLine())
+                if (!line.isEmpty())
+                    lines.add(line);
+            return lines;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static List<GameField> fields(String size, String difficulty) {
+        List<GameField> fields = new ArrayList<>();
+        for (String line : lines(size, difficulty))
+            fields.add(parse(line));
+        return fields;
+    }
+
+    static GameField parse(String line) {
+        int side = (int) Math.round(Math.sqrt(line.length()));
+        int block = (int) Math.round(Math.sqrt(side));
+        List<Cell> cells = new ArrayList<>();
+        for (int i = 0; i < line.length(); i++) {
+            int value = SYMBOLS.indexOf(line.charAt(i));
+            if (value >= 0)
+                cells.add(new Cell(new CellPosition(i / side, i % side), value));
+        }
+        return new BitmaskGameFieldImpl(new FieldSize(side, side), new FieldSize(block, block), cells);
+    }
+}
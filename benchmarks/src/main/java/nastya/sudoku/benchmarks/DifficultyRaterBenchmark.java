@@ -0,0 +1,43 @@
+package nastya.sudoku.benchmarks;
+
+import nastya.sudoku.ai.DifficultyRater;
+import nastya.sudoku.ai.DifficultyRating;
+import nastya.sudoku.commons.GameField;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Оценка сложности задач из фиксированного набора {@link Corpus}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DifficultyRaterBenchmark {
+
+    @Param({"9x9", "16x16"})
+    String size;
+
+    @Param({"easy", "hard", "minimal"})
+    String difficulty;
+
+    private DifficultyRater rater;
+    private GameField[] puzzles;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        rater = new DifficultyRater();
+        puzzles = Corpus.fields(size, difficulty).toArray(new GameField[0]);
+    }
+
+    @Benchmark
+    public DifficultyRating rate() {
+        GameField puzzle = puzzles[next];
+        next = (next + 1) % puzzles.length;
+        return rater.rate(puzzle);
+    }
+}
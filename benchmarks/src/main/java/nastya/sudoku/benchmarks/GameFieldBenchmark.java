@@ -0,0 +1,80 @@
+package nastya.sudoku.benchmarks;
+
+import nastya.sudoku.commons.Cell;
+import nastya.sudoku.commons.CellPosition;
+import nastya.sudoku.commons.GameField;
+import nastya.sudoku.commons.GameStatus;
+import nastya.sudoku.game.BitmaskGameFieldImpl;
+import nastya.sudoku.game.GameFieldImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Стоимость базовых операций {@link GameField}: проверки {@code isAbleToSetValue},
+ * обхода {@code allPositions}, вычисления {@code getGameStatus} и хода с откатом через журнал изменений
+ * для обеих реализаций поля на первой задаче набора {@code hard}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameFieldBenchmark {
+
+    @Param({"9x9", "16x16", "25x25"})
+    String size;
+
+    @Param({"GameFieldImpl", "BitmaskGameFieldImpl"})
+    String implementation;
+
+    private GameField gameField;
+    private CellPosition[] positions;
+    private int valueCount;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        GameField parsed = Corpus.parse(Corpus.lines(size, "hard").get(0));
+        List<Cell> known = parsed.allCells()
+                .filter(cell -> cell.getValue() != null)
+                .collect(Collectors.toList());
+        gameField = implementation.equals("GameFieldImpl")
+                ? new GameFieldImpl(parsed.getFieldSize(), parsed.getBlockSize(), known)
+                : new BitmaskGameFieldImpl(parsed.getFieldSize(), parsed.getBlockSize(), known);
+        positions = gameField.allPositions().toArray(CellPosition[]::new);
+        valueCount = gameField.getFieldSize().getRowCount();
+    }
+
+    @Benchmark
+    public boolean isAbleToSetValue() {
+        int i = next++;
+        if (next == positions.length * valueCount)
+            next = 0;
+        return gameField.isAbleToSetValue(positions[i / valueCount], i % valueCount);
+    }
+
+    @Benchmark
+    public boolean setValueAndRollback() {
+        int i = next++;
+        if (next == positions.length * valueCount)
+            next = 0;
+        int checkpoint = gameField.checkpoint();
+        boolean placed = gameField.setValue(positions[i / valueCount], i % valueCount);
+        gameField.rollback(checkpoint);
+        return placed;
+    }
+
+    @Benchmark
+    public long allPositions() {
+        return gameField.allPositions().count();
+    }
+
+    @Benchmark
+    public GameStatus getGameStatus() {
+        return gameField.getGameStatus();
+    }
+}
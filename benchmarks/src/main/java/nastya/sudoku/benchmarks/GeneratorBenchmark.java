@@ -0,0 +1,55 @@
+package nastya.sudoku.benchmarks;
+
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.commons.GameField;
+import nastya.sudoku.game.BoardGenerator;
+import nastya.sudoku.game.GameFieldFactory;
+import nastya.sudoku.game.RandomGameFieldFactoryImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Скорость генерации полей: {@link RandomGameFieldFactoryImpl} с половиной известных клеток
+ * и сам {@link BoardGenerator}, заполняющий массив без создания объектов.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    @Param({"3", "4", "5"})
+    int blockSide;
+
+    private GameFieldFactory factory;
+    private FieldSize fieldSize;
+    private FieldSize blockSize;
+    private BoardGenerator generator;
+    private SplittableRandom random;
+    private int[] cells;
+
+    @Setup
+    public void setUp() {
+        factory = new RandomGameFieldFactoryImpl(42);
+        fieldSize = new FieldSize(blockSide * blockSide, blockSide * blockSide);
+        blockSize = new FieldSize(blockSide, blockSide);
+        generator = new BoardGenerator(fieldSize, blockSize);
+        random = new SplittableRandom(42);
+        cells = new int[fieldSize.getCellCount()];
+    }
+
+    @Benchmark
+    public GameField generate() {
+        return factory.createGameField(fieldSize, blockSize, fieldSize.getCellCount() / 2);
+    }
+
+    @Benchmark
+    public int[] generateBoard() {
+        generator.generate(random, cells);
+        return cells;
+    }
+}
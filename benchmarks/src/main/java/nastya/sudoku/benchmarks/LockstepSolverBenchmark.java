@@ -0,0 +1,102 @@
+package nastya.sudoku.benchmarks;
+
+import nastya.sudoku.ai.LockstepSolver;
+import nastya.sudoku.ai.PrimitiveSolver;
+import nastya.sudoku.ai.Solver;
+import nastya.sudoku.commons.FieldGeometry;
+import nastya.sudoku.commons.GameField;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность {@link LockstepSolver} на задачах 9x9 из {@link Corpus} в сравнении
+ * с решением тех же задач по одной: исходным {@link Solver} и {@link PrimitiveSolver}.<br/>
+ * Каждый вызов решает {@link #PUZZLES} задач (набор повторяется), результат — задач в секунду.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockstepSolverBenchmark {
+
+    private static final int PUZZLES = 1024;
+
+    @Param({"easy", "hard", "minimal"})
+    String difficulty;
+
+    @Param({"256"})
+    int capacity;
+
+    private LockstepSolver lockstep;
+    private PrimitiveSolver primitive;
+    private Solver solver;
+    private GameField[] fields;
+    private int[] puzzles;
+    private int[] work;
+    private boolean[] solved;
+
+    @Setup
+    public void setUp() {
+        lockstep = new LockstepSolver(capacity);
+        primitive = new PrimitiveSolver();
+        solver = new Solver((format, args) -> {
+        });
+        List<GameField> corpus = Corpus.fields("9x9", difficulty);
+        fields = new GameField[PUZZLES];
+        puzzles = new int[PUZZLES * 81];
+        for (int i = 0; i < PUZZLES; i++) {
+            fields[i] = corpus.get(i % corpus.size());
+            FieldGeometry geometry = fields[i].getGeometry();
+            for (int cell = 0; cell < 81; cell++) {
+                Integer value = fields[i].getValue(geometry.getPosition(cell));
+                puzzles[i * 81 + cell] = value == null ? -1 : value;
+            }
+        }
+        work = new int[puzzles.length];
+        solved = new boolean[PUZZLES];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUZZLES)
+    public int lockstep() {
+        System.arraycopy(puzzles, 0, work, 0, puzzles.length);
+        return lockstep.solve(work, PUZZLES, solved);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUZZLES)
+    public boolean[] lockstepGameFields() {
+        List<GameField> copies = new ArrayList<>(PUZZLES);
+        for (GameField field : fields)
+            copies.add(field.clone());
+        return lockstep.solve(copies);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUZZLES)
+    public int primitiveLoop() {
+        int count = 0;
+        int[] cells = new int[81];
+        for (int i = 0; i < PUZZLES; i++) {
+            System.arraycopy(puzzles, i * 81, cells, 0, 81);
+            if (primitive.solve(9, 3, 3, cells) != null)
+                count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PUZZLES)
+    public int solverLoop() {
+        int count = 0;
+        for (GameField field : fields)
+            if (solver.solve(field.clone()))
+                count++;
+        return count;
+    }
+}
@@ -0,0 +1,50 @@
+package nastya.sudoku.benchmarks;
+
+import nastya.sudoku.ai.SolverType;
+import nastya.sudoku.ai.SudokuSolver;
+import nastya.sudoku.commons.GameField;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полное решение задач из фиксированного набора {@link Corpus} разными решателями.
+ * Каждый вызов решает копию следующей задачи набора.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+
+    @Param({"9x9", "16x16", "25x25"})
+    String size;
+
+    @Param({"easy", "hard", "minimal"})
+    String difficulty;
+
+    @Param({"DANCING_LINKS", "PROPAGATION", "HEURISTIC", "SAT"})
+    SolverType solverType;
+
+    private SudokuSolver solver;
+    private GameField[] puzzles;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        solver = solverType.create((format, args) -> {
+        });
+        List<GameField> fields = Corpus.fields(size, difficulty);
+        puzzles = fields.toArray(new GameField[0]);
+    }
+
+    @Benchmark
+    public boolean solve() {
+        GameField puzzle = puzzles[next];
+        next = (next + 1) % puzzles.length;
+        return solver.solve(puzzle.clone());
+    }
+}
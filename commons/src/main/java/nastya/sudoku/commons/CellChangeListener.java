@@ -0,0 +1,15 @@
+package nastya.sudoku.commons;
+
+/**
+ * Получает уведомления об изменении значений клеток поля.
+ */
+@FunctionalInterface
+public interface CellChangeListener {
+
+    /**
+     * Вызывается после изменения значения клетки.
+     *
+     * @param cell номер клетки, построчно, см. {@link FieldGeometry}.
+     */
+    void cellChanged(int cell);
+}
@@ -0,0 +1,38 @@
+package nastya.sudoku.commons;
+
+import java.util.Arrays;
+
+/**
+ * Список подписчиков {@link CellChangeListener} для реализаций {@link GameField}.<br/>
+ * Подписчики хранятся в массиве, который заменяется целиком при подписке и отписке,
+ * поэтому уведомление не создаёт объектов и ничего не стоит, пока подписчиков нет.
+ */
+public final class CellChangeSupport {
+
+    private static final CellChangeListener[] EMPTY = new CellChangeListener[0];
+
+    private volatile CellChangeListener[] listeners = EMPTY;
+
+    public synchronized void add(CellChangeListener listener) {
+        CellChangeListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    public synchronized void remove(CellChangeListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                CellChangeListener[] updated = new CellChangeListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, updated, 0, i);
+                System.arraycopy(listeners, i + 1, updated, i, updated.length - i);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    public void fire(int cell) {
+        for (CellChangeListener listener : listeners)
+            listener.cellChanged(cell);
+    }
+}
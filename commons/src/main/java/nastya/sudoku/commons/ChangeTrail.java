@@ -0,0 +1,68 @@
+package nastya.sudoku.commons;
+
+import java.util.Arrays;
+
+/**
+ * Журнал изменений клеток для реализаций {@link GameField#checkpoint()} и {@link GameField#rollback(int)}.<br/>
+ * Хранит пары (клетка, прежнее значение) подряд в массиве, поэтому запись и откат не создают объектов.
+ * Пока не сделана первая отметка, изменения не записываются.
+ */
+public final class ChangeTrail {
+
+    private int[] entries = new int[0];
+    private int size;
+    private boolean active;
+
+    public int checkpoint() {
+        active = true;
+        return size;
+    }
+
+    /**
+     * Запоминает, что в клетке {@code cell} стояло значение {@code value} ({@code -1}, если значение было неизвестно).
+     */
+    public void record(int cell, int value) {
+        if (!active)
+            return;
+        if (size == entries.length)
+            entries = Arrays.copyOf(entries, Math.max(32, 2 * size));
+        entries[size++] = cell;
+        entries[size++] = value;
+    }
+
+    /**
+     * @throws IllegalArgumentException если отметки {@code checkpoint} нет в журнале.
+     */
+    public void check(int checkpoint) {
+        if (!active || checkpoint < 0 || checkpoint > size || checkpoint % 2 != 0)
+            throw new IllegalArgumentException("Нет отметки " + checkpoint + " в журнале изменений");
+    }
+
+    /**
+     * @return есть ли в журнале изменения после отметки {@code checkpoint}.
+     */
+    public boolean isAfter(int checkpoint) {
+        return size > checkpoint;
+    }
+
+    /**
+     * @return клетка последнего изменения.
+     */
+    public int cell() {
+        return entries[size - 2];
+    }
+
+    /**
+     * @return значение, которое стояло в клетке до последнего изменения.
+     */
+    public int value() {
+        return entries[size - 1];
+    }
+
+    /**
+     * Забывает последнее изменение.
+     */
+    public void pop() {
+        size -= 2;
+    }
+}
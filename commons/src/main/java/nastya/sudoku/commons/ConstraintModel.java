@@ -0,0 +1,287 @@
+package nastya.sudoku.commons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Правила поля в виде данных: группы клеток, в каждой из которых каждое значение стоит ровно один раз,
+ * и клетки-суммы (киллер), значения в которых различны и в сумме дают заданное число.<br/>
+ * Группы идут в порядке: строки, столбцы, области (блоки или неправильные области), затем дополнительные
+ * группы, например диагонали. Классическое судоку — частный случай, см. {@link FieldGeometry#getConstraints()};
+ * варианты собираются через {@link #builder(FieldGeometry)}.<br/>
+ * Все таблицы строятся один раз при создании модели, поэтому проверка варианта стоит столько же,
+ * сколько проверка классического поля с тем же числом групп у клетки.
+ * Возвращаемые массивы общие для всех пользователей и не должны изменяться.
+ */
+public final class ConstraintModel {
+
+    private static final int[] NO_CELLS = new int[0];
+
+    private final FieldGeometry geometry;
+    private final boolean classic;
+    private final int size;
+    private final int[][] units;
+    private final int[][] cellUnits;
+    private final int[][] peers;
+    private final int[][] cages;
+    private final int[] cageSums;
+    private final int[] cellCages;
+
+    /**
+     * Классические правила: строки, столбцы и блоки геометрии.
+     */
+    ConstraintModel(FieldGeometry geometry) {
+        this.geometry = geometry;
+        classic = true;
+        size = geometry.getFieldSize().getRowCount();
+        units = geometry.getUnits();
+        cellUnits = geometry.getCellUnits();
+        peers = geometry.getPeers();
+        cages = new int[0][];
+        cageSums = NO_CELLS;
+        cellCages = new int[geometry.getCellCount()];
+        Arrays.fill(cellCages, -1);
+    }
+
+    private ConstraintModel(FieldGeometry geometry, int[][] units, int[][] cages, int[] cageSums) {
+        this.geometry = geometry;
+        classic = false;
+        size = geometry.getFieldSize().getRowCount();
+        this.units = units;
+        this.cages = cages;
+        this.cageSums = cageSums;
+        int cellCount = geometry.getCellCount();
+
+        int[] unitCounts = new int[cellCount];
+        for (int[] unit : units)
+            for (int cell : unit)
+                unitCounts[cell]++;
+        cellUnits = new int[cellCount][];
+        for (int cell = 0; cell < cellCount; cell++)
+            cellUnits[cell] = new int[unitCounts[cell]];
+        Arrays.fill(unitCounts, 0);
+        for (int unit = 0; unit < units.length; unit++)
+            for (int cell : units[unit])
+                cellUnits[cell][unitCounts[cell]++] = unit;
+
+        cellCages = new int[cellCount];
+        Arrays.fill(cellCages, -1);
+        for (int cage = 0; cage < cages.length; cage++) {
+            for (int cell : cages[cage]) {
+                if (cellCages[cell] >= 0)
+                    throw new IllegalArgumentException("Клетка " + geometry.getPosition(cell) + " входит в две суммы");
+                cellCages[cell] = cage;
+            }
+        }
+
+        peers = new int[cellCount][];
+        boolean[] seen = new boolean[cellCount];
+        int[] buffer = new int[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            int count = 0;
+            for (int unit : cellUnits[cell])
+                count = addPeers(cell, units[unit], seen, buffer, count);
+            if (cellCages[cell] >= 0)
+                count = addPeers(cell, cages[cellCages[cell]], seen, buffer, count);
+            peers[cell] = Arrays.copyOf(buffer, count);
+            for (int i = 0; i < count; i++)
+                seen[buffer[i]] = false;
+        }
+    }
+
+    private static int addPeers(int cell, int[] group, boolean[] seen, int[] buffer, int count) {
+        for (int peer : group) {
+            if (peer != cell && !seen[peer]) {
+                seen[peer] = true;
+                buffer[count++] = peer;
+            }
+        }
+        return count;
+    }
+
+    public static Builder builder(FieldGeometry geometry) {
+        return new Builder(geometry);
+    }
+
+    public FieldGeometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * @return {@code true}, если это классические правила: строки, столбцы и блоки без дополнительных ограничений.
+     */
+    public boolean isClassic() {
+        return classic;
+    }
+
+    /**
+     * @return количество значений, оно же количество клеток в каждой группе.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Клетки каждой группы: строки, столбцы, области, дополнительные группы.
+     */
+    public int[][] getUnits() {
+        return units;
+    }
+
+    /**
+     * Номера групп из {@link #getUnits()}, в которые входит каждая клетка; первые три — строка, столбец и область.
+     */
+    public int[][] getCellUnits() {
+        return cellUnits;
+    }
+
+    /**
+     * @return различные клетки, которые не могут иметь то же значение, что клетка {@code cell}, без неё самой.
+     */
+    public int[] getPeers(int cell) {
+        return peers[cell];
+    }
+
+    public int[][] getPeers() {
+        return peers;
+    }
+
+    /**
+     * Клетки каждой суммы.
+     */
+    public int[][] getCages() {
+        return cages;
+    }
+
+    /**
+     * Сумма каждой клетки-суммы. Складываются отображаемые значения, то есть значения клеток, увеличенные на единицу.
+     */
+    public int[] getCageSums() {
+        return cageSums;
+    }
+
+    /**
+     * @return номер суммы, в которую входит клетка {@code cell}, или {@code -1}.
+     */
+    public int getCage(int cell) {
+        return cellCages[cell];
+    }
+
+    /**
+     * Номер суммы для каждой клетки, см. {@link #getCage(int)}.
+     */
+    public int[] getCellCages() {
+        return cellCages;
+    }
+
+    /**
+     * Собирает правила варианта судоку поверх геометрии поля: строки и столбцы есть всегда,
+     * блоки можно заменить неправильными областями, добавить диагонали, свои группы и суммы.
+     */
+    public static final class Builder {
+
+        private final FieldGeometry geometry;
+        private final int size;
+        private int[] regions;
+        private final List<int[]> extraUnits = new ArrayList<>();
+        private final List<int[]> cages = new ArrayList<>();
+        private final List<Integer> cageSums = new ArrayList<>();
+
+        private Builder(FieldGeometry geometry) {
+            FieldSize fieldSize = geometry.getFieldSize();
+            if (fieldSize.getRowCount() != fieldSize.getColumnCount())
+                throw new IllegalArgumentException("Поле " + fieldSize + " не квадратное");
+            this.geometry = geometry;
+            size = fieldSize.getRowCount();
+        }
+
+        /**
+         * Заменяет блоки неправильными областями (jigsaw).
+         *
+         * @param regions номер области для каждой клетки построчно; в каждой области должно быть {@code size} клеток.
+         */
+        public Builder regions(int[] regions) {
+            if (regions.length != geometry.getCellCount())
+                throw new IllegalArgumentException("Области заданы не для всех клеток");
+            this.regions = regions.clone();
+            return this;
+        }
+
+        /**
+         * Добавляет обе главные диагонали как группы.
+         */
+        public Builder diagonals() {
+            int[] main = new int[size];
+            int[] anti = new int[size];
+            for (int i = 0; i < size; i++) {
+                main[i] = i * size + i;
+                anti[i] = i * size + size - 1 - i;
+            }
+            return unit(main).unit(anti);
+        }
+
+        /**
+         * Добавляет группу, в которой каждое значение стоит ровно один раз.
+         */
+        public Builder unit(int... cells) {
+            if (cells.length != size)
+                throw new IllegalArgumentException("В группе должно быть " + size + " клеток, а не " + cells.length);
+            extraUnits.add(checkDistinct(cells));
+            return this;
+        }
+
+        /**
+         * Добавляет клетку-сумму: значения в клетках различны, а их отображаемые значения дают в сумме {@code sum}.
+         */
+        public Builder cage(int sum, int... cells) {
+            if (cells.length == 0 || cells.length > size)
+                throw new IllegalArgumentException("В сумме не может быть " + cells.length + " клеток");
+            int min = cells.length * (cells.length + 1) / 2;
+            int max = cells.length * (2 * size - cells.length + 1) / 2;
+            if (sum < min || sum > max)
+                throw new IllegalArgumentException("Сумму " + sum + " нельзя набрать в " + cells.length + " клетках");
+            cages.add(checkDistinct(cells));
+            cageSums.add(sum);
+            return this;
+        }
+
+        public ConstraintModel build() {
+            int[][] classic = geometry.getUnits();
+            int[][] units = new int[3 * size + extraUnits.size()][];
+            System.arraycopy(classic, 0, units, 0, 2 * size);
+            if (regions == null) {
+                System.arraycopy(classic, 2 * size, units, 2 * size, size);
+            } else {
+                int[] filled = new int[size];
+                for (int region = 0; region < size; region++)
+                    units[2 * size + region] = new int[size];
+                for (int cell = 0; cell < regions.length; cell++) {
+                    int region = regions[cell];
+                    if (region < 0 || region >= size || filled[region] == size)
+                        throw new IllegalArgumentException("Неверная область " + region + " у клетки " + geometry.getPosition(cell));
+                    units[2 * size + region][filled[region]++] = cell;
+                }
+            }
+            for (int i = 0; i < extraUnits.size(); i++)
+                units[3 * size + i] = extraUnits.get(i);
+
+            int[] sums = new int[cageSums.size()];
+            for (int i = 0; i < sums.length; i++)
+                sums[i] = cageSums.get(i);
+            return new ConstraintModel(geometry, units, cages.toArray(new int[0][]), sums);
+        }
+
+        private int[] checkDistinct(int[] cells) {
+            int[] copy = cells.clone();
+            Arrays.sort(copy);
+            for (int i = 0; i < copy.length; i++) {
+                if (copy[i] < 0 || copy[i] >= geometry.getCellCount())
+                    throw new IllegalArgumentException("Нет клетки с номером " + copy[i]);
+                if (i > 0 && copy[i] == copy[i - 1])
+                    throw new IllegalArgumentException("Клетка " + geometry.getPosition(copy[i]) + " указана дважды");
+            }
+            return cells.clone();
+        }
+    }
+}
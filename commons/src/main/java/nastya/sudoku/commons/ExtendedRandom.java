@@ -1,20 +1,34 @@
 package nastya.sudoku.commons;
 
 import java.util.Random;
+import java.util.SplittableRandom;
 
+/**
+ * {@link Random} с дополнительными методами.<br/>
+ * {@link #getInstance()} возвращает генератор текущего потока, поэтому потоки не борются за общее состояние;
+ * для воспроизводимой последовательности создайте генератор с известным {@code seed}.
+ */
 public class ExtendedRandom extends Random {
 
-    private ExtendedRandom(long seed) {
+    private static final SplittableRandom SEEDS = new SplittableRandom();
+    private static final ThreadLocal<ExtendedRandom> INSTANCES = ThreadLocal.withInitial(ExtendedRandom::create);
+
+    public ExtendedRandom(long seed) {
         super(seed);
     }
 
-    private static ExtendedRandom INSTANCE = new ExtendedRandom(System.currentTimeMillis());
+    private static synchronized ExtendedRandom create() {
+        return new ExtendedRandom(SEEDS.nextLong());
+    }
 
+    /**
+     * @return генератор текущего потока. Его нельзя передавать другим потокам.
+     */
     public static ExtendedRandom getInstance() {
-        return INSTANCE;
+        return INSTANCES.get();
     }
 
     public int nextInt(int from, int to) {
         return from + nextInt(to - from + 1);
     }
-}
\ No newline at end of file
+}
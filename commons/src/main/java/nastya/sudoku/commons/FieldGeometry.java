@@ -0,0 +1,226 @@
+package nastya.sudoku.commons;
+
+import lombok.Value;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Неизменяемые таблицы для поля заданного размера и размера блока: единственные экземпляры
+ * {@link CellPosition} для всех клеток, группы (строки, столбцы, блоки) и соседи каждой клетки.<br/>
+ * Клетки нумеруются построчно: номер клетки {@code (row, column)} равен {@code row * columnCount + column}.<br/>
+ * Таблицы строятся один раз на геометрию и берутся из кэша {@link #of(FieldSize, FieldSize)}.
+ * Кэш хранит геометрии по слабым ссылкам: геометрия, которую больше никто не использует,
+ * удаляется из кэша после сборки мусора.<br/>
+ * Возвращаемые массивы общие для всех пользователей и не должны изменяться.
+ */
+public final class FieldGeometry {
+
+    private static final ConcurrentMap<Key, Entry> CACHE = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<FieldGeometry> STALE = new ReferenceQueue<>();
+
+    /**
+     * Последняя запрошенная геометрия: повторный запрос той же геометрии не создаёт ключ.
+     */
+    private static volatile FieldGeometry last;
+
+    private final FieldSize fieldSize;
+    private final FieldSize blockSize;
+    private final FieldSize blockCount;
+    private final int columnCount;
+    private final int cellCount;
+    private final CellPosition[] positions;
+    private final List<CellPosition> positionList;
+    private final int[][] units;
+    private final int[][] cellUnits;
+    private final int[][] peers;
+    private final ConstraintModel constraints;
+
+    private FieldGeometry(FieldSize fieldSize, FieldSize blockSize) {
+        this.fieldSize = fieldSize;
+        this.blockSize = blockSize;
+        int rowCount = fieldSize.getRowCount();
+        columnCount = fieldSize.getColumnCount();
+        int blockRows = blockSize.getRowCount();
+        int blockColumns = blockSize.getColumnCount();
+        blockCount = new FieldSize(rowCount / blockRows, columnCount / blockColumns);
+        int blocksInRow = blockCount.getColumnCount();
+        cellCount = fieldSize.getCellCount();
+
+        positions = new CellPosition[cellCount];
+        for (int cell = 0; cell < cellCount; cell++)
+            positions[cell] = new CellPosition(cell / columnCount, cell % columnCount);
+        positionList = Collections.unmodifiableList(Arrays.asList(positions));
+
+        int blocks = blockCount.getCellCount();
+        units = new int[rowCount + columnCount + blocks][];
+        for (int row = 0; row < rowCount; row++)
+            units[row] = new int[columnCount];
+        for (int column = 0; column < columnCount; column++)
+            units[rowCount + column] = new int[rowCount];
+        for (int block = 0; block < blocks; block++)
+            units[rowCount + columnCount + block] = new int[blockRows * blockColumns];
+
+        cellUnits = new int[cellCount][3];
+        int[] filled = new int[units.length];
+        for (int cell = 0; cell < cellCount; cell++) {
+            int row = cell / columnCount;
+            int column = cell % columnCount;
+            int[] own = cellUnits[cell];
+            own[0] = row;
+            own[1] = rowCount + column;
+            own[2] = rowCount + columnCount + row / blockRows * blocksInRow + column / blockColumns;
+            for (int unit : own)
+                units[unit][filled[unit]++] = cell;
+        }
+
+        peers = new int[cellCount][];
+        boolean[] seen = new boolean[cellCount];
+        int[] buffer = new int[rowCount + columnCount + blockRows * blockColumns];
+        for (int cell = 0; cell < cellCount; cell++) {
+            int count = 0;
+            for (int unit : cellUnits[cell]) {
+                for (int peer : units[unit]) {
+                    if (peer != cell && !seen[peer]) {
+                        seen[peer] = true;
+                        buffer[count++] = peer;
+                    }
+                }
+            }
+            peers[cell] = Arrays.copyOf(buffer, count);
+            for (int i = 0; i < count; i++)
+                seen[buffer[i]] = false;
+        }
+        constraints = new ConstraintModel(this);
+    }
+
+    public static FieldGeometry of(FieldSize fieldSize, FieldSize blockSize) {
+        FieldGeometry geometry = last;
+        if (geometry != null && geometry.fieldSize.equals(fieldSize) && geometry.blockSize.equals(blockSize))
+            return geometry;
+
+        for (Object stale = STALE.poll(); stale != null; stale = STALE.poll())
+            CACHE.remove(((Entry) stale).key, stale);
+
+        Key key = new Key(fieldSize, blockSize);
+        Entry entry = CACHE.get(key);
+        geometry = entry == null ? null : entry.get();
+        if (geometry == null) {
+            FieldGeometry created = new FieldGeometry(fieldSize, blockSize);
+            entry = CACHE.merge(key, new Entry(key, created),
+                    (old, fresh) -> old.get() != null ? old : fresh);
+            geometry = entry.get();
+            if (geometry == null)
+                geometry = created;
+        }
+        last = geometry;
+        return geometry;
+    }
+
+    public FieldSize getFieldSize() {
+        return fieldSize;
+    }
+
+    public FieldSize getBlockSize() {
+        return blockSize;
+    }
+
+    public FieldSize getBlockCount() {
+        return blockCount;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * @return номер клетки на позиции {@code position}.
+     */
+    public int index(CellPosition position) {
+        return position.getRow() * columnCount + position.getColumn();
+    }
+
+    /**
+     * @return единственный экземпляр позиции клетки с номером {@code cell}.
+     */
+    public CellPosition getPosition(int cell) {
+        return positions[cell];
+    }
+
+    public CellPosition getPosition(int row, int column) {
+        return positions[row * columnCount + column];
+    }
+
+    /**
+     * @return позиции всех клеток построчно, список неизменяемый.
+     */
+    public List<CellPosition> getPositions() {
+        return positionList;
+    }
+
+    /**
+     * @return позиция левой верхней клетки блока, в который входит клетка с номером {@code cell}.
+     */
+    public CellPosition getBlockStart(int cell) {
+        int row = cell / columnCount;
+        int column = cell % columnCount;
+        return getPosition(row - row % blockSize.getRowCount(), column - column % blockSize.getColumnCount());
+    }
+
+    /**
+     * Клетки каждой группы: сначала строки, затем столбцы, затем блоки построчно.
+     * Клетки внутри группы идут построчно.
+     */
+    public int[][] getUnits() {
+        return units;
+    }
+
+    /**
+     * Номера групп из {@link #getUnits()}, в которые входит каждая клетка: строка, столбец и блок.
+     */
+    public int[][] getCellUnits() {
+        return cellUnits;
+    }
+
+    /**
+     * @return различные клетки, стоящие в одной строке, столбце или блоке с клеткой {@code cell}, без неё самой.
+     */
+    public int[] getPeers(int cell) {
+        return peers[cell];
+    }
+
+    /**
+     * Соседи каждой клетки, см. {@link #getPeers(int)}.
+     */
+    public int[][] getPeers() {
+        return peers;
+    }
+
+    /**
+     * @return классические правила для этой геометрии: строки, столбцы и блоки.
+     */
+    public ConstraintModel getConstraints() {
+        return constraints;
+    }
+
+    @Value
+    private static class Key {
+        FieldSize fieldSize;
+        FieldSize blockSize;
+    }
+
+    private static class Entry extends WeakReference<FieldGeometry> {
+
+        final Key key;
+
+        Entry(Key key, FieldGeometry geometry) {
+            super(geometry, STALE);
+            this.key = key;
+        }
+    }
+}
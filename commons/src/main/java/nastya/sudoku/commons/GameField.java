@@ -1,8 +1,6 @@
 package nastya.sudoku.commons;
 
-import java.util.HashSet;
-import java.util.Objects;
-import java.util.Set;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -19,11 +17,27 @@ public interface GameField extends Cloneable {
 
     FieldSize getBlockSize();
 
+    /**
+     * Возвращает общие для всех полей такой геометрии таблицы позиций и соседей.
+     * Реализациям стоит запоминать геометрию, чтобы не искать её в кэше при каждом вызове.
+     *
+     * @return геометрия поля.
+     */
+    default FieldGeometry getGeometry() {
+        return FieldGeometry.of(getFieldSize(), getBlockSize());
+    }
+
+    /**
+     * Возвращает правила поля. По умолчанию это классические правила геометрии поля.
+     *
+     * @return правила поля.
+     */
+    default ConstraintModel getConstraints() {
+        return getGeometry().getConstraints();
+    }
+
     default FieldSize getBlockCount() {
-        return new FieldSize(
-                getFieldSize().getRowCount() / getBlockSize().getRowCount(),
-                getFieldSize().getColumnCount() / getBlockSize().getColumnCount()
-        );
+        return getGeometry().getBlockCount();
     }
 
     /**
@@ -32,9 +46,11 @@ public interface GameField extends Cloneable {
      * @return статус игры.
      */
     default GameStatus getGameStatus() {
-        return allPositions().map(this::getValue).anyMatch(Objects::isNull)
-                ? GameStatus.RUNNING
-                : GameStatus.FINISHED;
+        FieldGeometry geometry = getGeometry();
+        for (int cell = 0; cell < geometry.getCellCount(); cell++)
+            if (getValue(geometry.getPosition(cell)) == null)
+                return GameStatus.RUNNING;
+        return GameStatus.FINISHED;
     }
 
     /**
@@ -51,13 +67,8 @@ public interface GameField extends Cloneable {
     }
 
     default CellPosition getBlockStart(CellPosition position) {
-        FieldSize blockSize = getBlockSize();
-        int blockRows = blockSize.getRowCount();
-        int blockColumns = blockSize.getColumnCount();
-
-        int row = position.getRow() / blockRows * blockRows;
-        int column = position.getColumn() / blockColumns * blockColumns;
-        return new CellPosition(row, column);
+        FieldGeometry geometry = getGeometry();
+        return geometry.getBlockStart(geometry.index(position));
     }
 
     boolean isFixed(CellPosition position);
@@ -73,31 +84,10 @@ public interface GameField extends Cloneable {
     }
 
     default Stream<Cell> valuableCells(CellPosition position) {
-        FieldSize fieldSize = getFieldSize();
-
-        Set<CellPosition> valuablePositions = new HashSet<>();
-
-        int fieldRows = fieldSize.getRowCount();
-        for (int row = 0; row < fieldRows; row++)
-            valuablePositions.add(new CellPosition(row, position.getColumn()));
-
-        int fieldColumns = fieldSize.getColumnCount();
-        for (int column = 0; column < fieldColumns; column++)
-            valuablePositions.add(new CellPosition(position.getRow(), column));
-
-        FieldSize blockSize = getBlockSize();
-        int blockRows = blockSize.getRowCount();
-        int blockColumns = blockSize.getColumnCount();
-        CellPosition blockStart = getBlockStart(position);
-        for (int i = 0; i < blockRows; i++) {
-            for (int j = 0; j < blockColumns; j++) {
-                int row = blockStart.getRow() + i;
-                int column = blockStart.getColumn() + j;
-                valuablePositions.add(new CellPosition(row, column));
-            }
-        }
-
-        return valuablePositions.stream()
+        FieldGeometry geometry = getGeometry();
+        int cell = geometry.index(position);
+        return IntStream.concat(IntStream.of(cell), IntStream.of(getConstraints().getPeers(cell)))
+                .mapToObj(geometry::getPosition)
                 .filter(this::isKnown)
                 .map(this::getCell);
     }
@@ -108,29 +98,71 @@ public interface GameField extends Cloneable {
         if (isFixed(position))
             return false;
 
-        return valuableCells(position)
-                .map(Cell::getValue)
-                .noneMatch(val -> val == (int) value);
+        FieldGeometry geometry = getGeometry();
+        ConstraintModel constraints = getConstraints();
+        int cell = geometry.index(position);
+        Integer own = getValue(position);
+        if (own != null && own.equals(value))
+            return false;
+        for (int peer : constraints.getPeers(cell)) {
+            Integer other = getValue(geometry.getPosition(peer));
+            if (other != null && other.equals(value))
+                return false;
+        }
+
+        int cage = constraints.getCage(cell);
+        if (cage < 0)
+            return true;
+        int sum = value + 1;
+        int missing = 0;
+        for (int other : constraints.getCages()[cage]) {
+            if (other == cell)
+                continue;
+            Integer known = getValue(geometry.getPosition(other));
+            if (known == null)
+                missing++;
+            else
+                sum += known + 1;
+        }
+        // Каждая пустая клетка суммы добавит к ней хотя бы единицу.
+        int target = constraints.getCageSums()[cage];
+        return missing == 0 ? sum == target : sum + missing <= target;
     }
 
     boolean setValue(CellPosition position, Integer value);
 
+    /**
+     * Отмечает текущее состояние поля, чтобы вернуться к нему через {@link #rollback(int)}.<br/>
+     * После первого вызова поле запоминает каждое изменение клетки, поэтому откат стоит
+     * столько, сколько изменений было сделано после отметки. Копии поля журнал не наследуют.
+     *
+     * @return отметка в журнале изменений.
+     */
+    int checkpoint();
+
+    /**
+     * Отменяет в обратном порядке все изменения клеток, сделанные после отметки {@code checkpoint}.
+     * Более поздние отметки становятся недействительными, сама {@code checkpoint} остаётся действительной.
+     *
+     * @throws IllegalArgumentException если такой отметки нет в журнале.
+     */
+    void rollback(int checkpoint);
+
+    /**
+     * Подписывает {@code listener} на изменения значений клеток этого поля.
+     * Копии поля, созданные {@link #clone()}, подписчиков не наследуют.
+     */
+    void addCellChangeListener(CellChangeListener listener);
+
+    void removeCellChangeListener(CellChangeListener listener);
+
     /**
      * Возвращает стрим, состоящий из позиций всех клеток, находящихся на поле.
      *
      * @return стрим, состоящий из позиций всех клеток, находящихся на поле.
      */
     default Stream<CellPosition> allPositions() {
-        FieldSize fieldSize = getFieldSize();
-        int rowCount = fieldSize.getRowCount();
-        int columnCount = fieldSize.getColumnCount();
-
-        Stream.Builder<CellPosition> builder = Stream.builder();
-        for (int row = 0; row < rowCount; row++)
-            for (int column = 0; column < columnCount; column++)
-                builder.add(new CellPosition(row, column));
-
-        return builder.build();
+        return getGeometry().getPositions().stream();
     }
 
     default Stream<Cell> allCells() {
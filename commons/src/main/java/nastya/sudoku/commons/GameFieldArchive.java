@@ -0,0 +1,193 @@
+package nastya.sudoku.commons;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Архив игровых полей одной геометрии: заголовок и записи {@link GameFieldCodec} фиксированного размера.<br/>
+ * Файл отображается в память сегментами, поэтому поле читается по номеру без разбора остального файла,
+ * а архив может быть больше 2 ГБ. Чтение потокобезопасно.<br/>
+ * Запись архива выполняет {@link Writer}.
+ */
+public class GameFieldArchive implements Closeable {
+
+    private static final int MAGIC = 0x53444b41;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final GameFieldCodec codec;
+    private final long size;
+    private final int recordsPerSegment;
+    private final MappedByteBuffer[] segments;
+
+    private GameFieldArchive(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0)
+            ;
+        if (header.hasRemaining() || header.getInt(0) != MAGIC)
+            throw new IOException("Файл не является архивом игровых полей");
+        if (header.getShort(4) != VERSION)
+            throw new IOException("Неподдерживаемая версия архива: " + header.getShort(4));
+        codec = GameFieldCodec.readHeader(header, 6);
+
+        int recordSize = codec.getRecordSize();
+        size = (channel.size() - HEADER_SIZE) / recordSize;
+        recordsPerSegment = (int) (SEGMENT_SIZE / recordSize);
+        segments = new MappedByteBuffer[(int) ((size + recordsPerSegment - 1) / recordsPerSegment)];
+        for (int i = 0; i < segments.length; i++) {
+            long first = (long) i * recordsPerSegment;
+            long count = Math.min(recordsPerSegment, size - first);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * recordSize, count * recordSize);
+        }
+    }
+
+    public static GameFieldArchive open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, READ);
+        try {
+            return new GameFieldArchive(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return начинается ли файл с заголовка архива.
+     */
+    public static boolean isArchive(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0)
+                ;
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    public GameFieldCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return количество полей в архиве.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Читает поле с номером {@code index} в массивы значений ({@code -1} для неизвестных клеток)
+     * и признаков закреплённости, не создавая объектов.
+     */
+    public void read(long index, int[] values, boolean[] fixed) {
+        codec.read(segment(index), offset(index), values, fixed);
+    }
+
+    public GameField read(long index, GameFieldCodec.Constructor constructor) {
+        return codec.read(segment(index), offset(index), constructor);
+    }
+
+    private ByteBuffer segment(long index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Номер поля " + index + ", в архиве " + size);
+        return segments[(int) (index / recordsPerSegment)];
+    }
+
+    private int offset(long index) {
+        return (int) (index % recordsPerSegment) * codec.getRecordSize();
+    }
+
+    /**
+     * Закрывает файл. Отображённые сегменты освобождаются сборщиком мусора.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Последовательно записывает поля в новый архив.
+     */
+    public static class Writer implements Closeable {
+
+        private static final int BUFFER_SIZE = 1 << 20;
+
+        private final FileChannel channel;
+        private final GameFieldCodec codec;
+        private final ByteBuffer buffer;
+        private long size;
+
+        public Writer(Path path, FieldSize fieldSize, FieldSize blockSize) throws IOException {
+            codec = new GameFieldCodec(fieldSize, blockSize);
+            buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, codec.getRecordSize()));
+            channel = FileChannel.open(path, WRITE, CREATE, TRUNCATE_EXISTING);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(0, MAGIC);
+            header.putShort(4, VERSION);
+            GameFieldCodec.writeHeader(fieldSize, blockSize, header, 6);
+            while (header.hasRemaining())
+                channel.write(header);
+        }
+
+        public void append(GameField gameField) throws IOException {
+            reserve();
+            codec.write(gameField, buffer, buffer.position());
+            commit();
+        }
+
+        /**
+         * Добавляет поле, заданное построчным массивом значений ({@code -1} для неизвестных клеток)
+         * и признаками закреплённости.
+         */
+        public void append(int[] values, boolean[] fixed) throws IOException {
+            reserve();
+            codec.write(values, fixed, buffer, buffer.position());
+            commit();
+        }
+
+        /**
+         * @return количество записанных полей.
+         */
+        public long size() {
+            return size;
+        }
+
+        private void reserve() throws IOException {
+            if (buffer.remaining() < codec.getRecordSize())
+                flush();
+        }
+
+        private void commit() {
+            buffer.position(buffer.position() + codec.getRecordSize());
+            size++;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
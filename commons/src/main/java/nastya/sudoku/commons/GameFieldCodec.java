@@ -0,0 +1,192 @@
+package nastya.sudoku.commons;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Компактное двоичное представление игрового поля заданной геометрии.<br/>
+ * Запись состоит из значений клеток, упакованных по {@link #getBitsPerValue()} бит
+ * ({@code 0} — неизвестно, иначе значение плюс один; для 9x9 это полубайт),
+ * и битовой карты закреплённых клеток ({@link GameField#isFixed}).
+ * Все записи одной геометрии имеют одинаковый размер {@link #getRecordSize()}.<br/>
+ * Чтение и запись используют абсолютные позиции буфера и не меняют его состояние,
+ * поэтому один буфер можно читать из нескольких потоков.
+ */
+public class GameFieldCodec {
+
+    /**
+     * Размер заголовка с геометрией поля в {@link #encode(GameField)}.
+     */
+    public static final int HEADER_SIZE = 8;
+
+    /**
+     * Создаёт игровое поле с заданными закреплёнными клетками,
+     * например {@code GameFieldImpl::new}.
+     */
+    @FunctionalInterface
+    public interface Constructor {
+        GameField create(FieldSize fieldSize, FieldSize blockSize, Iterable<Cell> fixedCells);
+    }
+
+    private final FieldSize fieldSize;
+    private final FieldSize blockSize;
+    private final int cellCount;
+    private final int bitsPerValue;
+    private final int valuesSize;
+    private final int recordSize;
+
+    public GameFieldCodec(FieldSize fieldSize, FieldSize blockSize) {
+        this.fieldSize = fieldSize;
+        this.blockSize = blockSize;
+        cellCount = fieldSize.getCellCount();
+        bitsPerValue = 32 - Integer.numberOfLeadingZeros(fieldSize.getRowCount());
+        valuesSize = (cellCount * bitsPerValue + 7) / 8;
+        recordSize = valuesSize + (cellCount + 7) / 8;
+    }
+
+    public FieldSize getFieldSize() {
+        return fieldSize;
+    }
+
+    public FieldSize getBlockSize() {
+        return blockSize;
+    }
+
+    public int getBitsPerValue() {
+        return bitsPerValue;
+    }
+
+    /**
+     * @return размер одной записи в байтах.
+     */
+    public int getRecordSize() {
+        return recordSize;
+    }
+
+    /**
+     * Записывает поле в {@code buffer}, начиная с позиции {@code offset}.
+     */
+    public void write(GameField gameField, ByteBuffer buffer, int offset) {
+        FieldGeometry geometry = gameField.getGeometry();
+        int[] values = new int[cellCount];
+        boolean[] fixed = new boolean[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            CellPosition position = geometry.getPosition(i);
+            Integer value = gameField.getValue(position);
+            values[i] = value == null ? -1 : value;
+            fixed[i] = gameField.isFixed(position);
+        }
+        write(values, fixed, buffer, offset);
+    }
+
+    /**
+     * Записывает поле, заданное построчным массивом значений ({@code -1} для неизвестных клеток)
+     * и признаками закреплённости, в {@code buffer}, начиная с позиции {@code offset}.
+     */
+    public void write(int[] values, boolean[] fixed, ByteBuffer buffer, int offset) {
+        long bits = 0;
+        int bitCount = 0;
+        int at = offset;
+        for (int i = 0; i < cellCount; i++) {
+            bits |= (long) (values[i] + 1) << bitCount;
+            bitCount += bitsPerValue;
+            while (bitCount >= 8) {
+                buffer.put(at++, (byte) bits);
+                bits >>>= 8;
+                bitCount -= 8;
+            }
+        }
+        if (bitCount > 0)
+            buffer.put(at, (byte) bits);
+
+        at = offset + valuesSize;
+        for (int i = 0; i < cellCount; i += 8) {
+            int b = 0;
+            for (int j = 0; j < 8 && i + j < cellCount; j++)
+                if (fixed[i + j])
+                    b |= 1 << j;
+            buffer.put(at++, (byte) b);
+        }
+    }
+
+    /**
+     * Читает запись, начинающуюся в {@code buffer} с позиции {@code offset}, в массивы значений
+     * ({@code -1} для неизвестных клеток) и признаков закреплённости.
+     */
+    public void read(ByteBuffer buffer, int offset, int[] values, boolean[] fixed) {
+        long mask = (1L << bitsPerValue) - 1;
+        long bits = 0;
+        int bitCount = 0;
+        int at = offset;
+        for (int i = 0; i < cellCount; i++) {
+            while (bitCount < bitsPerValue) {
+                bits |= (buffer.get(at++) & 0xFFL) << bitCount;
+                bitCount += 8;
+            }
+            values[i] = (int) (bits & mask) - 1;
+            bits >>>= bitsPerValue;
+            bitCount -= bitsPerValue;
+        }
+
+        at = offset + valuesSize;
+        for (int i = 0; i < cellCount; i += 8) {
+            int b = buffer.get(at++);
+            for (int j = 0; j < 8 && i + j < cellCount; j++)
+                fixed[i + j] = (b & (1 << j)) != 0;
+        }
+    }
+
+    /**
+     * Читает запись и создаёт по ней игровое поле: закреплённые клетки передаются в {@code constructor},
+     * остальные известные значения ставятся через {@link GameField#setValue}.
+     */
+    public GameField read(ByteBuffer buffer, int offset, Constructor constructor) {
+        int[] values = new int[cellCount];
+        boolean[] fixed = new boolean[cellCount];
+        read(buffer, offset, values, fixed);
+
+        FieldGeometry geometry = FieldGeometry.of(fieldSize, blockSize);
+        List<Cell> fixedCells = new ArrayList<>();
+        for (int i = 0; i < cellCount; i++)
+            if (fixed[i] && values[i] >= 0)
+                fixedCells.add(new Cell(geometry.getPosition(i), values[i]));
+        GameField gameField = constructor.create(fieldSize, blockSize, fixedCells);
+        for (int i = 0; i < cellCount; i++)
+            if (!fixed[i] && values[i] >= 0)
+                gameField.setValue(geometry.getPosition(i), values[i]);
+        return gameField;
+    }
+
+    /**
+     * Кодирует поле вместе с заголовком, содержащим его геометрию.
+     */
+    public static byte[] encode(GameField gameField) {
+        GameFieldCodec codec = new GameFieldCodec(gameField.getFieldSize(), gameField.getBlockSize());
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + codec.getRecordSize());
+        writeHeader(codec.fieldSize, codec.blockSize, buffer, 0);
+        codec.write(gameField, buffer, HEADER_SIZE);
+        return buffer.array();
+    }
+
+    /**
+     * Восстанавливает поле, закодированное {@link #encode(GameField)}.
+     */
+    public static GameField decode(byte[] data, Constructor constructor) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        return readHeader(buffer, 0).read(buffer, HEADER_SIZE, constructor);
+    }
+
+    static void writeHeader(FieldSize fieldSize, FieldSize blockSize, ByteBuffer buffer, int offset) {
+        buffer.putShort(offset, (short) fieldSize.getRowCount());
+        buffer.putShort(offset + 2, (short) fieldSize.getColumnCount());
+        buffer.putShort(offset + 4, (short) blockSize.getRowCount());
+        buffer.putShort(offset + 6, (short) blockSize.getColumnCount());
+    }
+
+    static GameFieldCodec readHeader(ByteBuffer buffer, int offset) {
+        FieldSize fieldSize = new FieldSize(buffer.getShort(offset), buffer.getShort(offset + 2));
+        FieldSize blockSize = new FieldSize(buffer.getShort(offset + 4), buffer.getShort(offset + 6));
+        return new GameFieldCodec(fieldSize, blockSize);
+    }
+}
@@ -0,0 +1,303 @@
+package nastya.sudoku.game;
+
+import nastya.sudoku.commons.Cell;
+import nastya.sudoku.commons.CellChangeListener;
+import nastya.sudoku.commons.CellChangeSupport;
+import nastya.sudoku.commons.CellPosition;
+import nastya.sudoku.commons.ChangeTrail;
+import nastya.sudoku.commons.ConstraintModel;
+import nastya.sudoku.commons.FieldGeometry;
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.commons.GameField;
+import nastya.sudoku.commons.GameStatus;
+
+/**
+ * Реализация игрового поля, которая помимо значений клеток хранит для каждой группы из {@link ConstraintModel}
+ * (строки, столбца, блока, а в вариантах и других групп и сумм) битовую маску уже использованных значений,
+ * а для каждой суммы — сумму и количество пустых клеток.<br/>
+ * Благодаря этому {@link #isAbleToSetValue}, {@link #setValue}, {@link #isKnown}
+ * и {@link #getGameStatus} работают за время, пропорциональное числу групп клетки, и не создают объектов.
+ * {@link #rollback(int)} восстанавливает маски по журналу изменений, не пересчитывая их заново.
+ */
+public class BitmaskGameFieldImpl implements GameField {
+
+    private final FieldSize fieldSize;
+    private final FieldSize blockSize;
+    private final FieldGeometry geometry;
+    private final ConstraintModel constraints;
+    private final CellChangeSupport listeners = new CellChangeSupport();
+    private final ChangeTrail trail = new ChangeTrail();
+    private final int columnCount;
+    private final int valueCount;
+    private final int[][] cellUnits;
+    private final int[] cellCages;
+    private final int[] cageSums;
+
+    /**
+     * Номер маски первой суммы: маски сумм идут после масок групп.
+     */
+    private final int cageOffset;
+
+    /**
+     * Количество 64-битных слов в одной маске. Для полей шире 64 маска занимает несколько слов.
+     */
+    private final int words;
+
+    /**
+     * Значения клеток, увеличенные на единицу; {@code 0} означает, что значение неизвестно.
+     */
+    private final short[] field;
+    private final boolean[] isFixed;
+    private final long[] masks;
+    private final int[] cageTotals;
+    private final int[] cageMissing;
+    private int knownCount;
+
+    public BitmaskGameFieldImpl(FieldSize fieldSize, FieldSize blockSize, Iterable<Cell> knownCells) {
+        this(FieldGeometry.of(fieldSize, blockSize).getConstraints(), knownCells);
+    }
+
+    /**
+     * Создаёт поле с правилами {@code constraints}, например вариант судоку.
+     */
+    public BitmaskGameFieldImpl(ConstraintModel constraints, Iterable<Cell> knownCells) {
+        this(constraints);
+        for (Cell cell : knownCells) {
+            CellPosition pos = cell.getPosition();
+            if (!setValue(pos, cell.getValue()))
+                throw new IllegalArgumentException("Не удалось поставить на поле значение " + cell);
+            isFixed[index(pos)] = true;
+        }
+    }
+
+    /**
+     * Создаёт поле из значений клеток без создания объектов для каждой клетки.
+     *
+     * @param cells значения клеток построчно, {@code -1} для неизвестных; известные клетки фиксируются.
+     */
+    public BitmaskGameFieldImpl(FieldSize fieldSize, FieldSize blockSize, int[] cells) {
+        this(FieldGeometry.of(fieldSize, blockSize).getConstraints(), cells);
+    }
+
+    /**
+     * @param cells значения клеток построчно, {@code -1} для неизвестных; известные клетки фиксируются.
+     */
+    public BitmaskGameFieldImpl(ConstraintModel constraints, int[] cells) {
+        this(constraints);
+        if (cells.length != field.length)
+            throw new IllegalArgumentException("Ожидалось " + field.length + " клеток, а не " + cells.length);
+        for (int index = 0; index < cells.length; index++) {
+            int value = cells[index];
+            if (value < 0)
+                continue;
+            if (!allows(index, value))
+                throw new IllegalArgumentException("Не удалось поставить на поле значение " + value
+                        + " в клетку " + geometry.getPosition(index));
+            place(index, value);
+            isFixed[index] = true;
+        }
+    }
+
+    private BitmaskGameFieldImpl(ConstraintModel constraints) {
+        this.constraints = constraints;
+        geometry = constraints.getGeometry();
+        fieldSize = geometry.getFieldSize();
+        blockSize = geometry.getBlockSize();
+        columnCount = fieldSize.getColumnCount();
+        valueCount = constraints.getSize();
+        cellUnits = constraints.getCellUnits();
+        cellCages = constraints.getCellCages();
+        cageSums = constraints.getCageSums();
+        cageOffset = constraints.getUnits().length;
+        words = (valueCount + 63) >>> 6;
+
+        field = new short[fieldSize.getCellCount()];
+        isFixed = new boolean[fieldSize.getCellCount()];
+        masks = new long[(cageOffset + cageSums.length) * words];
+        cageTotals = new int[cageSums.length];
+        cageMissing = new int[cageSums.length];
+        for (int cage = 0; cage < cageMissing.length; cage++)
+            cageMissing[cage] = constraints.getCages()[cage].length;
+    }
+
+    private BitmaskGameFieldImpl(BitmaskGameFieldImpl other) {
+        fieldSize = other.fieldSize;
+        blockSize = other.blockSize;
+        geometry = other.geometry;
+        constraints = other.constraints;
+        columnCount = other.columnCount;
+        valueCount = other.valueCount;
+        cellUnits = other.cellUnits;
+        cellCages = other.cellCages;
+        cageSums = other.cageSums;
+        cageOffset = other.cageOffset;
+        words = other.words;
+        field = other.field.clone();
+        isFixed = other.isFixed.clone();
+        masks = other.masks.clone();
+        cageTotals = other.cageTotals.clone();
+        cageMissing = other.cageMissing.clone();
+        knownCount = other.knownCount;
+    }
+
+    @Override
+    public FieldSize getFieldSize() {
+        return fieldSize;
+    }
+
+    @Override
+    public FieldSize getBlockSize() {
+        return blockSize;
+    }
+
+    @Override
+    public FieldGeometry getGeometry() {
+        return geometry;
+    }
+
+    @Override
+    public ConstraintModel getConstraints() {
+        return constraints;
+    }
+
+    @Override
+    public GameStatus getGameStatus() {
+        return knownCount == field.length ? GameStatus.FINISHED : GameStatus.RUNNING;
+    }
+
+    @Override
+    public boolean isFixed(CellPosition position) {
+        return isFixed[index(position)];
+    }
+
+    @Override
+    public boolean isKnown(CellPosition position) {
+        return field[index(position)] != 0;
+    }
+
+    @Override
+    public Integer getValue(CellPosition position) {
+        int value = field[index(position)];
+        return value == 0 ? null : value - 1;
+    }
+
+    @Override
+    public boolean isAbleToSetValue(CellPosition position, Integer value) {
+        int index = index(position);
+        if (value == null)
+            return !isFixed[index];
+        return !isFixed[index] && allows(index, value);
+    }
+
+    /**
+     * @return можно ли поставить значение {@code x} в клетку {@code index} по правилам поля.
+     */
+    private boolean allows(int index, int x) {
+        if (x < 0 || x >= valueCount)
+            return false;
+
+        int word = x >>> 6;
+        long bit = 1L << x;
+        for (int unit : cellUnits[index])
+            if ((masks[unit * words + word] & bit) != 0)
+                return false;
+
+        int cage = cellCages[index];
+        if (cage < 0)
+            return true;
+        if ((masks[(cageOffset + cage) * words + word] & bit) != 0)
+            return false;
+        // Каждая пустая клетка суммы добавит к ней хотя бы единицу.
+        int old = field[index];
+        int sum = cageTotals[cage] - old + x + 1;
+        int missing = cageMissing[cage] - (old == 0 ? 1 : 0);
+        return missing == 0 ? sum == cageSums[cage] : sum + missing <= cageSums[cage];
+    }
+
+    @Override
+    public boolean setValue(CellPosition position, Integer value) {
+        if (!isAbleToSetValue(position, value))
+            return false;
+
+        int index = index(position);
+        trail.record(index, field[index] - 1);
+        replace(index, value == null ? -1 : value);
+        return true;
+    }
+
+    @Override
+    public int checkpoint() {
+        return trail.checkpoint();
+    }
+
+    @Override
+    public void rollback(int checkpoint) {
+        trail.check(checkpoint);
+        for (; trail.isAfter(checkpoint); trail.pop())
+            replace(trail.cell(), trail.value());
+    }
+
+    /**
+     * Ставит в клетку значение {@code value} ({@code -1} — неизвестно) без проверки правил.
+     */
+    private void replace(int index, int value) {
+        int old = field[index] - 1;
+        if (old >= 0) {
+            toggle(index, old);
+            knownCount--;
+        }
+        if (value >= 0)
+            place(index, value);
+        else
+            field[index] = 0;
+        listeners.fire(index);
+    }
+
+    private void place(int index, int value) {
+        toggle(index, value);
+        knownCount++;
+        field[index] = (short) (value + 1);
+    }
+
+    @Override
+    public void addCellChangeListener(CellChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeCellChangeListener(CellChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public BitmaskGameFieldImpl clone() {
+        return new BitmaskGameFieldImpl(this);
+    }
+
+    /**
+     * Ставит или убирает значение в масках групп и сумме клетки.
+     */
+    private void toggle(int index, int value) {
+        int word = value >>> 6;
+        long bit = 1L << value;
+        for (int unit : cellUnits[index])
+            masks[unit * words + word] ^= bit;
+
+        int cage = cellCages[index];
+        if (cage < 0)
+            return;
+        int offset = (cageOffset + cage) * words + word;
+        masks[offset] ^= bit;
+        if ((masks[offset] & bit) != 0) {
+            cageTotals[cage] += value + 1;
+            cageMissing[cage]--;
+        } else {
+            cageTotals[cage] -= value + 1;
+            cageMissing[cage]++;
+        }
+    }
+
+    private int index(CellPosition position) {
+        return position.getRow() * columnCount + position.getColumn();
+    }
+}
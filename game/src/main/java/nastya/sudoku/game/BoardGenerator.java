@@ -0,0 +1,118 @@
+package nastya.sudoku.game;
+
+import nastya.sudoku.commons.FieldSize;
+
+import java.util.SplittableRandom;
+
+/**
+ * Генератор заполненных полей в виде массива значений клеток построчно.<br/>
+ * Берётся заготовка, в которой значение клетки вычисляется по её строке и столбцу, и за один проход
+ * к ней применяются случайные перестановки строк внутри полос, полос, столбцов внутри стеков, стеков,
+ * перенумерация значений и (для квадратных блоков) транспонирование. Перестановки задаются
+ * таблицами индексов, поэтому каждое поле строится за один проход по клеткам.<br/>
+ * Таблицы переиспользуются между вызовами, поэтому генерация не создаёт объектов.
+ * Объект не потокобезопасен: каждому потоку нужен свой экземпляр.
+ */
+public class BoardGenerator {
+
+    private final FieldSize fieldSize;
+    private final FieldSize blockSize;
+    private final int size;
+    private final int blockRows;
+    private final int blockColumns;
+    private final boolean transposable;
+
+    private final int[] rowMap;
+    private final int[] columnMap;
+    private final int[] bands;
+    private final int[] stacks;
+    private final int[] digits;
+    private final int[] order;
+
+    public BoardGenerator(FieldSize fieldSize, FieldSize blockSize) {
+        if (fieldSize.getRowCount() != fieldSize.getColumnCount())
+            throw new IllegalArgumentException("Поле " + fieldSize + " не квадратное");
+        this.fieldSize = fieldSize;
+        this.blockSize = blockSize;
+        size = fieldSize.getRowCount();
+        blockRows = blockSize.getRowCount();
+        blockColumns = blockSize.getColumnCount();
+        transposable = blockRows == blockColumns;
+
+        rowMap = new int[size];
+        columnMap = new int[size];
+        bands = identity(size / blockRows);
+        stacks = identity(size / blockColumns);
+        digits = identity(size);
+        order = identity(size * size);
+    }
+
+    public boolean fits(FieldSize fieldSize, FieldSize blockSize) {
+        return this.fieldSize.equals(fieldSize) && this.blockSize.equals(blockSize);
+    }
+
+    /**
+     * Записывает в {@code cells} случайное заполненное поле.
+     *
+     * @param cells массив длины {@code size * size}.
+     */
+    public void generate(SplittableRandom random, int[] cells) {
+        shuffle(random, bands, 0, bands.length);
+        for (int band = 0; band < bands.length; band++) {
+            for (int k = 0; k < blockRows; k++)
+                rowMap[band * blockRows + k] = bands[band] * blockRows + k;
+            shuffle(random, rowMap, band * blockRows, blockRows);
+        }
+        shuffle(random, stacks, 0, stacks.length);
+        for (int stack = 0; stack < stacks.length; stack++) {
+            for (int k = 0; k < blockColumns; k++)
+                columnMap[stack * blockColumns + k] = stacks[stack] * blockColumns + k;
+            shuffle(random, columnMap, stack * blockColumns, blockColumns);
+        }
+        shuffle(random, digits, 0, size);
+        boolean transposed = transposable && random.nextBoolean();
+
+        // В заготовке значение в строке row и столбце column равно (column - start) mod size, где start зависит от row.
+        for (int i = 0; i < size; i++) {
+            int row = rowMap[i];
+            int start = row % blockRows * blockColumns + row / blockRows;
+            for (int j = 0; j < size; j++) {
+                int shift = columnMap[j] - start;
+                if (shift < 0)
+                    shift += size;
+                cells[transposed ? j * size + i : i * size + j] = digits[shift];
+            }
+        }
+    }
+
+    /**
+     * Оставляет известными {@code knownCellCount} случайных клеток, остальным ставит {@code -1}.
+     */
+    public void hide(SplittableRandom random, int[] cells, int knownCellCount) {
+        // Частичная перетасовка Фишера — Йетса: порядок с прошлого вызова годится как начальный.
+        int hidden = cells.length - knownCellCount;
+        for (int i = 0; i < hidden; i++) {
+            int j = i + random.nextInt(cells.length - i);
+            int cell = order[j];
+            order[j] = order[i];
+            order[i] = cell;
+            cells[cell] = -1;
+        }
+    }
+
+    private static void shuffle(SplittableRandom random, int[] a, int from, int length) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = a[from + i];
+            a[from + i] = a[from + j];
+            a[from + j] = t;
+        }
+    }
+
+    private static int[] identity(int n) {
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++)
+            result[i] = i;
+        return result;
+    }
+}
@@ -1,25 +1,67 @@
 package nastya.sudoku.game;
 
 import nastya.sudoku.commons.Cell;
+import nastya.sudoku.commons.CellChangeListener;
+import nastya.sudoku.commons.CellChangeSupport;
 import nastya.sudoku.commons.CellPosition;
+import nastya.sudoku.commons.ChangeTrail;
+import nastya.sudoku.commons.ConstraintModel;
+import nastya.sudoku.commons.FieldGeometry;
 import nastya.sudoku.commons.FieldSize;
 import nastya.sudoku.commons.GameField;
+import nastya.sudoku.commons.GameStatus;
 
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+/**
+ * Реализация игрового поля, которая для каждой группы и суммы из {@link ConstraintModel} считает,
+ * сколько раз в ней стоит каждое значение, а для сумм ещё сумму и количество пустых клеток.<br/>
+ * Счётчики обновляются при каждом изменении клетки, поэтому {@link #isAbleToSetValue} не просматривает соседей,
+ * а {@link #getGameStatus} работает за постоянное время.
+ */
 public class GameFieldImpl implements GameField {
 
     private final FieldSize fieldSize;
     private final FieldSize blockSize;
+    private final FieldGeometry geometry;
+    private final ConstraintModel constraints;
+    private final CellChangeSupport listeners = new CellChangeSupport();
+    private final ChangeTrail trail = new ChangeTrail();
     private final Integer[][] field;
     private final boolean[][] isFixed;
+    private final int valueCount;
+
+    /**
+     * Сколько раз каждое значение стоит в каждой группе, затем в каждой сумме: {@code counts[group * valueCount + value]}.
+     */
+    private final int[] counts;
+    private final int cageOffset;
+    private final int[] cageTotals;
+    private final int[] cageMissing;
+    private int knownCount;
 
     public GameFieldImpl(FieldSize fieldSize, FieldSize blockSize, Iterable<Cell> knownCells) {
-        this.fieldSize = fieldSize;
-        this.blockSize = blockSize;
+        this(FieldGeometry.of(fieldSize, blockSize).getConstraints(), knownCells);
+    }
+
+    /**
+     * Создаёт поле с правилами {@code constraints}, например вариант судоку.
+     */
+    public GameFieldImpl(ConstraintModel constraints, Iterable<Cell> knownCells) {
+        this.constraints = constraints;
+        geometry = constraints.getGeometry();
+        fieldSize = geometry.getFieldSize();
+        blockSize = geometry.getBlockSize();
         field = new Integer[fieldSize.getRowCount()][fieldSize.getColumnCount()];
         isFixed = new boolean[fieldSize.getRowCount()][fieldSize.getColumnCount()];
+        valueCount = constraints.getSize();
+        cageOffset = constraints.getUnits().length;
+        counts = new int[(cageOffset + constraints.getCages().length) * valueCount];
+        cageTotals = new int[constraints.getCages().length];
+        cageMissing = new int[constraints.getCages().length];
+        for (int cage = 0; cage < cageMissing.length; cage++)
+            cageMissing[cage] = constraints.getCages()[cage].length;
         for (Cell cell : knownCells) {
             CellPosition pos = cell.getPosition();
             if (!setValue(pos, cell.getValue()))
@@ -38,6 +80,16 @@ public class GameFieldImpl implements GameField {
         return blockSize;
     }
 
+    @Override
+    public FieldGeometry getGeometry() {
+        return geometry;
+    }
+
+    @Override
+    public ConstraintModel getConstraints() {
+        return constraints;
+    }
+
     @Override
     public boolean isFixed(CellPosition position) {
         return isFixed[position.getRow()][position.getColumn()];
@@ -48,17 +100,106 @@ public class GameFieldImpl implements GameField {
         return field[position.getRow()][position.getColumn()];
     }
 
+    @Override
+    public GameStatus getGameStatus() {
+        return knownCount == geometry.getCellCount() ? GameStatus.FINISHED : GameStatus.RUNNING;
+    }
+
+    @Override
+    public boolean isAbleToSetValue(CellPosition position, Integer value) {
+        if (isFixed(position))
+            return false;
+        if (value == null)
+            return true;
+        int x = value;
+        if (x < 0 || x >= valueCount || value.equals(getValue(position)))
+            return false;
+
+        int cell = geometry.index(position);
+        for (int unit : constraints.getCellUnits()[cell])
+            if (counts[unit * valueCount + x] != 0)
+                return false;
+
+        int cage = constraints.getCage(cell);
+        if (cage < 0)
+            return true;
+        if (counts[(cageOffset + cage) * valueCount + x] != 0)
+            return false;
+        // Каждая пустая клетка суммы добавит к ней хотя бы единицу.
+        Integer old = getValue(position);
+        int sum = cageTotals[cage] - (old == null ? 0 : old + 1) + x + 1;
+        int missing = cageMissing[cage] - (old == null ? 1 : 0);
+        int target = constraints.getCageSums()[cage];
+        return missing == 0 ? sum == target : sum + missing <= target;
+    }
+
     @Override
     public boolean setValue(CellPosition position, Integer value) {
         if (!isAbleToSetValue(position, value))
             return false;
-        field[position.getRow()][position.getColumn()] = value;
+        Integer old = getValue(position);
+        int cell = geometry.index(position);
+        trail.record(cell, old == null ? -1 : old);
+        replace(cell, value);
         return true;
     }
 
+    @Override
+    public int checkpoint() {
+        return trail.checkpoint();
+    }
+
+    @Override
+    public void rollback(int checkpoint) {
+        trail.check(checkpoint);
+        for (; trail.isAfter(checkpoint); trail.pop()) {
+            int value = trail.value();
+            replace(trail.cell(), value < 0 ? null : value);
+        }
+    }
+
+    /**
+     * Ставит в клетку значение {@code value} без проверки правил и обновляет счётчики.
+     */
+    private void replace(int cell, Integer value) {
+        CellPosition position = geometry.getPosition(cell);
+        Integer old = getValue(position);
+        if (old != null) {
+            count(cell, old, -1);
+            knownCount--;
+        }
+        if (value != null) {
+            count(cell, value, 1);
+            knownCount++;
+        }
+        field[position.getRow()][position.getColumn()] = value;
+        listeners.fire(cell);
+    }
+
+    private void count(int cell, int value, int delta) {
+        for (int unit : constraints.getCellUnits()[cell])
+            counts[unit * valueCount + value] += delta;
+        int cage = constraints.getCage(cell);
+        if (cage >= 0) {
+            counts[(cageOffset + cage) * valueCount + value] += delta;
+            cageTotals[cage] += delta * (value + 1);
+            cageMissing[cage] -= delta;
+        }
+    }
+
+    @Override
+    public void addCellChangeListener(CellChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeCellChangeListener(CellChangeListener listener) {
+        listeners.remove(listener);
+    }
+
     @Override
     public GameFieldImpl clone() {
         Stream<Cell> cells = allPositions().filter(this::isKnown).map(this::getCell);
-        return new GameFieldImpl(fieldSize, blockSize, cells.collect(Collectors.toList()));
+        return new GameFieldImpl(constraints, cells.collect(Collectors.toList()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,213 @@
+package nastya.sudoku.game;
+
+import lombok.Value;
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.commons.GameField;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Фабрика-обёртка, которая держит наготове пулы уже созданных полей
+ * для каждого сочетания размера поля, размера блока и количества известных клеток.<br/>
+ * Поле выдаётся из пула, а пул пополняется в фоне на отдельных потоках с помощью исходной фабрики.
+ * Если пул пуст, фабрика либо ждёт очередное поле, либо сразу бросает {@link NoSuchElementException},
+ * в зависимости от {@link Mode}.<br/>
+ * Если исходная фабрика не смогла создать поле для пула или пополнять пул некому, ожидающий вызов
+ * создаёт поле сам, так что ошибка исходной фабрики доходит до вызывающего.<br/>
+ * Исходная фабрика должна быть потокобезопасной.
+ */
+public class PooledGameFieldFactoryImpl implements GameFieldFactory {
+
+    private static final long WAIT_STEP_MILLIS = 50;
+
+    /**
+     * Поведение при пустом пуле.
+     */
+    public enum Mode {
+
+        /**
+         * Ждать, пока в пуле появится поле.
+         */
+        BLOCK,
+
+        /**
+         * Сразу бросать {@link NoSuchElementException}.
+         */
+        FAIL_FAST
+    }
+
+    private final GameFieldFactory delegate;
+    private final int poolSize;
+    private final Mode mode;
+    private final ExecutorService executor;
+    private final ConcurrentMap<PoolKey, Pool> pools = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param delegate фабрика, которая создаёт поля для пулов.
+     * @param poolSize сколько готовых полей держать для каждого сочетания параметров.
+     * @param threads  количество потоков, пополняющих пулы.
+     * @param mode     поведение при пустом пуле.
+     */
+    public PooledGameFieldFactoryImpl(GameFieldFactory delegate, int poolSize, int threads, Mode mode) {
+        this.delegate = delegate;
+        this.poolSize = poolSize;
+        this.mode = mode;
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "game-field-pool-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public GameField createGameField(FieldSize fieldSize, FieldSize blockSize, int knownCellCount) {
+        Pool pool = pool(fieldSize, blockSize, knownCellCount);
+        GameField gameField = pool.fields.poll();
+        if (gameField != null)
+            hits.increment();
+        else
+            misses.increment();
+        pool.refill();
+        if (gameField != null)
+            return gameField;
+
+        if (mode == Mode.FAIL_FAST)
+            throw new NoSuchElementException("Нет готовых полей для " + pool.key);
+        try {
+            while (gameField == null) {
+                if (pool.failing || pool.inFlight.get() == 0) {
+                    gameField = pool.fields.poll();
+                    return gameField != null ? gameField : delegate.createGameField(fieldSize, blockSize, knownCellCount);
+                }
+                gameField = pool.fields.poll(WAIT_STEP_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            return gameField;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание поля прервано", e);
+        }
+    }
+
+    /**
+     * Заранее запускает заполнение пула для заданных параметров.
+     */
+    public void prefill(FieldSize fieldSize, FieldSize blockSize, int knownCellCount) {
+        pool(fieldSize, blockSize, knownCellCount).refill();
+    }
+
+    /**
+     * @return количество готовых полей в пуле для заданных параметров.
+     */
+    public int getAvailable(FieldSize fieldSize, FieldSize blockSize, int knownCellCount) {
+        Pool pool = pools.get(new PoolKey(fieldSize, blockSize, knownCellCount));
+        return pool == null ? 0 : pool.fields.size();
+    }
+
+    /**
+     * @return количество полей, выданных сразу из пула.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return количество запросов, пришедших к пустому пулу.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return количество неудачных попыток исходной фабрики создать поле.
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public double getHitRatio() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Останавливает пополнение пулов.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Pool pool(FieldSize fieldSize, FieldSize blockSize, int knownCellCount) {
+        return pools.computeIfAbsent(new PoolKey(fieldSize, blockSize, knownCellCount), Pool::new);
+    }
+
+    @Value
+    private static class PoolKey {
+        FieldSize fieldSize;
+        FieldSize blockSize;
+        int knownCellCount;
+    }
+
+    private class Pool {
+
+        final PoolKey key;
+        final BlockingQueue<GameField> fields = new ArrayBlockingQueue<>(poolSize);
+
+        /**
+         * Количество полей, которые сейчас создаются для этого пула.
+         */
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        /**
+         * Закончилась ли ошибкой последняя попытка создать поле для этого пула.
+         */
+        volatile boolean failing;
+
+        Pool(PoolKey key) {
+            this.key = key;
+        }
+
+        void refill() {
+            while (true) {
+                int scheduled = inFlight.get();
+                if (fields.size() + scheduled >= poolSize)
+                    return;
+                if (!inFlight.compareAndSet(scheduled, scheduled + 1))
+                    continue;
+                try {
+                    executor.execute(this::generate);
+                } catch (RejectedExecutionException e) {
+                    inFlight.decrementAndGet();
+                    return;
+                }
+            }
+        }
+
+        void generate() {
+            try {
+                fields.offer(delegate.createGameField(key.getFieldSize(), key.getBlockSize(), key.getKnownCellCount()));
+                failing = false;
+            } catch (RuntimeException e) {
+                failures.increment();
+                failing = true;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -2,126 +2,67 @@ package nastya.sudoku.game;
 
 import nastya.sudoku.commons.*;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import java.util.SplittableRandom;
+import java.util.function.BiConsumer;
+
+/**
+ * Фабрика случайных полей: заполненное поле строится {@link BoardGenerator}, затем случайные клетки скрываются.<br/>
+ * Каждый поток получает свой {@link SplittableRandom}, отщеплённый от общего генератора, поэтому потоки
+ * не борются за общий генератор, а при заданном {@code seed} последовательность полей в одном потоке воспроизводима.
+ */
 public class RandomGameFieldFactoryImpl implements GameFieldFactory {
 
-    private final ExtendedRandom rnd = ExtendedRandom.getInstance();
+    private final SplittableRandom root;
+    private final ThreadLocal<SplittableRandom> randoms = ThreadLocal.withInitial(this::split);
+    private final ThreadLocal<BoardGenerator> generators = new ThreadLocal<>();
+    private final BiConsumer<String, Object[]> logger;
 
-    @Override
-    public GameField createGameField(FieldSize fieldSize, FieldSize blockSize, int knownCellCount) {
-        List<Cell> result = new InternalGameFieldBuilder(fieldSize, blockSize).generate(1000);
-        while (result.size() > knownCellCount)
-            result.remove(rnd.nextInt(result.size()));
-        return new GameFieldImpl(fieldSize, blockSize, result);
+    public RandomGameFieldFactoryImpl() {
+        this(new SplittableRandom().nextLong(), null);
     }
 
-    private class InternalGameFieldBuilder {
-
-        int[][] a;
-        FieldSize fieldSize;
-        FieldSize blockSize;
-        FieldSize blockCount;
-        Runnable[] randomizers;
-
-        InternalGameFieldBuilder(FieldSize fieldSize, FieldSize blockSize) {
-            this.fieldSize = fieldSize;
-            this.blockSize = blockSize;
-            this.blockCount = new FieldSize(
-                    fieldSize.getRowCount() / blockSize.getRowCount(),
-                    fieldSize.getColumnCount() / blockSize.getColumnCount()
-            );
-            randomizers = new Runnable[]{
-                    this::swapRandomRows,
-                    this::swapRandomColumns,
-                    this::swapRandomHorizontalBlocks,
-                    this::swapRandomVerticalBlocks
-            };
-        }
-
-        List<Cell> generate(int swapCount) {
-            int rowCount = fieldSize.getRowCount();
-            int columnCount = fieldSize.getColumnCount();
-            a = new int[rowCount][columnCount];
-            for (int i = 0; i < rowCount; i++) {
-                int startColumn = ((i % blockSize.getRowCount()) * blockSize.getColumnCount()) + (i / blockSize.getRowCount());
-                for (int j = 0; j < columnCount; j++)
-                    a[i][(startColumn + j) % columnCount] = j;
-            }
-
-            for (int i = 0; i < swapCount; i++)
-                randomizers[rnd.nextInt(randomizers.length)].run();
-
-            for (int i = 0; i < rowCount; i++, System.err.println())
-                for (int j = 0; j < columnCount; j++)
-                    System.err.print(a[i][j] + " ");
-            System.err.println();
-
-            List<Cell> result = new ArrayList<>(rowCount * columnCount);
-            for (int i = 0; i < rowCount; i++)
-                for (int j = 0; j < columnCount; j++)
-                    result.add(new Cell(new CellPosition(i, j), a[i][j]));
-            return result;
-        }
-
-        void swapRandomRows() {
-            int block = rnd.nextInt(blockCount.getRowCount());
-            int blockRows = blockSize.getRowCount();
-            int r1 = block * blockRows + rnd.nextInt(blockRows);
-            int r2 = block * blockRows + rnd.nextInt(blockRows);
-            swapRows(r1, r2);
-        }
-
-        void swapRandomColumns() {
-            int block = rnd.nextInt(blockCount.getColumnCount());
-            int blockColumns = blockSize.getColumnCount();
-            int c1 = block * blockColumns + rnd.nextInt(blockColumns);
-            int c2 = block * blockColumns + rnd.nextInt(blockColumns);
-            swapColumns(c1, c2);
-        }
-
-        void swapRandomHorizontalBlocks() {
-            int b1 = rnd.nextInt(blockCount.getRowCount());
-            int b2 = rnd.nextInt(blockCount.getRowCount());
-            swapHorizontalBlocks(b1, b2);
-        }
-
-        void swapRandomVerticalBlocks() {
-            int b1 = rnd.nextInt(blockCount.getColumnCount());
-            int b2 = rnd.nextInt(blockCount.getColumnCount());
-            swapVerticalBlocks(b1, b2);
-        }
+    public RandomGameFieldFactoryImpl(long seed) {
+        this(seed, null);
+    }
 
-        void swapHorizontalBlocks(int b1, int b2) {
-            int start1 = b1 * blockSize.getRowCount();
-            int start2 = b2 * blockSize.getRowCount();
-            for (int i = 0; i < blockSize.getRowCount(); i++)
-                swapRows(start1 + i, start2 + i);
-        }
+    /**
+     * @param logger получает каждое созданное заполненное поле; {@code null}, чтобы ничего не выводить.
+     */
+    public RandomGameFieldFactoryImpl(long seed, BiConsumer<String, Object[]> logger) {
+        this.root = new SplittableRandom(seed);
+        this.logger = logger;
+    }
 
-        void swapVerticalBlocks(int b1, int b2) {
-            int start1 = b1 * blockSize.getColumnCount();
-            int start2 = b2 * blockSize.getColumnCount();
-            for (int i = 0; i < blockSize.getColumnCount(); i++)
-                swapColumns(start1 + i, start2 + i);
-        }
+    @Override
+    public GameField createGameField(FieldSize fieldSize, FieldSize blockSize, int knownCellCount) {
+        return createGameField(fieldSize, blockSize, knownCellCount, randoms.get());
+    }
 
-        void swapRows(int r1, int r2) {
-            for (int i = 0; i < fieldSize.getColumnCount(); i++)
-                swap(a[r1], i, a[r2], i);
+    /**
+     * Создаёт поле, используя переданный генератор случайных чисел вместо генератора потока.
+     */
+    public GameField createGameField(FieldSize fieldSize, FieldSize blockSize, int knownCellCount, SplittableRandom random) {
+        BoardGenerator generator = generators.get();
+        if (generator == null || !generator.fits(fieldSize, blockSize)) {
+            generator = new BoardGenerator(fieldSize, blockSize);
+            generators.set(generator);
         }
+        int[] cells = new int[fieldSize.getCellCount()];
+        generator.generate(random, cells);
+        if (logger != null)
+            logger.accept("Сгенерировано поле:\n%s", new Object[]{format(cells, fieldSize.getColumnCount())});
+        generator.hide(random, cells, knownCellCount);
+        return new BitmaskGameFieldImpl(fieldSize, blockSize, cells);
+    }
 
-        void swapColumns(int c1, int c2) {
-            for (int i = 0; i < fieldSize.getRowCount(); i++)
-                swap(a[i], c1, a[i], c2);
-        }
+    private synchronized SplittableRandom split() {
+        return root.split();
+    }
 
-        void swap(int[] a1, int at1, int[] a2, int at2) {
-            int x = a1[at1];
-            int y = a2[at2];
-            a1[at1] = y;
-            a2[at2] = x;
-        }
+    private static String format(int[] cells, int columnCount) {
+        StringBuilder result = new StringBuilder(cells.length * 3);
+        for (int i = 0; i < cells.length; i++)
+            result.append(cells[i]).append(i % columnCount == columnCount - 1 ? '\n' : ' ');
+        return result.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+package rustam.minesweeper.gui;
+
+import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.layout.ColumnConstraints;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.RowConstraints;
+import javafx.scene.text.TextAlignment;
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.commons.GameField;
+
+import java.util.List;
+
+/**
+ * Рисует поле кнопками, сгруппированными по блокам во вложенные {@code GridPane}.
+ */
+class ButtonGridRenderer implements GridRenderer {
+
+    private final FieldSize fieldSize;
+    private final FieldSize blockSize;
+    private final Button[] buttons;
+
+    /**
+     * Значения, показанные на кнопках, увеличенные на единицу; {@code 0} — пустая клетка.
+     */
+    private final int[] shown;
+
+    ButtonGridRenderer(GridPane grid, FieldSize fieldSize, FieldSize blockSize) {
+        this.fieldSize = fieldSize;
+        this.blockSize = blockSize;
+        FieldSize blockCount = new FieldSize(
+                fieldSize.getRowCount() / blockSize.getRowCount(),
+                fieldSize.getColumnCount() / blockSize.getColumnCount());
+        int columnCount = fieldSize.getColumnCount();
+        buttons = new Button[fieldSize.getCellCount()];
+        shown = new int[buttons.length];
+
+        resizeGridConstraints(grid, blockCount);
+        grid.getChildren().clear();
+        grid.setGridLinesVisible(true);
+        for (int i = 0; i < blockCount.getRowCount(); i++) {
+            for (int j = 0; j < blockCount.getColumnCount(); j++) {
+                GridPane block = new GridPane();
+                block.setGridLinesVisible(true);
+                block.setPadding(new Insets(4));
+                resizeGridConstraints(block, blockSize);
+                for (int x = 0; x < blockSize.getRowCount(); x++) {
+                    for (int y = 0; y < blockSize.getColumnCount(); y++) {
+                        int row = i * blockSize.getRowCount() + x;
+                        int column = j * blockSize.getColumnCount() + y;
+                        block.add(buttons[row * columnCount + column] = createButton(), y, x);
+                    }
+                }
+                grid.add(block, j, i);
+            }
+        }
+    }
+
+    @Override
+    public boolean fits(FieldSize fieldSize, FieldSize blockSize) {
+        return this.fieldSize.equals(fieldSize) && this.blockSize.equals(blockSize);
+    }
+
+    @Override
+    public void redrawCell(GameField gameField, int cell) {
+        Integer value = gameField.getValue(gameField.getGeometry().getPosition(cell));
+        int code = value == null ? 0 : value + 1;
+        if (shown[cell] == code)
+            return;
+        shown[cell] = code;
+        buttons[cell].setText(GridRenderer.text(value));
+    }
+
+    static void resizeGridConstraints(GridPane grid, FieldSize size) {
+        resizeRowConstraints(grid.getRowConstraints(), size.getRowCount());
+        resizeColumnConstraints(grid.getColumnConstraints(), size.getColumnCount());
+    }
+
+    private static void resizeRowConstraints(List<RowConstraints> rowConstraints, int size) {
+        rowConstraints.clear();
+        for (int i = 0; i < size; i++)
+            rowConstraints.add(new RowConstraints() {{
+                setVgrow(Priority.ALWAYS);
+            }});
+    }
+
+    private static void resizeColumnConstraints(List<ColumnConstraints> columnConstraints, int size) {
+        columnConstraints.clear();
+        for (int i = 0; i < size; i++)
+            columnConstraints.add(new ColumnConstraints() {{
+                setHgrow(Priority.ALWAYS);
+            }});
+    }
+
+    private Button createButton() {
+        Button button = new Button();
+        button.setPadding(new Insets(1));
+        button.setMinSize(1, 1);
+        button.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
+        button.setTextAlignment(TextAlignment.CENTER);
+        return button;
+    }
+}
@@ -0,0 +1,122 @@
+package rustam.minesweeper.gui;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.commons.GameField;
+
+/**
+ * Рисует поле на одном {@link Canvas} вместо сотен кнопок: подходит для очень больших полей.
+ * При изменении размера окна поле перерисовывается целиком.
+ */
+class CanvasGridRenderer implements GridRenderer {
+
+    private static final Color BACKGROUND = Color.WHITE;
+    private static final Color CELL_LINE = Color.LIGHTGRAY;
+    private static final Color BLOCK_LINE = Color.BLACK;
+    private static final Color TEXT = Color.BLACK;
+
+    private final FieldSize fieldSize;
+    private final FieldSize blockSize;
+    private final Canvas canvas = new Canvas();
+
+    /**
+     * Значения, нарисованные в клетках, увеличенные на единицу; {@code 0} — пустая клетка.
+     */
+    private final int[] shown;
+    private GameField gameField;
+    private Font font = Font.getDefault();
+
+    CanvasGridRenderer(GridPane grid, FieldSize fieldSize, FieldSize blockSize) {
+        this.fieldSize = fieldSize;
+        this.blockSize = blockSize;
+        shown = new int[fieldSize.getCellCount()];
+
+        Pane holder = new Pane(canvas);
+        holder.setMinSize(1, 1);
+        canvas.widthProperty().bind(holder.widthProperty());
+        canvas.heightProperty().bind(holder.heightProperty());
+        canvas.widthProperty().addListener(observable -> redrawAll());
+        canvas.heightProperty().addListener(observable -> redrawAll());
+
+        ButtonGridRenderer.resizeGridConstraints(grid, new FieldSize(1, 1));
+        grid.getChildren().clear();
+        grid.setGridLinesVisible(false);
+        grid.add(holder, 0, 0);
+    }
+
+    @Override
+    public boolean fits(FieldSize fieldSize, FieldSize blockSize) {
+        return this.fieldSize.equals(fieldSize) && this.blockSize.equals(blockSize);
+    }
+
+    @Override
+    public void redrawCell(GameField gameField, int cell) {
+        this.gameField = gameField;
+        Integer value = gameField.getValue(gameField.getGeometry().getPosition(cell));
+        int code = value == null ? 0 : value + 1;
+        if (shown[cell] == code)
+            return;
+        shown[cell] = code;
+        drawCell(canvas.getGraphicsContext2D(), cell, value);
+    }
+
+    private void redrawAll() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        g.setFill(BACKGROUND);
+        g.fillRect(0, 0, width, height);
+
+        int rows = fieldSize.getRowCount();
+        int columns = fieldSize.getColumnCount();
+        double cellWidth = width / columns;
+        double cellHeight = height / rows;
+        for (int row = 0; row <= rows; row++) {
+            boolean block = row % blockSize.getRowCount() == 0;
+            g.setStroke(block ? BLOCK_LINE : CELL_LINE);
+            g.setLineWidth(block ? 2 : 1);
+            g.strokeLine(0, row * cellHeight, width, row * cellHeight);
+        }
+        for (int column = 0; column <= columns; column++) {
+            boolean block = column % blockSize.getColumnCount() == 0;
+            g.setStroke(block ? BLOCK_LINE : CELL_LINE);
+            g.setLineWidth(block ? 2 : 1);
+            g.strokeLine(column * cellWidth, 0, column * cellWidth, height);
+        }
+
+        for (int cell = 0; cell < shown.length; cell++) {
+            Integer value = gameField == null ? null : gameField.getValue(gameField.getGeometry().getPosition(cell));
+            shown[cell] = value == null ? 0 : value + 1;
+            if (value != null)
+                drawCell(g, cell, value);
+        }
+    }
+
+    private void drawCell(GraphicsContext g, int cell, Integer value) {
+        int columns = fieldSize.getColumnCount();
+        double cellWidth = canvas.getWidth() / columns;
+        double cellHeight = canvas.getHeight() / fieldSize.getRowCount();
+        double x = cell % columns * cellWidth;
+        double y = cell / columns * cellHeight;
+
+        g.setFill(BACKGROUND);
+        g.fillRect(x + 1.5, y + 1.5, cellWidth - 3, cellHeight - 3);
+        if (value == null)
+            return;
+        double fontSize = Math.min(cellWidth, cellHeight) * 0.6;
+        if (font.getSize() != fontSize)
+            font = Font.font(fontSize);
+        g.setFill(TEXT);
+        g.setFont(font);
+        g.setTextAlign(TextAlignment.CENTER);
+        g.setTextBaseline(VPos.CENTER);
+        g.fillText(GridRenderer.text(value), x + cellWidth / 2, y + cellHeight / 2);
+    }
+}
@@ -0,0 +1,32 @@
+package rustam.minesweeper.gui;
+
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.commons.GameField;
+
+/**
+ * Отрисовка игрового поля внутри {@code GridPane} окна.<br/>
+ * Созданные узлы переиспользуются для всех полей той же геометрии,
+ * а перерисовываются только клетки, значение которых изменилось.
+ */
+interface GridRenderer {
+
+    /**
+     * @return {@code true}, если отрисовку можно переиспользовать для поля такой геометрии.
+     */
+    boolean fits(FieldSize fieldSize, FieldSize blockSize);
+
+    /**
+     * Перерисовывает клетку с номером {@code cell}, если её значение на экране устарело.
+     */
+    void redrawCell(GameField gameField, int cell);
+
+    default void redraw(GameField gameField) {
+        int cellCount = gameField.getFieldSize().getCellCount();
+        for (int cell = 0; cell < cellCount; cell++)
+            redrawCell(gameField, cell);
+    }
+
+    static String text(Integer value) {
+        return value == null ? "" : 1 + value + "";
+    }
+}
@@ -1,39 +1,78 @@
 package rustam.minesweeper.gui;
 
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
-import javafx.geometry.Insets;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
-import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.GridPane;
-import javafx.scene.layout.Priority;
-import javafx.scene.layout.RowConstraints;
-import javafx.scene.text.TextAlignment;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import nastya.sudoku.ai.CountingEventSink;
+import nastya.sudoku.ai.RingBufferEventSink;
 import nastya.sudoku.ai.Solver;
+import nastya.sudoku.ai.SolverEvent;
+import nastya.sudoku.commons.CellChangeListener;
 import nastya.sudoku.commons.CellPosition;
+import nastya.sudoku.commons.FieldGeometry;
 import nastya.sudoku.commons.FieldSize;
 import nastya.sudoku.commons.GameField;
 import nastya.sudoku.commons.GameStatus;
 import nastya.sudoku.game.GameFieldFactory;
+import nastya.sudoku.game.PooledGameFieldFactoryImpl;
 import nastya.sudoku.game.RandomGameFieldFactoryImpl;
 
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainController extends Application {
 
-    private final GameFieldFactory gameFieldFactory = new RandomGameFieldFactoryImpl();
+    /**
+     * Сколько последних событий решателя хранить и показывать в журнале.
+     */
+    private static final int EVENT_LOG_SIZE = 1000;
+
+    /**
+     * Как часто обновлять ход решения на экране.
+     */
+    private static final Duration PROGRESS_PERIOD = Duration.millis(200);
+
+    private final GameFieldFactory gameFieldFactory = new PooledGameFieldFactoryImpl(
+            new RandomGameFieldFactoryImpl(), 4, 1, PooledGameFieldFactoryImpl.Mode.BLOCK);
+    private final RingBufferEventSink solverEvents = new RingBufferEventSink(EVENT_LOG_SIZE);
+    private long solverEventsRead;
+    private final ExecutorService solverExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "solver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Task<GameField> solveTask;
+    private Timeline progressTimeline;
 
     @FXML
     private GridPane gameFieldGrid;
-    private Button[][] buttonsOnGrid;
+    private GridRenderer gridRenderer;
+    private final BitSet dirtyCells = new BitSet();
+    private final CellChangeListener dirtyCellListener = dirtyCells::set;
+    @FXML
+    private CheckBox canvasRendererBox;
     @FXML
     private ListView<String> eventLogList;
     @FXML
@@ -42,30 +81,153 @@ public class MainController extends Application {
     private TextField blockWidthLabel;
     @FXML
     private TextField freeCellsCountLabel;
+    @FXML
+    private TextField solveTimeoutLabel;
+    @FXML
+    private Button solveButton;
+    @FXML
+    private Button cancelSolveButton;
+    @FXML
+    private Label solverProgressLabel;
     private GameField gameField;
 
     public static void main(String[] args) {
         launch(args);
     }
 
+    /**
+     * Запускает решение копии поля в фоновом потоке. Пока решение идёт, раз в {@link #PROGRESS_PERIOD}
+     * показываются количество узлов, глубина и скорость поиска, а поле перерисовывается один раз в конце.
+     */
     @FXML
     private void solve() {
-        if (gameField == null || gameField.getGameStatus() == GameStatus.FINISHED)
+        if (gameField == null || gameField.getGameStatus() == GameStatus.FINISHED || solveTask != null)
+            return;
+        long timeoutNanos = Math.round(Double.parseDouble(solveTimeoutLabel.getText()) * 1e9);
+        long start = System.nanoTime();
+        GameField target = gameField;
+        GameField copy = gameField.clone();
+        CountingEventSink counters = new CountingEventSink();
+
+        Task<GameField> task = new Task<GameField>() {
+            @Override
+            protected GameField call() {
+                Solver solver = new Solver((format, args) -> Platform.runLater(() -> log(format, args)),
+                        counters.andThen(solverEvents),
+                        () -> isCancelled() || System.nanoTime() - start > timeoutNanos);
+                return solver.solve(copy) ? copy : null;
+            }
+        };
+        // Задача могла завершиться уже после отмены или начала новой игры; тогда её результат не относится к полю.
+        task.setOnSucceeded(e -> {
+            if (solveTask != task || gameField != target)
+                return;
+            if (task.getValue() != null)
+                applySolution(task.getValue());
+            else if (System.nanoTime() - start > timeoutNanos)
+                log("Время на решение истекло");
+            finishSolve(counters, start);
+        });
+        task.setOnFailed(e -> {
+            if (solveTask != task || gameField != target)
+                return;
+            log("Ошибка при решении: %s", task.getException());
+            finishSolve(counters, start);
+        });
+
+        progressTimeline = new Timeline(new KeyFrame(PROGRESS_PERIOD, e -> {
+            renderProgress(counters, start);
+            renderSolverEvents();
+        }));
+        progressTimeline.setCycleCount(Timeline.INDEFINITE);
+        progressTimeline.play();
+
+        solveTask = task;
+        solveButton.setDisable(true);
+        cancelSolveButton.setDisable(false);
+        solverExecutor.execute(task);
+    }
+
+    /**
+     * Отменяет решение и сразу отвязывает задачу от окна: её поздние события уже ничего не меняют.
+     */
+    @FXML
+    private void cancelSolve() {
+        if (solveTask == null)
             return;
-        new Solver(this::log).solve(gameField);
+        solveTask.cancel();
+        stopSolve();
+        log("Решение отменено");
+    }
+
+    private void finishSolve(CountingEventSink counters, long start) {
+        stopSolve();
+        renderProgress(counters, start);
+        renderSolverEvents();
         redrawGrid();
     }
 
+    private void stopSolve() {
+        progressTimeline.stop();
+        solveTask = null;
+        solveButton.setDisable(false);
+        cancelSolveButton.setDisable(true);
+    }
+
+    private void renderProgress(CountingEventSink counters, long start) {
+        long nodes = counters.getCount(SolverEvent.PLACE);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        solverProgressLabel.setText(String.format("Узлов: %d, глубина: %d, узлов в секунду: %.0f",
+                nodes, counters.getDepth(), seconds == 0 ? 0 : nodes / seconds));
+    }
+
+    /**
+     * Перерисовывает только клетки, изменившиеся с прошлой перерисовки.
+     */
     private void redrawGrid() {
-        gameField.allCells().forEach(cell -> {
-            CellPosition position = cell.getPosition();
-            String text = cell.getValue() == null ? "" : 1 + cell.getValue() + "";
-            buttonsOnGrid[position.getRow()][position.getColumn()].setText(text);
-        });
+        for (int cell = dirtyCells.nextSetBit(0); cell >= 0; cell = dirtyCells.nextSetBit(cell + 1))
+            gridRenderer.redrawCell(gameField, cell);
+        dirtyCells.clear();
+    }
+
+    private void setGameField(GameField newGameField) {
+        if (gameField != null)
+            gameField.removeCellChangeListener(dirtyCellListener);
+        gameField = newGameField;
+        gameField.addCellChangeListener(dirtyCellListener);
+        dirtyCells.clear();
+    }
+
+    /**
+     * Переносит в текущее поле значения из решённой копии, отмечая изменённые клетки.
+     */
+    private void applySolution(GameField solution) {
+        FieldGeometry geometry = gameField.getGeometry();
+        for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+            CellPosition position = geometry.getPosition(cell);
+            if (!gameField.isKnown(position))
+                gameField.setValue(position, solution.getValue(position));
+        }
+    }
+
+    /**
+     * Переиспользует отрисовку, если геометрия и способ отрисовки не изменились, иначе создаёт новую.
+     */
+    private void prepareGridRenderer() {
+        FieldSize fieldSize = gameField.getFieldSize();
+        FieldSize blockSize = gameField.getBlockSize();
+        boolean canvas = canvasRendererBox.isSelected();
+        if (gridRenderer != null && gridRenderer.fits(fieldSize, blockSize)
+                && gridRenderer instanceof CanvasGridRenderer == canvas)
+            return;
+        gridRenderer = canvas
+                ? new CanvasGridRenderer(gameFieldGrid, fieldSize, blockSize)
+                : new ButtonGridRenderer(gameFieldGrid, fieldSize, blockSize);
     }
 
     @FXML
     void startNewGame() {
+        cancelSolve();
         int blockHeight = Integer.parseInt(blockHeightLabel.getText());
         int blockWidth = Integer.parseInt(blockWidthLabel.getText());
         int sideLength = blockHeight * blockWidth;
@@ -76,69 +238,28 @@ public class MainController extends Application {
         int freeCellCount = (int) Math.round(freeCellPercent / 100.0 * fieldSize.getCellCount());
         int knownCellCount = fieldSize.getCellCount() - freeCellCount;
 
-        gameField = gameFieldFactory.createGameField(fieldSize, blockSize, knownCellCount);
+        setGameField(gameFieldFactory.createGameField(fieldSize, blockSize, knownCellCount));
 
-        redrawGridStructure();
-        redrawGrid();
+        prepareGridRenderer();
+        gridRenderer.redraw(gameField);
         eventLogList.getItems().clear();
+        solverEventsRead = solverEvents.getWritten();
+        solverProgressLabel.setText("");
     }
 
-    private void redrawGridStructure() {
-        FieldSize fieldSize = gameField.getFieldSize();
-        FieldSize blockSize = gameField.getBlockSize();
-        FieldSize blockCount = gameField.getBlockCount();
-
-        resizeGridConstraints(gameFieldGrid, blockCount);
-        buttonsOnGrid = new Button[fieldSize.getRowCount()][fieldSize.getColumnCount()];
-
-        gameFieldGrid.getChildren().clear();
-        gameFieldGrid.setGridLinesVisible(true);
-        for (int i = 0; i < blockCount.getRowCount(); i++) {
-            for (int j = 0; j < blockCount.getColumnCount(); j++) {
-                GridPane block = new GridPane();
-                block.setGridLinesVisible(true);
-                block.setPadding(new Insets(4));
-                resizeGridConstraints(block, blockSize);
-                for (int x = 0; x < blockSize.getRowCount(); x++) {
-                    for (int y = 0; y < blockSize.getColumnCount(); y++) {
-                        int row = i * blockSize.getRowCount() + x;
-                        int column = j * blockSize.getColumnCount() + y;
-                        block.add(buttonsOnGrid[row][column] = createButton(), y, x);
-                    }
-                }
-                gameFieldGrid.add(block, j, i);
-            }
-        }
-    }
-
-    private void resizeGridConstraints(GridPane grid, FieldSize size) {
-        resizeRowConstraints(grid.getRowConstraints(), size.getRowCount());
-        resizeColumnConstraints(grid.getColumnConstraints(), size.getColumnCount());
-    }
-
-    private void resizeRowConstraints(List<RowConstraints> rowConstraints, int size) {
-        rowConstraints.clear();
-        for (int i = 0; i < size; i++)
-            rowConstraints.add(new RowConstraints() {{
-                setVgrow(Priority.ALWAYS);
-            }});
-    }
-
-    private void resizeColumnConstraints(List<ColumnConstraints> columnConstraints, int size) {
-        columnConstraints.clear();
-        for (int i = 0; i < size; i++)
-            columnConstraints.add(new ColumnConstraints() {{
-                setHgrow(Priority.ALWAYS);
-            }});
-    }
-
-    private Button createButton() {
-        Button button = new Button();
-        button.setPadding(new Insets(1));
-        button.setMinSize(1, 1);
-        button.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
-        button.setTextAlignment(TextAlignment.CENTER);
-        return button;
+    /**
+     * Добавляет в журнал одним изменением списка события решателя, накопившиеся с прошлого раза.
+     */
+    private void renderSolverEvents() {
+        List<String> batch = new ArrayList<>();
+        String time = LocalTime.now() + ": ";
+        solverEventsRead = solverEvents.drain(solverEventsRead, (event, cell, value, depth) ->
+                batch.add(time + String.format(event.getFormat(), gameField.getGeometry().getPosition(cell), value)));
+        Collections.reverse(batch);
+        ObservableList<String> items = eventLogList.getItems();
+        items.addAll(0, batch);
+        if (items.size() > EVENT_LOG_SIZE)
+            items.remove(EVENT_LOG_SIZE, items.size());
     }
 
     private void log(String format, Object... args) {
@@ -151,6 +272,7 @@ public class MainController extends Application {
     void keyPressed(KeyEvent e) {
         if (e.isControlDown()) solve();
         if (e.isShiftDown()) startNewGame();
+        if (e.getCode() == KeyCode.ESCAPE) cancelSolve();
     }
 
     @Override
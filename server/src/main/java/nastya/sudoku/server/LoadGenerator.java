@@ -0,0 +1,172 @@
+package nastya.sudoku.server;
+
+import nastya.sudoku.ai.Histogram;
+import nastya.sudoku.ai.PuzzleFormat;
+import nastya.sudoku.commons.FieldSize;
+import nastya.sudoku.game.BoardGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный клиент для {@link SolveServer}: несколько потоков в цикле отправляют пакеты задач
+ * и считают ответы, отказы {@code 429} и время ответа.<br/>
+ * Задачи берутся из файла (по одной на строку) или генерируются: 9x9 с 30 случайными известными клетками.
+ */
+public class LoadGenerator {
+
+    private final URL url;
+    private final List<byte[]> puzzles;
+    private final int puzzlesPerRequest;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder solved = new LongAdder();
+    private final LongAdder results = new LongAdder();
+    private final Histogram latency = new Histogram();
+
+    public LoadGenerator(URL url, List<byte[]> puzzles, int puzzlesPerRequest) {
+        this.url = url;
+        this.puzzles = puzzles;
+        this.puzzlesPerRequest = puzzlesPerRequest;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Использование: LoadGenerator <адрес /solve> [потоков] [секунд] [задач в запросе] [файл задач]");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int perRequest = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        List<byte[]> puzzles = args.length > 4 ? read(args[4]) : generate(1000);
+        LoadGenerator generator = new LoadGenerator(new URL(args[0]), puzzles, perRequest);
+        System.out.println(generator.run(threads, seconds * 1_000_000_000L));
+    }
+
+    /**
+     * Нагружает сервер из {@code threads} потоков в течение {@code nanos} наносекунд.
+     *
+     * @return итоги нагрузки.
+     */
+    public String run(int threads, long nanos) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + nanos;
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int first = i;
+            Thread client = new Thread(() -> load(first, end), "load-" + i);
+            clients.add(client);
+            client.start();
+        }
+        for (Thread client : clients)
+            client.join();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        return String.format("Запросов: %d (%.1f в секунду), отклонено (429): %d, ошибок: %d%n"
+                        + "Задач получено: %d (%.1f в секунду), решено: %d%n"
+                        + "Время ответа (мс): p50 = %.2f, p90 = %.2f, p99 = %.2f, max = %.2f",
+                requests.sum(), requests.sum() / elapsed, rejected.sum(), failed.sum(),
+                results.sum(), results.sum() / elapsed, solved.sum(),
+                latency.getPercentile(50) / 1e6, latency.getPercentile(90) / 1e6,
+                latency.getPercentile(99) / 1e6, latency.getMax() / 1e6);
+    }
+
+    private void load(int first, long end) {
+        byte[] buffer = new byte[8192];
+        for (int next = first * puzzlesPerRequest; System.nanoTime() - end < 0; next += puzzlesPerRequest) {
+            byte[] body = body(next);
+            long start = System.nanoTime();
+            try {
+                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(body.length);
+                connection.setRequestProperty("Content-Type", "application/x-ndjson");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+                int code = connection.getResponseCode();
+                if (code == 200) {
+                    try (InputStream in = connection.getInputStream()) {
+                        count(in, buffer);
+                    }
+                } else {
+                    if (code == 429)
+                        rejected.increment();
+                    else
+                        failed.increment();
+                    InputStream error = connection.getErrorStream();
+                    if (error != null) {
+                        while (error.read(buffer) >= 0)
+                            ;
+                        error.close();
+                    }
+                }
+            } catch (IOException e) {
+                failed.increment();
+            }
+            requests.increment();
+            latency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Считает строки ответа и решённые задачи среди них.
+     */
+    private void count(InputStream in, byte[] buffer) throws IOException {
+        byte[] marker = "\"solved\"".getBytes(StandardCharsets.US_ASCII);
+        int matched = 0;
+        for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+            for (int i = 0; i < read; i++) {
+                byte b = buffer[i];
+                if (b == '\n')
+                    results.increment();
+                matched = b == marker[matched] ? matched + 1 : b == marker[0] ? 1 : 0;
+                if (matched == marker.length) {
+                    solved.increment();
+                    matched = 0;
+                }
+            }
+        }
+    }
+
+    private byte[] body(int from) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < puzzlesPerRequest; i++)
+            body.append(new String(puzzles.get((from + i) % puzzles.size()), StandardCharsets.US_ASCII)).append('\n');
+        return body.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static List<byte[]> read(String file) throws IOException {
+        List<byte[]> puzzles = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.US_ASCII))
+            if (!line.trim().isEmpty())
+                puzzles.add(line.trim().getBytes(StandardCharsets.US_ASCII));
+        return puzzles;
+    }
+
+    private static List<byte[]> generate(int count) {
+        FieldSize fieldSize = new FieldSize(9, 9);
+        BoardGenerator generator = new BoardGenerator(fieldSize, new FieldSize(3, 3));
+        SplittableRandom random = new SplittableRandom(42);
+        int[] cells = new int[fieldSize.getCellCount()];
+        List<byte[]> puzzles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            generator.generate(random, cells);
+            generator.hide(random, cells, 30);
+            puzzles.add(PuzzleFormat.format(cells));
+        }
+        return puzzles;
+    }
+}
@@ -0,0 +1,104 @@
+package nastya.sudoku.server;
+
+/**
+ * Минимальная поддержка JSON для строк NDJSON: чтение строкового поля из плоского объекта и запись строк.<br/>
+ * Вложенные объекты и массивы не разбираются: сервер принимает только объекты вида
+ * {@code {"id": "...", "puzzle": "..."}}.
+ */
+final class Ndjson {
+
+    private Ndjson() {
+    }
+
+    /**
+     * @return значение строкового или числового поля {@code name} объекта {@code json} или {@code null}, если поля нет.
+     * @throws IllegalArgumentException если значение поля записано с ошибкой.
+     */
+    static String field(String json, String name) {
+        String key = '"' + name + '"';
+        int at = json.indexOf(key);
+        while (at >= 0) {
+            int i = skipSpaces(json, at + key.length());
+            if (i < json.length() && json.charAt(i) == ':')
+                return value(json, skipSpaces(json, i + 1));
+            at = json.indexOf(key, at + 1);
+        }
+        return null;
+    }
+
+    private static String value(String json, int i) {
+        if (i >= json.length())
+            throw new IllegalArgumentException("Нет значения поля");
+        if (json.charAt(i) != '"') {
+            int end = i;
+            while (end < json.length() && "-+.eE0123456789".indexOf(json.charAt(end)) >= 0)
+                end++;
+            if (end == i)
+                throw new IllegalArgumentException("Ожидалась строка или число в позиции " + i);
+            return json.substring(i, end);
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (i++; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '"')
+                return result.toString();
+            if (c != '\\') {
+                result.append(c);
+                continue;
+            }
+            if (++i == json.length())
+                break;
+            char escaped = json.charAt(i);
+            switch (escaped) {
+                case 'n':
+                    result.append('\n');
+                    break;
+                case 't':
+                    result.append('\t');
+                    break;
+                case 'r':
+                    result.append('\r');
+                    break;
+                case 'b':
+                    result.append('\b');
+                    break;
+                case 'f':
+                    result.append('\f');
+                    break;
+                case 'u':
+                    if (i + 4 >= json.length())
+                        throw new IllegalArgumentException("Неполная последовательность \\u");
+                    result.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default:
+                    result.append(escaped);
+            }
+        }
+        throw new IllegalArgumentException("Незакрытая строка");
+    }
+
+    private static int skipSpaces(String json, int i) {
+        while (i < json.length() && Character.isWhitespace(json.charAt(i)))
+            i++;
+        return i;
+    }
+
+    /**
+     * Дописывает {@code value} в {@code out} как строку JSON в кавычках.
+     */
+    static StringBuilder appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+                out.append('\\').append(c);
+            else if (c < ' ')
+                out.append(String.format("\\u%04x", (int) c));
+            else
+                out.append(c);
+        }
+        return out.append('"');
+    }
+}
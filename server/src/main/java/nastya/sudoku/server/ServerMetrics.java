@@ -0,0 +1,87 @@
+package nastya.sudoku.server;
+
+import nastya.sudoku.ai.Histogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики {@link SolveServer} для {@code /metrics}. Запись не блокирует потоки.
+ */
+final class ServerMetrics {
+
+    private static final String[] QUANTILES = {"0.5", "0.9", "0.99", "0.999"};
+
+    final LongAdder requests = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+    final LongAdder badRequests = new LongAdder();
+    final LongAdder abandoned = new LongAdder();
+    final LongAdder batches = new LongAdder();
+    final LongAdder[] statuses = new LongAdder[SolveJob.Status.values().length];
+
+    /**
+     * Время от получения запроса до готовности результата задачи, в наносекундах.
+     */
+    final Histogram latency = new Histogram();
+
+    /**
+     * Время ожидания задачи в очереди, в наносекундах.
+     */
+    final Histogram queueWait = new Histogram();
+
+    /**
+     * Время решения задачи, в наносекундах.
+     */
+    final Histogram solveTime = new Histogram();
+
+    /**
+     * Количество задач в пакете, взятом рабочим потоком из очереди.
+     */
+    final Histogram batchSize = new Histogram();
+
+    ServerMetrics() {
+        for (int i = 0; i < statuses.length; i++)
+            statuses[i] = new LongAdder();
+    }
+
+    void record(SolveJob.Status status, long queueWaitNanos, long solveNanos) {
+        statuses[status.ordinal()].increment();
+        queueWait.record(queueWaitNanos);
+        solveTime.record(solveNanos);
+        latency.record(queueWaitNanos + solveNanos);
+    }
+
+    /**
+     * @return метрики в текстовом формате Prometheus.
+     */
+    String format(int queued, int workers) {
+        StringBuilder out = new StringBuilder();
+        counter(out, "sudoku_requests_total", requests.sum());
+        counter(out, "sudoku_requests_rejected_total", rejected.sum());
+        counter(out, "sudoku_requests_bad_total", badRequests.sum());
+        counter(out, "sudoku_requests_abandoned_total", abandoned.sum());
+        for (SolveJob.Status status : SolveJob.Status.values())
+            out.append("sudoku_puzzles_total{status=\"").append(status.name().toLowerCase()).append("\"} ")
+                    .append(statuses[status.ordinal()].sum()).append('\n');
+        counter(out, "sudoku_batches_total", batches.sum());
+        counter(out, "sudoku_queue_size", queued);
+        counter(out, "sudoku_workers", workers);
+        summary(out, "sudoku_batch_size", batchSize, 1);
+        summary(out, "sudoku_latency_seconds", latency, 1e-9);
+        summary(out, "sudoku_queue_wait_seconds", queueWait, 1e-9);
+        summary(out, "sudoku_solve_seconds", solveTime, 1e-9);
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, long value) {
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void summary(StringBuilder out, String name, Histogram histogram, double scale) {
+        for (String quantile : QUANTILES)
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.getPercentile(Double.parseDouble(quantile) * 100) * scale).append('\n');
+        out.append(name).append("_max ").append(histogram.getMax() * scale).append('\n');
+        out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+        out.append(name).append("_sum ").append(histogram.getMean() * histogram.getCount() * scale).append('\n');
+    }
+}
@@ -0,0 +1,84 @@
+package nastya.sudoku.server;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Одна задача из запроса к {@link SolveServer}. Результат записывается строкой NDJSON в {@link SolveRequest}.
+ */
+final class SolveJob {
+
+    /**
+     * Итог решения задачи, в ответе записывается полем {@code status}.
+     */
+    enum Status {
+        SOLVED("solved"),
+        UNSOLVABLE("unsolvable"),
+        INVALID("invalid"),
+        TIMEOUT("timeout"),
+
+        /**
+         * Решатель завершился с ошибкой.
+         */
+        ERROR("error");
+
+        private final String name;
+
+        Status(String name) {
+            this.name = name;
+        }
+    }
+
+    final SolveRequest request;
+
+    /**
+     * Номер задачи в запросе.
+     */
+    final int index;
+
+    /**
+     * Идентификатор задачи из запроса или {@code null}.
+     */
+    final String id;
+
+    /**
+     * Задача в формате {@link nastya.sudoku.ai.PuzzleFormat}.
+     */
+    final byte[] puzzle;
+
+    /**
+     * Строка ответа, записывается перед передачей задачи в {@link SolveRequest}.
+     */
+    byte[] response;
+
+    SolveJob(SolveRequest request, int index, String id, byte[] puzzle) {
+        this.request = request;
+        this.index = index;
+        this.id = id;
+        this.puzzle = puzzle;
+    }
+
+    /**
+     * Передаёт результат запросу.
+     *
+     * @param solution решение в формате {@link nastya.sudoku.ai.PuzzleFormat} или {@code null}.
+     */
+    void complete(Status status, byte[] solution, long solveNanos) {
+        response = format(status, solution, solveNanos);
+        request.complete(this);
+    }
+
+    /**
+     * @return строка ответа NDJSON для задачи.
+     */
+    byte[] format(Status status, byte[] solution, long solveNanos) {
+        StringBuilder line = new StringBuilder(64 + (solution == null ? 0 : solution.length));
+        line.append("{\"index\":").append(index);
+        if (id != null)
+            Ndjson.appendString(line.append(",\"id\":"), id);
+        line.append(",\"status\":\"").append(status.name).append('"');
+        if (solution != null)
+            line.append(",\"solution\":\"").append(new String(solution, StandardCharsets.US_ASCII)).append('"');
+        line.append(",\"micros\":").append(solveNanos / 1000).append("}\n");
+        return line.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,56 @@
+package nastya.sudoku.server;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запрос к {@link SolveServer}: срок и готовые задачи в порядке их завершения.
+ */
+final class SolveRequest {
+
+    /**
+     * Момент получения запроса по {@link System#nanoTime()}.
+     */
+    final long receivedAt;
+
+    /**
+     * Момент по {@link System#nanoTime()}, после которого задачи запроса не решаются.
+     */
+    final long deadline;
+
+    private final BlockingQueue<SolveJob> results = new LinkedBlockingQueue<>();
+    private volatile boolean abandoned;
+
+    SolveRequest(long receivedAt, long deadline) {
+        this.receivedAt = receivedAt;
+        this.deadline = deadline;
+    }
+
+    void complete(SolveJob job) {
+        if (!abandoned)
+            results.add(job);
+    }
+
+    /**
+     * Ждёт, пока какая-нибудь задача не завершится, но не дольше момента {@code until} по {@link System#nanoTime()}.
+     *
+     * @return следующая завершённая задача или {@code null}, если время вышло.
+     */
+    SolveJob next(long until) throws InterruptedException {
+        return results.poll(until - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Отмечает, что ответ больше никто не ждёт, например клиент закрыл соединение.
+     * Оставшиеся задачи запроса пропускаются.
+     */
+    void abandon() {
+        abandoned = true;
+        results.clear();
+    }
+
+    boolean isAbandoned() {
+        return abandoned;
+    }
+}
@@ -0,0 +1,249 @@
+package nastya.sudoku.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Решение задач по HTTP на встроенном в JDK сервере.<br/>
+ * {@code POST /solve} принимает одну задачу или пакет в формате NDJSON: каждая строка — либо задача
+ * в формате {@link nastya.sudoku.ai.PuzzleFormat}, либо объект {@code {"id": "...", "puzzle": "..."}}.
+ * Ответ приходит потоком NDJSON по мере решения задач, по строке на задачу, в порядке завершения:
+ * {@code {"index": 0, "id": "...", "status": "solved", "solution": "...", "micros": 120}}.<br/>
+ * Срок на запрос задаётся параметром {@code timeoutMs} или заголовком {@code X-Timeout-Ms}
+ * (не больше {@link #MAX_TIMEOUT_MS}); по его истечении поиск прерывается и задача получает статус {@code timeout}.
+ * Задача, на которой решатель завершился с ошибкой, получает статус {@code error}.
+ * Если в очереди {@link SolveWorkers} нет места для всего запроса, сервер отвечает {@code 429}.<br/>
+ * {@code GET /metrics} возвращает счётчики и гистограммы в текстовом формате Prometheus.
+ */
+public class SolveServer {
+
+    public static final long MAX_TIMEOUT_MS = 60_000;
+    private static final int MAX_BODY = 16 << 20;
+
+    /**
+     * Сколько ответ ждёт после срока запроса: рабочие потоки сами отмечают задачи как {@code timeout},
+     * но узнают о сроке не мгновенно.
+     */
+    private static final long DEADLINE_GRACE_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final HttpServer http;
+    private final ExecutorService handlers;
+    private final SolveWorkers workers;
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final int queueSize;
+    private final long timeoutMillis;
+
+    /**
+     * @param workers       количество потоков, решающих задачи.
+     * @param handlers      количество потоков, принимающих запросы и отправляющих ответы.
+     * @param queueSize     сколько задач может ждать решения; лишние запросы отклоняются с кодом {@code 429}.
+     * @param maxBatch      сколько задач рабочий поток забирает из очереди за раз.
+     * @param timeoutMillis срок на запрос, если клиент его не указал.
+     */
+    public SolveServer(InetSocketAddress address, int workers, int handlers, int queueSize, int maxBatch,
+                       long timeoutMillis) throws IOException {
+        this.queueSize = queueSize;
+        this.timeoutMillis = timeoutMillis;
+        this.workers = new SolveWorkers(workers, queueSize, maxBatch, metrics);
+        AtomicInteger number = new AtomicInteger();
+        this.handlers = Executors.newFixedThreadPool(handlers, task -> {
+            Thread thread = new Thread(task, "http-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        http = HttpServer.create(address, 0);
+        http.setExecutor(this.handlers);
+        http.createContext("/solve", this::solve);
+        http.createContext("/metrics", this::metrics);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queueSize = args.length > 2 ? Integer.parseInt(args[2]) : 4096;
+        int maxBatch = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        long timeoutMillis = args.length > 4 ? Long.parseLong(args[4]) : 1000;
+        int handlers = args.length > 5 ? Integer.parseInt(args[5]) : 64;
+        SolveServer server = new SolveServer(new InetSocketAddress(port), workers, handlers, queueSize, maxBatch, timeoutMillis);
+        server.start();
+        System.out.println("Сервер слушает порт " + server.getPort()
+                + ", использование: SolveServer [порт] [решающих потоков] [размер очереди] [размер пакета] [срок, мс] [потоков HTTP]");
+    }
+
+    public void start() {
+        http.start();
+    }
+
+    public void stop() {
+        http.stop(0);
+        workers.shutdown();
+        handlers.shutdownNow();
+    }
+
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    private void solve(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Ожидался POST");
+                return;
+            }
+            long received = System.nanoTime();
+            SolveRequest request;
+            List<SolveJob> jobs;
+            try {
+                request = new SolveRequest(received, received + TimeUnit.MILLISECONDS.toNanos(timeoutMillis(exchange)));
+                jobs = readJobs(exchange.getRequestBody(), request);
+            } catch (IllegalArgumentException e) {
+                metrics.badRequests.increment();
+                respond(exchange, 400, e.getMessage());
+                return;
+            }
+            if (jobs.isEmpty()) {
+                metrics.badRequests.increment();
+                respond(exchange, 400, "Нет ни одной задачи");
+                return;
+            }
+            if (jobs.size() > queueSize) {
+                metrics.badRequests.increment();
+                respond(exchange, 413, "Задач в запросе больше, чем помещается в очередь: " + queueSize);
+                return;
+            }
+
+            metrics.requests.increment();
+            if (!workers.submit(jobs)) {
+                metrics.rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 429, "Очередь заполнена");
+                return;
+            }
+            stream(exchange, request, jobs);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Отправляет строки ответа по мере готовности, пока не будут отправлены строки всех задач.
+     * Задачи, не завершённые к сроку запроса, отправляются со статусом {@code timeout} и больше не решаются.
+     */
+    private void stream(HttpExchange exchange, SolveRequest request, List<SolveJob> jobs) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            boolean[] sent = new boolean[jobs.size()];
+            int count = 0;
+            for (SolveJob job; count < jobs.size(); count++) {
+                job = request.next(request.deadline + DEADLINE_GRACE_NANOS);
+                if (job == null)
+                    break;
+                sent[job.index] = true;
+                out.write(job.response);
+                out.flush();
+            }
+            if (count < jobs.size()) {
+                request.abandon();
+                for (SolveJob job : jobs)
+                    if (!sent[job.index])
+                        out.write(job.format(SolveJob.Status.TIMEOUT, null, 0));
+            }
+            out.close();
+        } catch (IOException e) {
+            metrics.abandoned.increment();
+            request.abandon();
+        } catch (InterruptedException e) {
+            request.abandon();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long timeoutMillis(HttpExchange exchange) {
+        String value = exchange.getRequestHeaders().getFirst("X-Timeout-Ms");
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null)
+            for (String parameter : query.split("&"))
+                if (parameter.startsWith("timeoutMs="))
+                    value = parameter.substring("timeoutMs=".length());
+        if (value == null)
+            return timeoutMillis;
+        try {
+            long timeout = Long.parseLong(value.trim());
+            if (timeout <= 0)
+                throw new IllegalArgumentException("Срок должен быть положительным: " + value);
+            return Math.min(timeout, MAX_TIMEOUT_MS);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Неверный срок: " + value);
+        }
+    }
+
+    private static List<SolveJob> readJobs(InputStream body, SolveRequest request) throws IOException {
+        String text = new String(readBody(body), StandardCharsets.UTF_8);
+        List<SolveJob> jobs = new ArrayList<>();
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0)
+                lineEnd = text.length();
+            String line = text.substring(lineStart, lineEnd).trim();
+            lineStart = lineEnd + 1;
+            if (line.isEmpty())
+                continue;
+
+            String id = null;
+            String puzzle = line;
+            if (line.charAt(0) == '{') {
+                id = Ndjson.field(line, "id");
+                puzzle = Ndjson.field(line, "puzzle");
+                if (puzzle == null)
+                    throw new IllegalArgumentException("В строке " + (jobs.size() + 1) + " нет поля \"puzzle\"");
+            }
+            jobs.add(new SolveJob(request, jobs.size(), id, puzzle.getBytes(StandardCharsets.US_ASCII)));
+        }
+        return jobs;
+    }
+
+    private static byte[] readBody(InputStream body) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int read = body.read(buffer); read >= 0; read = body.read(buffer)) {
+            if (result.size() + read > MAX_BODY)
+                throw new IllegalArgumentException("Запрос длиннее " + MAX_BODY + " байт");
+            result.write(buffer, 0, read);
+        }
+        return result.toByteArray();
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try {
+            byte[] text = metrics.format(workers.getQueued(), workers.getThreads()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, text.length);
+            exchange.getResponseBody().write(text);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, String message) throws IOException {
+        byte[] text = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(code, text.length);
+        exchange.getResponseBody().write(text);
+    }
+}
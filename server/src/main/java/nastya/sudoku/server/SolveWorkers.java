@@ -0,0 +1,120 @@
+package nastya.sudoku.server;
+
+import nastya.sudoku.ai.PrimitiveSolver;
+import nastya.sudoku.ai.PuzzleFormat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рабочие потоки {@link SolveServer} с общей ограниченной очередью задач.<br/>
+ * Рабочий поток забирает из очереди сразу все накопившиеся задачи (не больше {@code maxBatch}),
+ * поэтому мелкие одновременные запросы объединяются в пакеты, а очередь трогается реже.
+ * Каждый поток решает задачи своим {@link PrimitiveSolver}, переиспользуя его структуры.<br/>
+ * Запрос либо помещается в очередь целиком, либо отклоняется, если места нет.
+ * Если решатель бросает исключение, задача завершается со статусом {@link SolveJob.Status#ERROR}.
+ */
+final class SolveWorkers {
+
+    private final int threads;
+    private final int maxBatch;
+    private final BlockingQueue<SolveJob> queue;
+    private final Semaphore capacity;
+    private final ServerMetrics metrics;
+    private final ExecutorService executor;
+
+    SolveWorkers(int threads, int queueSize, int maxBatch, ServerMetrics metrics) {
+        this.threads = threads;
+        this.maxBatch = maxBatch;
+        this.metrics = metrics;
+        queue = new ArrayBlockingQueue<>(queueSize);
+        capacity = new Semaphore(queueSize);
+        AtomicInteger number = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "solver-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++)
+            executor.execute(this::work);
+    }
+
+    /**
+     * @return {@code false}, если в очереди нет места для всех задач; тогда ни одна задача не добавлена.
+     */
+    boolean submit(List<SolveJob> jobs) {
+        if (!capacity.tryAcquire(jobs.size()))
+            return false;
+        queue.addAll(jobs);
+        return true;
+    }
+
+    int getQueued() {
+        return queue.size();
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void work() {
+        PrimitiveSolver solver = new PrimitiveSolver();
+        List<SolveJob> batch = new ArrayList<>(maxBatch);
+        int[] cells = new int[0];
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - 1);
+                capacity.release(batch.size());
+                metrics.batches.increment();
+                metrics.batchSize.record(batch.size());
+                for (SolveJob job : batch) {
+                    if (cells.length != job.puzzle.length)
+                        cells = new int[job.puzzle.length];
+                    solve(solver, job, cells);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void solve(PrimitiveSolver solver, SolveJob job, int[] cells) {
+        SolveRequest request = job.request;
+        if (request.isAbandoned())
+            return;
+        long start = System.nanoTime();
+        byte[] line = job.puzzle;
+        int side = PuzzleFormat.side(line.length);
+        SolveJob.Status status;
+        int[] solution = null;
+        try {
+            if (side < 0 || !PuzzleFormat.parse(line, side, cells)) {
+                status = SolveJob.Status.INVALID;
+            } else {
+                int blockRows = PuzzleFormat.blockRows(side);
+                solution = solver.solve(side, blockRows, side / blockRows, cells, request.deadline);
+                status = solution != null ? SolveJob.Status.SOLVED
+                        : solver.isTimedOut() ? SolveJob.Status.TIMEOUT : SolveJob.Status.UNSOLVABLE;
+            }
+        } catch (RuntimeException e) {
+            // Ошибка на одной задаче не должна останавливать рабочий поток и оставлять запрос без ответа.
+            status = SolveJob.Status.ERROR;
+            solution = null;
+        }
+        long solveNanos = System.nanoTime() - start;
+        metrics.record(status, start - request.receivedAt, solveNanos);
+        job.complete(status, solution == null ? null : PuzzleFormat.format(solution), solveNanos);
+    }
+}